@@ -1,8 +1,12 @@
 package com.solara.backend.config;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
@@ -35,4 +39,16 @@ public class WeatherAPIConfig { // You can rename this class to RestTemplateConf
         
         return new RestTemplate(factory);
     }
+
+    @Bean
+    public RestTemplate expoPushRestTemplate() {
+        // JDK client keeps connections alive (HTTP/2 to exp.host), shared by every push chunk and receipt poll
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(Duration.ofSeconds(15));
+
+        return new RestTemplate(factory);
+    }
 }
@@ -1,6 +1,8 @@
 package com.solara.backend.controller;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.springframework.data.domain.Page;
@@ -24,7 +26,10 @@ import com.solara.backend.dto.response.UserDTO;
 import com.solara.backend.entity.Field;
 import com.solara.backend.entity.User;
 import com.solara.backend.repository.EspDeviceRepository;
+import com.solara.backend.repository.FieldRepository;
 import com.solara.backend.service.AnalysisService;
+import com.solara.backend.service.DeviceHeartbeatService;
+import com.solara.backend.service.FieldLogCounterService;
 import com.solara.backend.service.FieldService;
 import com.solara.backend.service.SensorLogsService;
 import com.solara.backend.service.UserService;
@@ -79,6 +84,9 @@ public class AdminDashboardController {
     private final AnalysisService analysisService;
     private final SensorLogsService sensorLogsService;
     private final AuthService authService;
+    private final DeviceHeartbeatService deviceHeartbeatService;
+    private final FieldRepository fieldRepository;
+    private final FieldLogCounterService fieldLogCounterService;
 
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/list-users")
@@ -87,6 +95,12 @@ public class AdminDashboardController {
             @RequestParam(value = "size", defaultValue = "10") int size) {
         Page<User> users = userService.listUsersPaginated(page, size);
 
+        // One grouped query per statistic for the whole page
+        List<UUID> userIds = users.map(User::getID).getContent();
+        Map<UUID, Long> deviceCounts = toCountMap(userIds.isEmpty() ? List.of() : fieldRepository.countDevicesByUserIds(userIds));
+        Map<UUID, Long> fieldCounts = toCountMap(userIds.isEmpty() ? List.of() : fieldRepository.countFieldsByUserIds(userIds));
+        Map<UUID, FieldLogCounterService.LogCounts> logCounts = fieldLogCounterService.getCountsForUsers(userIds);
+
         Page<UserDetail> userDetails = users.map(user -> {
             UserDTO userDTO = UserDTO.builder()
                     .id(user.getID())
@@ -97,11 +111,12 @@ public class AdminDashboardController {
                     .preferredLanguage(user.getPreferredLanguage())
                     .createdAt(user.getCreatedAt())
                     .build();
-            long deviceCount = espDeviceRepository.countByField_UserId(userDTO.getId());
-            long fieldCount = fieldService.countFieldsByUserId(userDTO.getId());
-            long analysisCount = analysisService.countAnalysisLogsForUser(userDTO.getId());
-            long sensorLogsCount = sensorLogsService.countLogsForUser(userDTO.getId());
-            return new UserDetail(userDTO, deviceCount, fieldCount, analysisCount, sensorLogsCount);
+            FieldLogCounterService.LogCounts counts = logCounts.get(userDTO.getId());
+            return new UserDetail(userDTO,
+                    deviceCounts.getOrDefault(userDTO.getId(), 0L),
+                    fieldCounts.getOrDefault(userDTO.getId(), 0L),
+                    counts.analysisLogs(),
+                    counts.sensorLogs());
         });
 
         long totalUsers = userService.countUsers();
@@ -137,17 +152,20 @@ public class AdminDashboardController {
 
         List<FieldWithDeviceDTO> response = userFields.stream().map(field -> {
             FieldResponseDTO fieldDTO = new FieldResponseDTO(field);
-            EspDeviceResponseDTO deviceDTO = field.getEspDevice() != null 
-                ? new EspDeviceResponseDTO(field.getEspDevice()) 
-                : null;
+            EspDeviceResponseDTO deviceDTO = null;
+            if (field.getEspDevice() != null) {
+                deviceDTO = new EspDeviceResponseDTO(field.getEspDevice());
+                deviceDTO.setLastSeenAt(deviceHeartbeatService.getLastSeenAt(field.getEspDevice()));
+            }
                 
             return new FieldWithDeviceDTO(fieldDTO, deviceDTO);
         }).toList();
 
         long deviceCount = espDeviceRepository.countByField_UserId(userId);
         long fieldCount = fieldService.countFieldsByUserId(userId);
-        long analysisCount = analysisService.countAnalysisLogsForUser(userId);
-        long sensorLogsCount = sensorLogsService.countLogsForUser(userId);
+        FieldLogCounterService.LogCounts counts = fieldLogCounterService.getCountsForUsers(List.of(userId)).get(userId);
+        long analysisCount = counts.analysisLogs();
+        long sensorLogsCount = counts.sensorLogs();
 
         FieldWithDeviceResponse fullResponse = new FieldWithDeviceResponse(userDTO, response, fieldCount, deviceCount, sensorLogsCount, analysisCount);
         
@@ -175,5 +193,13 @@ public class AdminDashboardController {
         authService.deleteUser(id);
         return ResponseEntity.ok(AuthResponse.builder().message("User deleted successfully.").build());
     }
+
+    private static Map<UUID, Long> toCountMap(List<FieldRepository.UserCountView> views) {
+        Map<UUID, Long> counts = new HashMap<>();
+        for (FieldRepository.UserCountView view : views) {
+            counts.put(view.getUserId(), view.getTotal());
+        }
+        return counts;
+    }
     
 }
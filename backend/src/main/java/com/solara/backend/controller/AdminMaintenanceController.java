@@ -0,0 +1,51 @@
+package com.solara.backend.controller;
+
+import java.util.UUID;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.solara.backend.dto.response.ApiResponse;
+import com.solara.backend.service.FieldLogCounterService;
+import com.solara.backend.service.SensorRollupService;
+import com.solara.backend.service.WeatherClimatologyService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * One-off maintenance operations on derived data, for the admin panel.
+ */
+@RestController
+@RequestMapping("/api/v1/admin/maintenance")
+@RequiredArgsConstructor
+public class AdminMaintenanceController {
+
+    private final SensorRollupService sensorRollupService;
+    private final FieldLogCounterService fieldLogCounterService;
+    private final WeatherClimatologyService weatherClimatologyService;
+
+    /** Recomputes the hourly/daily sensor rollups from sensor_logs, for one field or all of them. */
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/sensor-rollups/rebuild")
+    public ApiResponse<SensorRollupService.RebuildResult> rebuildSensorRollups(@RequestParam(required = false) UUID fieldId) {
+        return ApiResponse.success(sensorRollupService.rebuild(fieldId), HttpStatus.OK.value(), "Sensor rollups rebuilt successfully.");
+    }
+
+    /** Recomputes the monthly weather climatology from weather_logs, for one field or all of them. */
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/weather-climatology/rebuild")
+    public ApiResponse<Integer> rebuildWeatherClimatology(@RequestParam(required = false) UUID fieldId) {
+        return ApiResponse.success(weatherClimatologyService.rebuild(fieldId), HttpStatus.OK.value(), "Weather climatology rebuilt successfully.");
+    }
+
+    /** Recounts the per-field sensor/analysis log counters shown on the admin dashboard. */
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/log-counters/rebuild")
+    public ApiResponse<Integer> rebuildLogCounters() {
+        return ApiResponse.success(fieldLogCounterService.rebuild(), HttpStatus.OK.value(), "Log counters rebuilt successfully.");
+    }
+}
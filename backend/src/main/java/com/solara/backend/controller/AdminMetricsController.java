@@ -0,0 +1,45 @@
+package com.solara.backend.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.solara.backend.dto.response.ApiResponse;
+import com.solara.backend.service.AnalysisJobService;
+import com.solara.backend.service.MlEngineClient;
+import com.solara.backend.service.TelemetryIngestService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Runtime metrics of the backend's internal pipelines, for the admin panel.
+ */
+@RestController
+@RequestMapping("/api/v1/admin/metrics")
+@RequiredArgsConstructor
+public class AdminMetricsController {
+
+    private final TelemetryIngestService telemetryIngestService;
+    private final MlEngineClient mlEngineClient;
+    private final AnalysisJobService analysisJobService;
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/telemetry-ingest")
+    public ApiResponse<TelemetryIngestService.IngestStats> getTelemetryIngestStats() {
+        return ApiResponse.success(telemetryIngestService.getStats(), HttpStatus.OK.value(), "Telemetry ingest metrics retrieved successfully.");
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/ml-cache")
+    public ApiResponse<MlEngineClient.MlCacheStats> getMlCacheStats() {
+        return ApiResponse.success(mlEngineClient.getCacheStats(), HttpStatus.OK.value(), "ML cache metrics retrieved successfully.");
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/analysis-jobs")
+    public ApiResponse<AnalysisJobService.AnalysisJobStats> getAnalysisJobStats() {
+        return ApiResponse.success(analysisJobService.getStats(), HttpStatus.OK.value(), "Analysis job metrics retrieved successfully.");
+    }
+}
@@ -3,6 +3,7 @@ package com.solara.backend.controller;
 import java.util.UUID;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -12,11 +13,15 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.solara.backend.dto.request.AnalysisRequestDTO;
+import com.solara.backend.dto.request.WhatIfSweepRequestDTO;
+import com.solara.backend.dto.response.AnalysisJobDTO;
 import com.solara.backend.dto.response.AnalysisResultDTO;
 import com.solara.backend.dto.response.ApiResponse;
+import com.solara.backend.dto.response.WhatIfSweepResultDTO;
 import com.solara.backend.entity.Field;
 import com.solara.backend.entity.User;
 import com.solara.backend.exception.AppException;
+import com.solara.backend.service.AnalysisJobService;
 import com.solara.backend.service.AnalysisService;
 import com.solara.backend.service.FieldService;
 
@@ -25,10 +30,13 @@ import com.solara.backend.service.FieldService;
 public class AnalysisController {
 
     private final AnalysisService analysisService;
+    private final AnalysisJobService analysisJobService;
     private final FieldService fieldService;
 
-    public AnalysisController(AnalysisService analysisService, FieldService fieldService) {
+    public AnalysisController(AnalysisService analysisService, AnalysisJobService analysisJobService,
+                              FieldService fieldService) {
         this.analysisService = analysisService;
+        this.analysisJobService = analysisJobService;
         this.fieldService = fieldService;
     }
 
@@ -60,6 +68,74 @@ public class AnalysisController {
         return ApiResponse.success(result, HttpStatus.OK.value(), "Analysis completed successfully.");
     }
 
+    /**
+     * POST /api/v1/analysis/jobs
+     *
+     * Same request and scenarios as /range, but returns a QUEUED job right away (202).
+     * Progress and the result are pushed to /topic/user.{id}.analysis and can be polled
+     * at GET /api/v1/analysis/jobs/{jobId}. Resubmitting the same field and parameters
+     * while the job is queued or running returns that job.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<ApiResponse<AnalysisJobDTO>> submitAnalysis(
+            @RequestBody AnalysisRequestDTO request,
+            @AuthenticationPrincipal User currentUser) {
+
+        UUID fieldId = request.getFieldId();
+        if (fieldId == null) {
+            throw new AppException(HttpStatus.BAD_REQUEST, "fieldId is required.");
+        }
+
+        Field field = fieldService.getFieldById(fieldId);
+        if (!field.getUserId().equals(currentUser.getID())) {
+            throw new AppException(HttpStatus.FORBIDDEN,
+                    "You do not have permission to analyze this field.");
+        }
+
+        AnalysisJobDTO job = analysisJobService.submit(currentUser.getID(), request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(job, HttpStatus.ACCEPTED.value(), "Analysis job accepted."));
+    }
+
+    /**
+     * GET /api/v1/analysis/jobs/{jobId}
+     * Current state of one of the user's analysis jobs, with the result once it SUCCEEDED.
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ApiResponse<AnalysisJobDTO> getAnalysisJob(
+            @PathVariable("jobId") UUID jobId,
+            @AuthenticationPrincipal User currentUser) {
+
+        AnalysisJobDTO job = analysisJobService.getJob(currentUser.getID(), jobId);
+        return ApiResponse.success(job, HttpStatus.OK.value(), "Analysis job retrieved successfully.");
+    }
+
+    /**
+     * POST /api/v1/analysis/what-if/sweep
+     *
+     * Scenario C over a grid: evaluates every combination of the requested temperature,
+     * humidity and rainfall values against the field's climatology in one ML round-trip.
+     */
+    @PostMapping("/what-if/sweep")
+    public ApiResponse<WhatIfSweepResultDTO> sweepWhatIf(
+            @RequestBody WhatIfSweepRequestDTO request,
+            @AuthenticationPrincipal User currentUser) {
+
+        UUID fieldId = request.getFieldId();
+        if (fieldId == null) {
+            throw new AppException(HttpStatus.BAD_REQUEST, "fieldId is required.");
+        }
+
+        Field field = fieldService.getFieldById(fieldId);
+        if (!field.getUserId().equals(currentUser.getID())) {
+            throw new AppException(HttpStatus.FORBIDDEN,
+                    "You do not have permission to analyze this field.");
+        }
+
+        WhatIfSweepResultDTO result = analysisService.sweepWhatIf(request);
+        return ApiResponse.success(result, HttpStatus.OK.value(), "What-if sweep completed successfully.");
+    }
+
     /**
      * GET /api/v1/analysis/field/{fieldId}/last
      * Returns the most recent saved analysis for a field.
@@ -4,9 +4,11 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -15,9 +17,11 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.solara.backend.dto.response.SensorResponse;
 import com.solara.backend.entity.User;
+import com.solara.backend.exception.AppException;
 import com.solara.backend.service.FieldService;
 import com.solara.backend.service.SensorLogsService;
 
@@ -52,7 +56,7 @@ public class SensorController {
         }
 
         List<SensorLogsService.AggregateLog> logs = sensorService.getLogsByInterval(
-                SensorLogsService.Intervals.valueOf(interval.toUpperCase()), 
+                SensorLogsService.Intervals.fromParam(interval),
                 start, 
                 end, 
                 fieldId
@@ -61,26 +65,48 @@ public class SensorController {
         return logs;
     }
 
+    /**
+     * Streams the export to the client while it is read from the database.
+     * Optional start/end bound the range, interval (raw by default) selects
+     * aggregated rows, and gzip=true compresses the file (.csv.gz).
+     */
     @GetMapping("/export/csv")
-    public ResponseEntity<byte[]> getSensorLogsAsCSV(
+    public ResponseEntity<StreamingResponseBody> getSensorLogsAsCSV(
         @AuthenticationPrincipal User currentUser, 
-        @RequestParam UUID fieldId
+        @RequestParam UUID fieldId,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+        @RequestParam(defaultValue = "raw") String interval,
+        @RequestParam(defaultValue = "false") boolean gzip
     ) {
         if (!fieldService.userHasAccessToField(currentUser.getID(), fieldId)) {
             return ResponseEntity.status(403).build();
         }
 
+        // Validate before the body starts streaming; afterwards the status can no longer change
+        if (start != null && end != null && start.isAfter(end)) {
+            throw new AppException(HttpStatus.BAD_REQUEST, "Start timestamp must be before end timestamp");
+        }
+        SensorLogsService.Intervals resolution = SensorLogsService.Intervals.fromParam(interval);
         String fieldName = fieldService.getFieldName(fieldId);
 
-        byte[] csvData = sensorService.exportToCSV(fieldId);
-
         String safeFieldName = fieldName != null ? fieldName.replaceAll("[^a-zA-Z0-9\\-_]", "_") : "Unknown_Field";
         String filename = safeFieldName + "_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss")) + ".csv";
 
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                try (GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024)) {
+                    sensorService.writeCSV(fieldId, start, end, resolution, gzipOut);
+                }
+            } else {
+                sensorService.writeCSV(fieldId, start, end, resolution, out);
+            }
+        };
+
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .contentType(MediaType.parseMediaType("text/csv"))
-                .body(csvData);
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + (gzip ? ".gz" : "") + "\"")
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") : MediaType.parseMediaType("text/csv"))
+                .body(body);
     }
     
 }
@@ -4,7 +4,6 @@ import java.util.List;
 import java.util.UUID;
 
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -15,6 +14,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.solara.backend.dto.response.ApiResponse;
 import com.solara.backend.dto.response.OpenMeteoCurrentResponse;
+import com.solara.backend.dto.response.WeatherSyncReportDTO;
 import com.solara.backend.entity.WeatherLog;
 import com.solara.backend.service.LiveWeatherService;
 import com.solara.backend.service.WeatherSyncService;
@@ -35,10 +35,10 @@ public class WeatherAPIController {
     // Manual trigger for testing or admin purposes
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping("/admin/sync")
-    public ResponseEntity<String> forceSyncWeatherData() {
+    public ApiResponse<WeatherSyncReportDTO> forceSyncWeatherData() {
         // Calls the same method the cron job uses
-        weatherSyncService.syncDailyWeatherData();
-        return ResponseEntity.ok("Weather sync triggered manually.");
+        WeatherSyncReportDTO report = weatherSyncService.syncDailyWeatherData();
+        return ApiResponse.success(report, HttpStatus.OK.value(), "Weather sync completed.");
     }
 
     @GetMapping("/live/{fieldId}")
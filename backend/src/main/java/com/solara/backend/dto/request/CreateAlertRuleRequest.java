@@ -2,9 +2,11 @@ package com.solara.backend.dto.request;
 
 import java.util.UUID;
 
+import com.solara.backend.entity.AlertCondition;
 import com.solara.backend.entity.AlertMetric;
 import com.solara.backend.entity.AlertOperator;
 
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
@@ -30,6 +32,17 @@ public class CreateAlertRuleRequest {
     @NotNull(message = "threshold is required")
     private Double threshold;
 
+    /** Defaults to VALUE (the latest reading) */
+    private AlertCondition condition;
+
+    /** Required for MEAN, MIN, MAX and RATE_PER_HOUR */
+    @Positive
+    @Max(1440)
+    private Integer windowMinutes;
+
+    /** Optional hysteresis level the value must return past before the event resolves */
+    private Double clearThreshold;
+
     /** Minimum duration in minutes before a notification is sent (e.g. 120 = 2 hours) */
     @NotNull(message = "durationMinutes is required")
     @Positive
@@ -0,0 +1,32 @@
+package com.solara.backend.dto.request;
+
+import java.util.List;
+import java.util.UUID;
+
+import lombok.Data;
+
+@Data
+public class WhatIfSweepRequestDTO {
+
+    private UUID fieldId;
+
+    // Season whose climatology is the baseline (same as Scenario B/C)
+    private int targetMonthStart; // 1–12
+    private int targetMonthEnd;   // 1–12
+
+    // Swept inputs; an axis left out stays at the climatology baseline
+    private SweepAxis temperature;
+    private SweepAxis humidity;
+    private SweepAxis rainfall;
+
+    private int topN = 5;
+
+    /** Either explicit values, or from..to (inclusive) in increments of step */
+    @Data
+    public static class SweepAxis {
+        private List<Double> values;
+        private Double from;
+        private Double to;
+        private Double step;
+    }
+}
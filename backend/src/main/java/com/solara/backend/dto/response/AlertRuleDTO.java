@@ -3,6 +3,7 @@ package com.solara.backend.dto.response;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+import com.solara.backend.entity.AlertCondition;
 import com.solara.backend.entity.AlertMetric;
 import com.solara.backend.entity.AlertOperator;
 import com.solara.backend.entity.AlertRule;
@@ -24,6 +25,9 @@ public class AlertRuleDTO {
     private AlertMetric metric;
     private AlertOperator operator;
     private Double threshold;
+    private AlertCondition condition;
+    private Integer windowMinutes;
+    private Double clearThreshold;
     private Integer durationMinutes;
     private boolean notifyEmail;
     private boolean active;
@@ -37,6 +41,9 @@ public class AlertRuleDTO {
         this.metric = rule.getMetric();
         this.operator = rule.getOperator();
         this.threshold = rule.getThreshold();
+        this.condition = rule.getCondition();
+        this.windowMinutes = rule.getWindowMinutes();
+        this.clearThreshold = rule.getClearThreshold();
         this.durationMinutes = rule.getDurationMinutes();
         this.notifyEmail = rule.isNotifyEmail();
         this.active = rule.isActive();
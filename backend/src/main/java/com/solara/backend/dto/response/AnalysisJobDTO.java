@@ -0,0 +1,31 @@
+package com.solara.backend.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class AnalysisJobDTO {
+
+    private UUID jobId;
+    private UUID fieldId;
+
+    /**
+     * QUEUED, RUNNING, SUCCEEDED or FAILED.
+     */
+    private String status;
+
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    /** Set once the job SUCCEEDED */
+    private AnalysisResultDTO result;
+
+    /** Message and HTTP status the synchronous endpoint would have answered with, once the job FAILED */
+    private String error;
+    private Integer errorStatus;
+}
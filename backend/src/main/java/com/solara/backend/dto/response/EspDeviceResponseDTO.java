@@ -22,6 +22,7 @@ public class EspDeviceResponseDTO {
     private String pairedFieldName;
     private UUID pairedFieldId;
     private LocalDateTime createdAt;
+    private LocalDateTime lastSeenAt;
     
     public EspDeviceResponseDTO(EspDevice device) {
         this.id = device.getId();
@@ -32,5 +33,6 @@ public class EspDeviceResponseDTO {
             this.pairedFieldName = device.getField().getName();
         }
         this.createdAt = device.getCreatedAt();
+        this.lastSeenAt = device.getLastSeenAt();
     }
 }
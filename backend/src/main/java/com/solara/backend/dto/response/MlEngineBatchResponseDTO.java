@@ -0,0 +1,18 @@
+package com.solara.backend.dto.response;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class MlEngineBatchResponseDTO {
+    // One entry per request item, in order
+    private List<MlEngineResponseDTO> results;
+
+    @JsonProperty("model_version")
+    private String modelVersion;
+}
@@ -2,6 +2,8 @@ package com.solara.backend.dto.response;
 
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -9,4 +11,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 public class MlEngineResponseDTO {
     private List<MlCropRecommendationDTO> recommendations;
+
+    @JsonProperty("model_version")
+    private String modelVersion;
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.solara.backend.dto.response;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class WeatherSyncReportDTO {
+    private LocalDate logDate;
+    private int cells;
+    private int fields;
+    private int syncedFields;
+    private List<UUID> failedFieldIds; // Fields whose cell still failed after all retries
+    private long durationMs;
+}
@@ -0,0 +1,40 @@
+package com.solara.backend.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+public class WhatIfSweepResultDTO {
+
+    private UUID fieldId;
+    private LocalDateTime timestamp;
+
+    // Climatology baseline of the target months
+    private double baselineTemperature;
+    private double baselineHumidity;
+    private double baselineRainfall;
+
+    // Axis values of the grid; points are ordered temperature-major, then humidity, then rainfall
+    private List<Double> temperatures;
+    private List<Double> humidities;
+    private List<Double> rainfalls;
+
+    private List<SweepPoint> points;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SweepPoint {
+        private double temperature;
+        private double humidity;
+        private double rainfall;
+        private List<MlCropRecommendationDTO> recommendations;
+    }
+}
@@ -0,0 +1,18 @@
+package com.solara.backend.entity;
+
+/**
+ * What value of the metric a rule compares against its threshold.
+ * Everything except VALUE is computed over the last windowMinutes of readings.
+ */
+public enum AlertCondition {
+    /** The single latest reading */
+    VALUE,
+    /** Rolling mean */
+    MEAN,
+    /** Rolling minimum */
+    MIN,
+    /** Rolling maximum */
+    MAX,
+    /** Change per hour between the oldest and newest reading in the window */
+    RATE_PER_HOUR
+}
@@ -0,0 +1,68 @@
+package com.solara.backend.entity;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An alert collected into a user's email digest by AlertEmailService. Rows
+ * are deleted once the digest that contains them was accepted by the SMTP
+ * server, so collected alerts survive a restart.
+ */
+@Entity
+@Table(name = "alert_email_digest_entries",
+        indexes = @Index(name = "idx_alert_email_digest_user", columnList = "user_id, created_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AlertEmailDigestEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(name = "email", nullable = false)
+    private String email;
+
+    @Column(name = "language", nullable = false, length = 10)
+    private String language;
+
+    @Column(name = "rule_name", nullable = false)
+    private String ruleName;
+
+    @Column(name = "field_name", nullable = false)
+    private String fieldName;
+
+    @Column(name = "metric", nullable = false, length = 50)
+    private String metric;
+
+    @Column(name = "operator", nullable = false, length = 20)
+    private String operator;
+
+    @Column(name = "threshold")
+    private Double threshold;
+
+    @Column(name = "duration_minutes")
+    private Integer durationMinutes;
+
+    @Column(name = "metric_value")
+    private Double value;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,73 @@
+package com.solara.backend.entity;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A pending notification of an AlertEvent, written in the same transaction as
+ * the event change and delivered later by AlertNotificationDispatcher.
+ *
+ * There is at most one row per (event, type). The *_sent flags record which
+ * channels already succeeded, so a retry after a partial failure does not
+ * notify the user twice on the same channel.
+ */
+@Entity
+@Table(name = "alert_outbox",
+        uniqueConstraints = @UniqueConstraint(name = "uk_alert_outbox_event_type", columnNames = {"event_id", "type"}),
+        indexes = @Index(name = "idx_alert_outbox_pending", columnList = "dispatched_at, next_attempt_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertOutbox {
+
+    @Id
+    private UUID id;
+
+    @Column(name = "event_id", nullable = false)
+    private UUID eventId;
+
+    /** Owner of the rule at the time the row was written (WebSocket topic, push tokens) */
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 20)
+    private AlertOutboxType type;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    /** null = not delivered yet */
+    @Column(name = "dispatched_at")
+    private LocalDateTime dispatchedAt;
+
+    @Column(name = "push_sent", nullable = false)
+    private boolean pushSent;
+
+    @Column(name = "email_sent", nullable = false)
+    private boolean emailSent;
+
+    @Column(name = "ws_sent", nullable = false)
+    private boolean wsSent;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+}
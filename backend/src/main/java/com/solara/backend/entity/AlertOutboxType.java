@@ -0,0 +1,11 @@
+package com.solara.backend.entity;
+
+/** What happened to an AlertEvent, and so which channels an outbox row fans out to */
+public enum AlertOutboxType {
+    /** Breach started on a rule with a duration: in-app (WebSocket) only */
+    OPENED,
+    /** Notification due: push, email (if the rule asks for it) and WebSocket */
+    TRIGGERED,
+    /** Value recovered: WebSocket only */
+    RESOLVED
+}
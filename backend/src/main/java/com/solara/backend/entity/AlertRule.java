@@ -3,6 +3,7 @@ package com.solara.backend.entity;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 
 import jakarta.persistence.Column;
@@ -54,6 +55,25 @@ public class AlertRule {
     @Column(name = "threshold", nullable = false)
     private Double threshold;
 
+    /** Which value is compared: the latest reading or an aggregate over windowMinutes */
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    @ColumnDefault("'VALUE'")
+    @Column(name = "condition_kind", nullable = false, length = 20)
+    private AlertCondition condition = AlertCondition.VALUE;
+
+    /** Window length for every condition except VALUE */
+    @Column(name = "window_minutes")
+    private Integer windowMinutes;
+
+    /**
+     * Hysteresis: once breached, the event only resolves when the value is back
+     * past this level (e.g. BELOW 20 with clearThreshold 25 resolves at >= 25).
+     * null = resolve as soon as the threshold is no longer breached.
+     */
+    @Column(name = "clear_threshold")
+    private Double clearThreshold;
+
     /**
      * How many consecutive minutes the condition must be true before
      * a notification is sent. E.g. 120 = "2 hours".
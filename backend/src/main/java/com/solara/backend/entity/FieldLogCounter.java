@@ -0,0 +1,37 @@
+package com.solara.backend.entity;
+
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Running number of sensor and analysis logs per field, maintained by
+ * FieldLogCounterService so the admin dashboard never counts sensor_logs.
+ * user_id is copied from the field to allow per-user sums.
+ */
+@Entity
+@Table(name = "field_log_counters", indexes = @Index(name = "idx_field_log_counters_user", columnList = "user_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FieldLogCounter {
+    @Id
+    @Column(name = "field_id")
+    private UUID fieldId;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(name = "sensor_log_count", nullable = false)
+    private long sensorLogCount;
+
+    @Column(name = "analysis_log_count", nullable = false)
+    private long analysisLogCount;
+}
@@ -0,0 +1,46 @@
+package com.solara.backend.entity;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A day of a field's history window that Open-Meteo answered without. attempts
+ * counts the calendar days on which the backfill tried it; once it reaches
+ * {@code weather.backfill.max-day-attempts} the day is treated as unavailable
+ * and the watermark moves past it. Written by WeatherBackfillService; removed
+ * with the field's weather logs.
+ */
+@Entity
+@Table(name = "field_weather_missing_days",
+        uniqueConstraints = @UniqueConstraint(name = "uk_field_weather_missing_day", columnNames = {"field_id", "log_date"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FieldWeatherMissingDay {
+
+    @Id
+    private UUID id;
+
+    @Column(name = "field_id", nullable = false)
+    private UUID fieldId;
+
+    @Column(name = "log_date", nullable = false)
+    private LocalDate logDate;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "last_attempt_on", nullable = false)
+    private LocalDate lastAttemptOn;
+}
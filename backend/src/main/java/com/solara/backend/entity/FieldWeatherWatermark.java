@@ -0,0 +1,38 @@
+package com.solara.backend.entity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Backfill progress of one field: every day of the history window up to and
+ * including syncedThrough is present in weather_logs. Written by
+ * WeatherBackfillService; removed with the field's weather logs.
+ */
+@Entity
+@Table(name = "field_weather_watermarks")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FieldWeatherWatermark {
+
+    @Id
+    @Column(name = "field_id")
+    private UUID fieldId;
+
+    @Column(name = "synced_through", nullable = false)
+    private LocalDate syncedThrough;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,82 @@
+package com.solara.backend.entity;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Copy of the newest sensor_logs row of each field, one row per field.
+ * Written by SensorLatestService on ingest; lets the latest-reading cache
+ * be rebuilt at startup without scanning sensor_logs.
+ */
+@Entity
+@Table(name = "sensor_latest")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SensorLatest {
+    @Id
+    @Column(name = "field_id")
+    private UUID fieldId;
+
+    @Column(name = "sensor_log_id", nullable = false)
+    private UUID sensorLogId;
+    @Column(name = "device_id", nullable = false)
+    private String deviceId;
+
+    @Column(name = "soil_temperature")
+    private Double soilTemp;
+    @Column(name = "soil_humidity")
+    private Double soilHumidity;
+
+    @Column(name = "ambient_temperature")
+    private Double ambientTemp;
+    @Column(name = "ambient_humidity")
+    private Double ambientHumidity;
+
+    @Column(name = "battery_voltage")
+    private Double batteryVoltage;
+    @Column(name = "battery_percentage")
+    private Integer batteryPercentage;
+
+    @Column(name = "location_latitude")
+    private Double locationLatitude;
+    @Column(name = "location_longitude")
+    private Double locationLongitude;
+    @Column(name = "location_accuracy")
+    private Double locationAccuracy;
+
+    @Column(name = "errors")
+    private String errors;
+
+    @Column(name = "timestamp", nullable = false)
+    private LocalDateTime timestamp;
+
+    public SensorLogs toSensorLogs() {
+        return SensorLogs.builder()
+                .id(sensorLogId)
+                .fieldId(fieldId)
+                .deviceId(deviceId)
+                .soilTemp(soilTemp)
+                .soilHumidity(soilHumidity)
+                .ambientTemp(ambientTemp)
+                .ambientHumidity(ambientHumidity)
+                .batteryVoltage(batteryVoltage)
+                .batteryPercentage(batteryPercentage)
+                .locationLatitude(locationLatitude)
+                .locationLongitude(locationLongitude)
+                .locationAccuracy(locationAccuracy)
+                .errors(errors)
+                .timestamp(timestamp)
+                .build();
+    }
+}
@@ -0,0 +1,13 @@
+package com.solara.backend.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "sensor_logs_daily",
+       uniqueConstraints = @UniqueConstraint(name = "uk_sensor_logs_daily_field_bucket", columnNames = {"field_id", "bucket_start"}))
+@NoArgsConstructor
+public class SensorLogsDaily extends SensorRollup {
+}
@@ -0,0 +1,79 @@
+package com.solara.backend.entity;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.MappedSuperclass;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Pre-aggregated sensor readings for one field and one time bucket.
+ *
+ * Stores count/sum/min/max per metric rather than averages, so partial
+ * aggregates can be merged (ingest upserts) and re-bucketed (weekly charts
+ * from daily rows) without going back to sensor_logs.
+ * Rows are written with native upserts by SensorRollupService.
+ */
+@MappedSuperclass
+@Getter
+@Setter
+@NoArgsConstructor
+public abstract class SensorRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "field_id", nullable = false)
+    private UUID fieldId;
+
+    /** Start of the bucket (UTC), truncated to the hour or day */
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    /** Number of readings in the bucket, including ones with missing metrics */
+    @Column(name = "sample_count", nullable = false)
+    private long sampleCount;
+
+    @Column(name = "ambient_temperature_count", nullable = false)
+    private long ambientTempCount;
+    @Column(name = "ambient_temperature_sum", nullable = false)
+    private double ambientTempSum;
+    @Column(name = "ambient_temperature_min")
+    private Double ambientTempMin;
+    @Column(name = "ambient_temperature_max")
+    private Double ambientTempMax;
+
+    @Column(name = "soil_temperature_count", nullable = false)
+    private long soilTempCount;
+    @Column(name = "soil_temperature_sum", nullable = false)
+    private double soilTempSum;
+    @Column(name = "soil_temperature_min")
+    private Double soilTempMin;
+    @Column(name = "soil_temperature_max")
+    private Double soilTempMax;
+
+    @Column(name = "ambient_humidity_count", nullable = false)
+    private long ambientHumidityCount;
+    @Column(name = "ambient_humidity_sum", nullable = false)
+    private double ambientHumiditySum;
+    @Column(name = "ambient_humidity_min")
+    private Double ambientHumidityMin;
+    @Column(name = "ambient_humidity_max")
+    private Double ambientHumidityMax;
+
+    @Column(name = "soil_humidity_count", nullable = false)
+    private long soilHumidityCount;
+    @Column(name = "soil_humidity_sum", nullable = false)
+    private double soilHumiditySum;
+    @Column(name = "soil_humidity_min")
+    private Double soilHumidityMin;
+    @Column(name = "soil_humidity_max")
+    private Double soilHumidityMax;
+}
@@ -0,0 +1,62 @@
+package com.solara.backend.entity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.hibernate.annotations.CreationTimestamp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Daily weather of one grid cell (see WeatherCell), shared by every field
+ * whose centroid falls into it. weather_logs rows of those fields are copied
+ * from here, so each cell is only fetched once per day.
+ */
+@Entity
+@Table(name = "weather_cell_logs",
+       uniqueConstraints = @UniqueConstraint(name = "uk_weather_cell_logs_cell_date", columnNames = {"cell_lat", "cell_lon", "log_date"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WeatherCellLog {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    /** Latitude of the cell center, rounded to 4 decimals */
+    @Column(name = "cell_lat", nullable = false)
+    private double cellLat;
+
+    /** Longitude of the cell center, rounded to 4 decimals */
+    @Column(name = "cell_lon", nullable = false)
+    private double cellLon;
+
+    @Column(name = "log_date", nullable = false)
+    private LocalDate logDate;
+
+    @Column(name = "total_rainfall")
+    private Double totalRainfall;
+
+    @Column(name = "average_temperature")
+    private Double averageTemperature;
+
+    @Column(name = "average_humidity")
+    private Double averageHumidity;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
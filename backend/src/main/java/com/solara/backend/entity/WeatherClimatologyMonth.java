@@ -0,0 +1,61 @@
+package com.solara.backend.entity;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * weather_logs of one field aggregated per calendar month.
+ *
+ * Like the sensor rollups it stores count/sum per metric rather than means, so
+ * newly written days are merged in with an upsert and seasonal means over
+ * several months are exact. Rows are written by WeatherClimatologyService.
+ */
+@Entity
+@Table(name = "weather_monthly_climatology",
+       uniqueConstraints = @UniqueConstraint(name = "uk_weather_monthly_climatology_field_month", columnNames = {"field_id", "month_start"}))
+@Getter
+@Setter
+@NoArgsConstructor
+public class WeatherClimatologyMonth {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "field_id", nullable = false)
+    private UUID fieldId;
+
+    /** First day of the month */
+    @Column(name = "month_start", nullable = false)
+    private LocalDate monthStart;
+
+    /** Number of weather_logs days in the month, including ones with missing metrics */
+    @Column(name = "day_count", nullable = false)
+    private long dayCount;
+
+    @Column(name = "temperature_count", nullable = false)
+    private long temperatureCount;
+    @Column(name = "temperature_sum", nullable = false)
+    private double temperatureSum;
+
+    @Column(name = "humidity_count", nullable = false)
+    private long humidityCount;
+    @Column(name = "humidity_sum", nullable = false)
+    private double humiditySum;
+
+    @Column(name = "rainfall_count", nullable = false)
+    private long rainfallCount;
+    @Column(name = "rainfall_sum", nullable = false)
+    private double rainfallSum;
+}
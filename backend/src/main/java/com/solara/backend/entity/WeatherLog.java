@@ -12,13 +12,15 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "weather_logs")
+@Table(name = "weather_logs",
+       uniqueConstraints = @UniqueConstraint(name = "uk_weather_logs_field_date", columnNames = {"field_id", "log_date"}))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
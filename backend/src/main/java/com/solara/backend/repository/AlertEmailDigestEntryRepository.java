@@ -0,0 +1,13 @@
+package com.solara.backend.repository;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.solara.backend.entity.AlertEmailDigestEntry;
+
+public interface AlertEmailDigestEntryRepository extends JpaRepository<AlertEmailDigestEntry, UUID> {
+
+    List<AlertEmailDigestEntry> findAllByOrderByCreatedAtAsc();
+}
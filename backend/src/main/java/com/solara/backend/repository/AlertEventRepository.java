@@ -1,22 +1,33 @@
 package com.solara.backend.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.solara.backend.entity.AlertEvent;
 
 public interface AlertEventRepository extends JpaRepository<AlertEvent, UUID> {
 
-    /**
-     * Find the currently open (unresolved) event for a rule.
-     * Used by the evaluation engine to detect ongoing breaches.
-     */
-    Optional<AlertEvent> findByRuleIdAndResolvedAtIsNull(UUID ruleId);
+    /** All open (unresolved) events; AlertStateService rebuilds its state table from these at startup */
+    List<AlertEvent> findByResolvedAtIsNull();
+
+    /** Notify transition of an open event, written without loading it */
+    @Transactional
+    @Modifying
+    @Query("UPDATE AlertEvent e SET e.notifiedAt = :notifiedAt, e.read = false, e.lastValue = :lastValue WHERE e.id = :id")
+    int markNotified(@Param("id") UUID id, @Param("notifiedAt") LocalDateTime notifiedAt, @Param("lastValue") Double lastValue);
+
+    /** Resolve transition of an open event, written without loading it */
+    @Transactional
+    @Modifying
+    @Query("UPDATE AlertEvent e SET e.resolvedAt = :resolvedAt, e.lastValue = :lastValue WHERE e.id = :id AND e.resolvedAt IS NULL")
+    int markResolved(@Param("id") UUID id, @Param("resolvedAt") LocalDateTime resolvedAt, @Param("lastValue") Double lastValue);
 
     /** Full history for a field, newest first */
     List<AlertEvent> findByFieldIdOrderByTriggeredAtDesc(UUID fieldId);
@@ -0,0 +1,34 @@
+package com.solara.backend.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.solara.backend.entity.AlertOutbox;
+
+public interface AlertOutboxRepository extends JpaRepository<AlertOutbox, UUID> {
+
+    /**
+     * Locks the oldest due rows. Rows locked by another instance are skipped, so
+     * several backends can drain the outbox without delivering a row twice.
+     */
+    @Query(value = """
+            SELECT * FROM alert_outbox
+            WHERE dispatched_at IS NULL AND attempts < :maxAttempts AND next_attempt_at <= :now
+            ORDER BY created_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<AlertOutbox> claimDue(@Param("now") LocalDateTime now, @Param("maxAttempts") int maxAttempts, @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM AlertOutbox o WHERE o.dispatchedAt < :before")
+    int deleteDispatchedBefore(@Param("before") LocalDateTime before);
+}
@@ -10,9 +10,12 @@ import com.solara.backend.entity.AlertRule;
 
 public interface AlertRuleRepository extends JpaRepository<AlertRule, UUID> {
 
-    /** All active rules watching a specific field (used by evaluation engine) */
+    /** All active rules watching a specific field */
     List<AlertRule> findByFieldIdAndActiveTrue(UUID fieldId);
 
+    /** All active rules, loaded once into AlertRuleIndex */
+    List<AlertRule> findByActiveTrue();
+
     /** All rules owned by a user, newest first */
     List<AlertRule> findByUserIdOrderByCreatedAtDesc(UUID userId);
 
@@ -9,5 +9,6 @@ import com.solara.backend.entity.AnalysisLog;
 
 public interface AnalysisLogRepository extends JpaRepository<AnalysisLog, UUID> {
     Optional<AnalysisLog> findTopByFieldIdOrderByCreatedAtDesc(UUID fieldId);
+    Optional<AnalysisLog> findTopByFieldIdAndScenarioNotOrderByCreatedAtDesc(UUID fieldId, String scenario);
     long countByFieldId(UUID fieldId);
 }
@@ -1,10 +1,14 @@
 package com.solara.backend.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.solara.backend.entity.DevicePushToken;
 
@@ -13,4 +17,9 @@ public interface DevicePushTokenRepository extends JpaRepository<DevicePushToken
     Optional<DevicePushToken> findByUserIdAndDeviceId(UUID userId, String deviceId);
     Optional<DevicePushToken> findByUserIdAndExpoPushToken(UUID userId, String expoPushToken);
     List<DevicePushToken> findByUserIdAndActiveTrue(UUID userId);
+
+    /** Bulk deactivation of tokens Expo reported as DeviceNotRegistered */
+    @Modifying
+    @Query("UPDATE DevicePushToken t SET t.active = false WHERE t.active = true AND t.expoPushToken IN :tokens")
+    int deactivateByExpoPushTokenIn(@Param("tokens") Collection<String> tokens);
 }
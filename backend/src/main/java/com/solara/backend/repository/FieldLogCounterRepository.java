@@ -0,0 +1,29 @@
+package com.solara.backend.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.solara.backend.entity.FieldLogCounter;
+
+public interface FieldLogCounterRepository extends JpaRepository<FieldLogCounter, UUID> {
+
+    /** Sensor and analysis log totals of one user */
+    interface UserLogCountsView {
+        UUID getUserId();
+        Long getSensorLogCount();
+        Long getAnalysisLogCount();
+    }
+
+    @Query("""
+            SELECT c.userId AS userId, SUM(c.sensorLogCount) AS sensorLogCount, SUM(c.analysisLogCount) AS analysisLogCount
+            FROM FieldLogCounter c
+            WHERE c.userId IN :userIds
+            GROUP BY c.userId
+            """)
+    List<UserLogCountsView> sumByUserIds(@Param("userIds") Collection<UUID> userIds);
+}
@@ -1,16 +1,36 @@
 package com.solara.backend.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.solara.backend.entity.Field;
 
 public interface FieldRepository extends  JpaRepository<Field, UUID> {
+
+    /** Flat view of a field/device pairing, used to build the in-memory DeviceFieldIndex */
+    interface DeviceBindingView {
+        String getSerialNumber();
+        UUID getFieldId();
+        UUID getUserId();
+        UUID getEspDeviceId();
+    }
+
+    /** Liveness state of a paired field, used to rebuild DeviceMonitorService's watches at startup */
+    interface DeviceWatchView {
+        UUID getFieldId();
+        LocalDateTime getLastSeenAt();
+        LocalDateTime getLastOfflineAlertSentAt();
+    }
+
     // Custom query method to find fields by user ID
     List<Field> findByUserId(UUID userId);
     @Query("SELECT f.name FROM Field f WHERE f.id = :fieldId")
@@ -18,6 +38,29 @@ public interface FieldRepository extends  JpaRepository<Field, UUID> {
     // Device pairing queries
     Optional<Field> findByEspDevice_SerialNumber(String serialNumber);
     boolean existsByEspDevice_SerialNumber(String serialNumber);
+    @Query("SELECT d.serialNumber AS serialNumber, f.id AS fieldId, f.userId AS userId, d.id AS espDeviceId "
+            + "FROM Field f JOIN f.espDevice d")
+    List<DeviceBindingView> findAllDeviceBindings();
+    @Query("SELECT f.id AS fieldId, d.lastSeenAt AS lastSeenAt, f.lastOfflineAlertSentAt AS lastOfflineAlertSentAt "
+            + "FROM Field f JOIN f.espDevice d")
+    List<DeviceWatchView> findAllDeviceWatchStates();
+    @Transactional
+    @Modifying
+    @Query("UPDATE Field f SET f.lastOfflineAlertSentAt = :sentAt WHERE f.id = :fieldId")
+    int updateLastOfflineAlertSentAt(@Param("fieldId") UUID fieldId, @Param("sentAt") LocalDateTime sentAt);
     boolean existsByIdAndUserId(UUID fieldId, UUID userId);
     long countByUserId(UUID userId);
+
+    /** A per-user count, as returned by the grouped count queries below */
+    interface UserCountView {
+        UUID getUserId();
+        Long getTotal();
+    }
+
+    @Query("SELECT f.userId AS userId, COUNT(f) AS total FROM Field f WHERE f.userId IN :userIds GROUP BY f.userId")
+    List<UserCountView> countFieldsByUserIds(@Param("userIds") Collection<UUID> userIds);
+
+    /** Devices are counted through their paired field, like EspDeviceRepository.countByField_UserId */
+    @Query("SELECT f.userId AS userId, COUNT(f.espDevice) AS total FROM Field f WHERE f.userId IN :userIds GROUP BY f.userId")
+    List<UserCountView> countDevicesByUserIds(@Param("userIds") Collection<UUID> userIds);
 }
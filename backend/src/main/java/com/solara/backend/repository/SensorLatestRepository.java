@@ -0,0 +1,28 @@
+package com.solara.backend.repository;
+
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.solara.backend.entity.SensorLatest;
+
+public interface SensorLatestRepository extends JpaRepository<SensorLatest, UUID> {
+
+    /** Seeds an empty sensor_latest from the newest sensor_logs row of every field (one full scan). */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO sensor_latest (field_id, sensor_log_id, device_id, soil_temperature, soil_humidity,
+                   ambient_temperature, ambient_humidity, battery_voltage, battery_percentage,
+                   location_latitude, location_longitude, location_accuracy, errors, timestamp)
+            SELECT DISTINCT ON (s.field_id) s.field_id, s.id, s.device_id, s.soil_temperature, s.soil_humidity,
+                   s.ambient_temperature, s.ambient_humidity, s.battery_voltage, s.battery_percentage,
+                   s.location_latitude, s.location_longitude, s.location_accuracy, s.errors, s.timestamp
+            FROM sensor_logs s
+            ORDER BY s.field_id, s.timestamp DESC
+            """, nativeQuery = true)
+    int seedFromSensorLogs();
+}
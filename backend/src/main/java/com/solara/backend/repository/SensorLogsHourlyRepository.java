@@ -0,0 +1,44 @@
+package com.solara.backend.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.solara.backend.entity.SensorLogsHourly;
+
+public interface SensorLogsHourlyRepository extends JpaRepository<SensorLogsHourly, UUID> {
+
+    /**
+     * Merges hourly rollup rows into buckets of bucketWidth. Same shape and origin as
+     * SensorLogsRepository.aggregateByBucket; averages are sum/count over the merged rows.
+     */
+    @Query(value = """
+            SELECT CAST(EXTRACT(EPOCH FROM date_bin(CAST(:bucketWidth AS interval), r.bucket_start, TIMESTAMP '2000-01-03 00:00:00')) AS bigint) AS bucketEpoch,
+                   SUM(r.sample_count) AS sampleCount,
+                   SUM(r.ambient_temperature_sum) / NULLIF(SUM(r.ambient_temperature_count), 0) AS avgAmbientTemp,
+                   MIN(r.ambient_temperature_min) AS minAmbientTemp,
+                   MAX(r.ambient_temperature_max) AS maxAmbientTemp,
+                   SUM(r.soil_temperature_sum) / NULLIF(SUM(r.soil_temperature_count), 0) AS avgSoilTemp,
+                   MIN(r.soil_temperature_min) AS minSoilTemp,
+                   MAX(r.soil_temperature_max) AS maxSoilTemp,
+                   SUM(r.ambient_humidity_sum) / NULLIF(SUM(r.ambient_humidity_count), 0) AS avgAmbientHumidity,
+                   MIN(r.ambient_humidity_min) AS minAmbientHumidity,
+                   MAX(r.ambient_humidity_max) AS maxAmbientHumidity,
+                   SUM(r.soil_humidity_sum) / NULLIF(SUM(r.soil_humidity_count), 0) AS avgSoilHumidity,
+                   MIN(r.soil_humidity_min) AS minSoilHumidity,
+                   MAX(r.soil_humidity_max) AS maxSoilHumidity
+            FROM sensor_logs_hourly r
+            WHERE r.field_id = :fieldId AND r.bucket_start BETWEEN :start AND :end
+            GROUP BY 1
+            ORDER BY 1
+            """, nativeQuery = true)
+    List<SensorLogsRepository.SensorBucketView> aggregateByBucket(
+            @Param("fieldId") UUID fieldId,
+            @Param("bucketWidth") String bucketWidth,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end);
+}
@@ -3,14 +3,39 @@ package com.solara.backend.repository;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import com.solara.backend.entity.SensorLogs;
 
+import jakarta.persistence.QueryHint;
+
 public interface SensorLogsRepository extends JpaRepository<SensorLogs, UUID> {
+
+    /** One aggregated time bucket of readings, as returned by aggregateByBucket */
+    interface SensorBucketView {
+        /** Bucket start, seconds since epoch (UTC) */
+        Long getBucketEpoch();
+        Long getSampleCount();
+        Double getAvgAmbientTemp();
+        Double getMinAmbientTemp();
+        Double getMaxAmbientTemp();
+        Double getAvgSoilTemp();
+        Double getMinSoilTemp();
+        Double getMaxSoilTemp();
+        Double getAvgAmbientHumidity();
+        Double getMinAmbientHumidity();
+        Double getMaxAmbientHumidity();
+        Double getAvgSoilHumidity();
+        Double getMinSoilHumidity();
+        Double getMaxSoilHumidity();
+    }
+
     // Fixed: the old name "findByTimestampBetweenWithFieldId" is not valid JPA naming.
     // Spring Data JPA can't parse "WithFieldId" after "Between".
     // Use @Query for complex multi-condition queries.
@@ -20,13 +45,53 @@ public interface SensorLogsRepository extends JpaRepository<SensorLogs, UUID> {
             @Param("start") LocalDateTime start,
             @Param("end") LocalDateTime end);
 
-    boolean existsByFieldId(UUID fieldId);
-    
-    List<SensorLogs> findByFieldId(UUID fieldId);
+    /**
+     * Aggregates readings into fixed-width buckets in the database, so callers get one row per bucket.
+     * bucketWidth is a PostgreSQL interval ("5 minutes", "1 hour", "7 days", ...). Buckets are aligned
+     * to a Monday midnight origin, so daily and weekly buckets match date_trunc.
+     */
+    @Query(value = """
+            SELECT CAST(EXTRACT(EPOCH FROM date_bin(CAST(:bucketWidth AS interval), s.timestamp, TIMESTAMP '2000-01-03 00:00:00')) AS bigint) AS bucketEpoch,
+                   COUNT(*) AS sampleCount,
+                   AVG(s.ambient_temperature) AS avgAmbientTemp,
+                   MIN(s.ambient_temperature) AS minAmbientTemp,
+                   MAX(s.ambient_temperature) AS maxAmbientTemp,
+                   AVG(s.soil_temperature) AS avgSoilTemp,
+                   MIN(s.soil_temperature) AS minSoilTemp,
+                   MAX(s.soil_temperature) AS maxSoilTemp,
+                   AVG(s.ambient_humidity) AS avgAmbientHumidity,
+                   MIN(s.ambient_humidity) AS minAmbientHumidity,
+                   MAX(s.ambient_humidity) AS maxAmbientHumidity,
+                   AVG(s.soil_humidity) AS avgSoilHumidity,
+                   MIN(s.soil_humidity) AS minSoilHumidity,
+                   MAX(s.soil_humidity) AS maxSoilHumidity
+            FROM sensor_logs s
+            WHERE s.field_id = :fieldId AND s.timestamp BETWEEN :start AND :end
+            GROUP BY 1
+            ORDER BY 1
+            """, nativeQuery = true)
+    List<SensorBucketView> aggregateByBucket(
+            @Param("fieldId") UUID fieldId,
+            @Param("bucketWidth") String bucketWidth,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end);
+
+    /**
+     * Cursor over a field's readings in [start, end), oldest first. The PostgreSQL driver only
+     * fetches in chunks inside a transaction, so callers must hold a read-only transaction
+     * open while consuming the stream, and close it.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT s FROM SensorLogs s WHERE s.fieldId = :fieldId AND s.timestamp >= :start AND s.timestamp < :end ORDER BY s.timestamp")
+    Stream<SensorLogs> streamByFieldIdAndTimestampRange(
+            @Param("fieldId") UUID fieldId,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end);
 
-    // Used by DeviceMonitorService to check if device sent data in the last 24 hours
-    boolean existsByFieldIdAndTimestampAfter(UUID fieldId, LocalDateTime since);
-    long countByFieldId(UUID fieldId);
+    boolean existsByFieldId(UUID fieldId);
 }
 
 
@@ -0,0 +1,12 @@
+package com.solara.backend.repository;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.solara.backend.entity.WeatherCellLog;
+
+public interface WeatherCellLogRepository extends JpaRepository<WeatherCellLog, UUID> {
+    long countByCellLatAndCellLonAndLogDateBetween(double cellLat, double cellLon, LocalDate start, LocalDate end);
+}
@@ -0,0 +1,14 @@
+package com.solara.backend.repository;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.solara.backend.entity.WeatherClimatologyMonth;
+
+public interface WeatherClimatologyMonthRepository extends JpaRepository<WeatherClimatologyMonth, UUID> {
+
+    /** The field's latest 61 months: five full years plus a possibly incomplete current month */
+    List<WeatherClimatologyMonth> findTop61ByFieldIdOrderByMonthStartDesc(UUID fieldId);
+}
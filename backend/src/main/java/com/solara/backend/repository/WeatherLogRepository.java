@@ -12,5 +12,6 @@ public interface WeatherLogRepository extends JpaRepository<WeatherLog, UUID> {
     void deleteByFieldId(UUID fieldId);
     void deleteByIdAndFieldId(UUID logId, UUID fieldId);
     List<WeatherLog> findAllByFieldId(UUID fieldId);
+    boolean existsByFieldId(UUID fieldId);
     List<WeatherLog> findByFieldIdAndLogDateBetween(UUID fieldId, LocalDate start, LocalDate end);
 }
\ No newline at end of file
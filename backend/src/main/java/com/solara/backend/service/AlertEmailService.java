@@ -0,0 +1,186 @@
+package com.solara.backend.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.solara.backend.entity.AlertEmailDigestEntry;
+import com.solara.backend.entity.User;
+import com.solara.backend.repository.AlertEmailDigestEntryRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Alert emails with per-user digests.
+ *
+ * The first alert of a user is mailed right away and opens a digest window of
+ * {@code mail.digest.window-ms}. Further alerts in that window are collected and
+ * sent as one digest email when it closes, so a user whose fields all cross a
+ * threshold at once gets two emails instead of dozens. A window with no
+ * collected alerts is simply dropped. Collected alerts are stored in
+ * alert_email_digest_entries until their digest was accepted by the SMTP
+ * server, so a restart or a failed send does not lose them.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AlertEmailService {
+
+    public record AlertEmail(String ruleName, String fieldName, String metric, String operator,
+            Double threshold, Integer durationMinutes, Double value) {
+    }
+
+    private static final class Window {
+        long startedAtMillis;
+        boolean collecting;
+
+        Window(long startedAtMillis) {
+            this.startedAtMillis = startedAtMillis;
+        }
+    }
+
+    private final MailTemplates mailTemplates;
+    private final EmailService emailService;
+    private final AlertEmailDigestEntryRepository digestEntryRepository;
+
+    @Value("${mail.digest.window-ms:300000}")
+    private long windowMs;
+
+    private final Map<UUID, Window> windows = new ConcurrentHashMap<>();
+
+    /**
+     * Sends the alert right away or collects it into the user's digest. The
+     * future completes once the email was accepted by the SMTP server or the
+     * alert was stored for the digest, and exceptionally if neither happened.
+     */
+    public CompletableFuture<Void> send(User user, AlertEmail alert) {
+        String language = MailTemplates.languageOf(user.getPreferredLanguage());
+        boolean[] sendNow = new boolean[1];
+        windows.compute(user.getID(), (id, window) -> {
+            long now = System.currentTimeMillis();
+            if (window == null || (!window.collecting && now - window.startedAtMillis >= windowMs)) {
+                sendNow[0] = true;
+                return new Window(now);
+            }
+            window.collecting = true;
+            return window;
+        });
+        if (sendNow[0]) {
+            return emailService.deliver(user.getEmail(), renderSingle(language, alert));
+        }
+
+        try {
+            digestEntryRepository.save(AlertEmailDigestEntry.builder()
+                    .userId(user.getID())
+                    .email(user.getEmail())
+                    .language(language)
+                    .ruleName(alert.ruleName())
+                    .fieldName(alert.fieldName())
+                    .metric(alert.metric())
+                    .operator(alert.operator())
+                    .threshold(alert.threshold())
+                    .durationMinutes(alert.durationMinutes())
+                    .value(alert.value())
+                    .createdAt(LocalDateTime.now())
+                    .build());
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /** Sends the digests of the windows that have closed. */
+    @Scheduled(fixedDelayString = "${mail.digest.check-interval-ms:5000}")
+    public void flushDigests() {
+        Map<UUID, List<AlertEmailDigestEntry>> pending = new LinkedHashMap<>();
+        for (AlertEmailDigestEntry entry : digestEntryRepository.findAllByOrderByCreatedAtAsc()) {
+            pending.computeIfAbsent(entry.getUserId(), id -> new ArrayList<>()).add(entry);
+        }
+
+        long now = System.currentTimeMillis();
+        Set<UUID> userIds = new HashSet<>(windows.keySet());
+        userIds.addAll(pending.keySet());
+        for (UUID userId : userIds) {
+            List<AlertEmailDigestEntry> entries = pending.getOrDefault(userId, List.of());
+            boolean[] due = new boolean[1];
+            windows.compute(userId, (id, window) -> {
+                if (window != null && now - window.startedAtMillis < windowMs) {
+                    return window;
+                }
+                if (entries.isEmpty()) {
+                    return null;
+                }
+                due[0] = true;
+                // Keep digesting while the storm continues; entries left over from before a restart open a new window
+                Window next = window != null ? window : new Window(now);
+                next.startedAtMillis = now;
+                next.collecting = false;
+                return next;
+            });
+            if (due[0]) {
+                sendDigest(entries);
+            }
+        }
+    }
+
+    private void sendDigest(List<AlertEmailDigestEntry> entries) {
+        AlertEmailDigestEntry first = entries.get(0);
+        MailTemplates.Mail mail;
+        if (entries.size() == 1) {
+            mail = renderSingle(first.getLanguage(), toAlert(first));
+        } else {
+            StringBuilder rows = new StringBuilder();
+            for (AlertEmailDigestEntry entry : entries) {
+                rows.append(mailTemplates.renderFragment("alert_digest_row", first.getLanguage(), values(toAlert(entry))));
+            }
+            mail = mailTemplates.render("alert_digest", first.getLanguage(),
+                    Map.of("count", entries.size(), "rows", rows.toString()));
+        }
+
+        emailService.deliver(first.getEmail(), mail).whenComplete((sent, error) -> {
+            if (error != null) {
+                log.warn("[Mail] Digest of {} alerts to {} failed, retrying with the next window: {}",
+                        entries.size(), first.getEmail(), error.getMessage());
+                return;
+            }
+            try {
+                digestEntryRepository.deleteAllInBatch(entries);
+                log.info("[Mail] Sent digest of {} alerts to {}", entries.size(), first.getEmail());
+            } catch (RuntimeException e) {
+                log.error("[Mail] Sent digest to {} but could not remove its entries", first.getEmail(), e);
+            }
+        });
+    }
+
+    private static AlertEmail toAlert(AlertEmailDigestEntry entry) {
+        return new AlertEmail(entry.getRuleName(), entry.getFieldName(), entry.getMetric(), entry.getOperator(),
+                entry.getThreshold(), entry.getDurationMinutes(), entry.getValue());
+    }
+
+    private MailTemplates.Mail renderSingle(String language, AlertEmail alert) {
+        return mailTemplates.render("alert_triggered", language, values(alert));
+    }
+
+    private static Map<String, Object> values(AlertEmail alert) {
+        return Map.of(
+                "ruleName", alert.ruleName(),
+                "fieldName", alert.fieldName(),
+                "metric", alert.metric(),
+                "operator", alert.operator(),
+                "threshold", String.valueOf(alert.threshold()),
+                "durationMinutes", String.valueOf(alert.durationMinutes()),
+                "value", String.valueOf(alert.value()));
+    }
+}
@@ -1,22 +1,27 @@
 package com.solara.backend.service;
 
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
-import java.util.List;
-import java.util.Optional;
-
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.solara.backend.entity.AlertEvent;
-import com.solara.backend.entity.AlertMetric;
-import com.solara.backend.entity.AlertOperator;
+import com.solara.backend.entity.AlertOutboxType;
 import com.solara.backend.entity.AlertRule;
 import com.solara.backend.entity.SensorLogs;
 import com.solara.backend.repository.AlertEventRepository;
-import com.solara.backend.repository.AlertRuleRepository;
-import com.solara.backend.repository.FieldRepository;
-import com.solara.backend.repository.UserRepository;
+import com.solara.backend.utils.TransactionHooks;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -26,109 +31,94 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class AlertEvaluationService {
 
-    private final AlertRuleRepository alertRuleRepository;
+    private final AlertRuleIndex alertRuleIndex;
     private final AlertEventRepository alertEventRepository;
-    private final FieldRepository fieldRepository;
-    private final UserRepository userRepository;
-    private final EmailService emailService;
-    private final PushNotificationService pushNotificationService;
-    private final org.springframework.messaging.simp.SimpMessagingTemplate messagingTemplate;
+    private final AlertNotificationDispatcher alertNotificationDispatcher;
+    private final AlertStateService alertStateService;
+    private final TransactionTemplate transactionTemplate;
+
+    /** Notification deadlines of open events whose rule has a duration */
+    private final DelayQueue<Deadline> deadlines = new DelayQueue<>();
+
+    /**
+     * Sliding windows of the rules with a windowed condition, fed by evaluate() on
+     * the telemetry writer thread. They start empty after a restart or rule update.
+     */
+    private final Map<UUID, AlertSlidingWindow> windows = new ConcurrentHashMap<>();
+
+    private record Deadline(UUID ruleId, AlertStateService.OpenAlert alert, long dueAtMillis) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtMillis, ((Deadline) other).dueAtMillis);
+        }
+    }
+
+    /** Re-arm the deadlines of the pending events restored by AlertStateService. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rearmPendingAlerts() {
+        int armed = 0;
+        for (AlertStateService.OpenAlert open : alertStateService.openAlerts()) {
+            AlertRule rule = alertRuleIndex.rule(open.event().getRuleId());
+            if (rule != null && open.state() == AlertStateService.State.PENDING) {
+                arm(rule, open);
+                armed++;
+            }
+        }
+        log.info("[Alerts] Re-armed {} pending duration alerts.", armed);
+    }
 
-    @Transactional
+    /**
+     * Checks a persisted reading against the field's rules from AlertRuleIndex and
+     * the open events in AlertStateService. Only the transitions (open, resolve)
+     * touch the database, each in its own short transaction that also writes the
+     * notification to the outbox (see AlertNotificationDispatcher); a reading that merely
+     * continues a breach just updates the in-memory last value. Rules with a
+     * duration are notified by {@link #fireDueAlerts()} when the duration elapses.
+     *
+     * Windowed conditions compare the rule's rolling aggregate instead of the
+     * reading, and a rule with a clear threshold stays breached until the value
+     * passes it, so a single noisy sample neither opens nor resolves an event.
+     */
     public void evaluate(SensorLogs logEntry) {
-        List<AlertRule> activeRules = alertRuleRepository.findByFieldIdAndActiveTrue(logEntry.getFieldId());
-        
-        for (AlertRule rule : activeRules) {
-            try {
-                Double value = extractMetric(logEntry, rule.getMetric());
-                if (value == null) {
-                    continue; // Metric not present in this log
-                }
+        AlertRuleIndex.FieldRules rules = alertRuleIndex.rulesFor(logEntry.getFieldId());
+        if (rules == null) {
+            return;
+        }
+        double[] values = AlertRuleIndex.metricValues(logEntry);
+        long timeMillis = logEntry.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli();
 
-                boolean isBreaching = evaluateCondition(value, rule.getOperator(), rule.getThreshold());
-                Optional<AlertEvent> openEventOpt = alertEventRepository.findByRuleIdAndResolvedAtIsNull(rule.getId());
-
-                if (isBreaching) {
-                    if (openEventOpt.isEmpty()) {
-                        // First time breach - start tracking
-                        AlertEvent event = AlertEvent.builder()
-                                .ruleId(rule.getId())
-                                .fieldId(logEntry.getFieldId())
-                                .ruleName(rule.getName())
-                                .metric(rule.getMetric().name())
-                                .threshold(rule.getThreshold())
-                                .lastValue(value)
-                                .triggeredAt(LocalDateTime.now())
-                                .read(rule.getDurationMinutes() > 0) // Unread in-app only if duration is 0
-                                .build();
-                        
-                        alertEventRepository.save(event);
-                        String fieldName = fieldRepository.findById(logEntry.getFieldId())
-                                .map(field -> field.getName())
-                                .orElse("Field");
-                        com.solara.backend.dto.response.AlertEventDTO createdDto =
-                                new com.solara.backend.dto.response.AlertEventDTO(event, fieldName);
-                        messagingTemplate.convertAndSend("/topic/user." + rule.getUserId().toString() + ".alerts", createdDto);
-                        
-                        if (rule.getDurationMinutes() <= 0) {
-                            pushNotificationService.sendAlertTriggeredPush(rule.getUserId(), fieldName, event);
-                            if (rule.isNotifyEmail()) {
-                                sendAlertEmail(rule, event, value);
-                            }
-                            event.setNotifiedAt(LocalDateTime.now());
-                            alertEventRepository.save(event);
-                            
-                            // Broadcast the new alert via WebSocket
-                            com.solara.backend.dto.response.AlertEventDTO dto = new com.solara.backend.dto.response.AlertEventDTO(event, fieldName);
-                            messagingTemplate.convertAndSend("/topic/user." + rule.getUserId().toString() + ".alerts", dto);
-
-                            log.info("[Alerts] Rule breached instantly, event started: rule={}, field={}", rule.getId(), rule.getFieldId());
-                        } else {
-                            log.info("[Alerts] Rule breached, tracking started (duration {} min): rule={}, field={}", rule.getDurationMinutes(), rule.getId(), rule.getFieldId());
-                        }
-                    } else {
-                        // Ongoing breach
-                        AlertEvent event = openEventOpt.get();
-                        event.setLastValue(value);
-                        
-                        long minsSinceBreach = ChronoUnit.MINUTES.between(event.getTriggeredAt(), LocalDateTime.now());
-                        
-                        if (minsSinceBreach >= rule.getDurationMinutes() && event.getNotifiedAt() == null) {
-                            // Duration elapsed -> fire notifications
-                            String fieldName = fieldRepository.findById(logEntry.getFieldId())
-                                    .map(field -> field.getName())
-                                    .orElse("Field");
-                            pushNotificationService.sendAlertTriggeredPush(rule.getUserId(), fieldName, event);
-                            
-                            if (rule.isNotifyEmail()) {
-                                sendAlertEmail(rule, event, value);
-                            }
-                            event.setNotifiedAt(LocalDateTime.now());
-                            event.setRead(false); // Make it unread in-app now
-                            
-                            // Broadcast the new alert via WebSocket
-                            com.solara.backend.dto.response.AlertEventDTO dto = new com.solara.backend.dto.response.AlertEventDTO(event, fieldName);
-                            messagingTemplate.convertAndSend("/topic/user." + rule.getUserId().toString() + ".alerts", dto);
-
-                            log.info("[Alerts] Rule breached duration elapsed, notification fired: rule={}, field={}", rule.getId(), rule.getFieldId());
-                        }
-                        
-                        alertEventRepository.save(event);
+        for (int i = 0; i < rules.size(); i++) {
+            double reading = values[rules.metric(i)];
+            if (Double.isNaN(reading)) {
+                continue; // Metric not present in this log
+            }
+            AlertRule rule = rules.rule(i);
+            double value = rules.windowMillis(i) > 0
+                    ? window(rule.getId(), rules.windowMillis(i)).add(timeMillis, reading).value(rules.condition(i))
+                    : reading;
+            if (Double.isNaN(value)) {
+                continue; // Window does not have enough samples yet (rate of change)
+            }
+            AlertStateService.OpenAlert open = alertStateService.get(rule.getId());
+
+            try {
+                if (open == null) {
+                    if (rules.breaches(i, value)) {
+                        transactionTemplate.executeWithoutResult(status -> openEvent(rule, logEntry.getFieldId(), value));
                     }
+                } else if (!rules.clears(i, value)) {
+                    // Ongoing breach (or inside the hysteresis band); the notification is sent by the deadline, not by readings
+                    alertStateService.recordValue(open, value);
                 } else {
-                    // Condition is fine
-                    if (openEventOpt.isPresent()) {
-                        AlertEvent event = openEventOpt.get();
-                        event.setResolvedAt(LocalDateTime.now());
-                        event.setLastValue(value);
-                        alertEventRepository.save(event);
-                        String fieldName = fieldRepository.findById(logEntry.getFieldId())
-                                .map(field -> field.getName())
-                                .orElse("Field");
-                        com.solara.backend.dto.response.AlertEventDTO resolvedDto =
-                                new com.solara.backend.dto.response.AlertEventDTO(event, fieldName);
-                        messagingTemplate.convertAndSend("/topic/user." + rule.getUserId().toString() + ".alerts", resolvedDto);
-                        log.info("[Alerts] Rule resolved: rule={}, field={}", rule.getId(), rule.getFieldId());
+                    synchronized (open) {
+                        if (alertStateService.get(rule.getId()) == open) {
+                            transactionTemplate.executeWithoutResult(status -> resolveEvent(rule, open, value));
+                        }
                     }
                 }
             } catch (Exception e) {
@@ -137,67 +127,123 @@ public class AlertEvaluationService {
         }
     }
 
-    private Double extractMetric(SensorLogs log, AlertMetric metric) {
-        return switch (metric) {
-            case SOIL_HUMIDITY -> log.getSoilHumidity();
-            case SOIL_TEMP -> log.getSoilTemp();
-            case AMBIENT_TEMP -> log.getAmbientTemp();
-            case AMBIENT_HUMIDITY -> log.getAmbientHumidity();
-            case BATTERY_PERCENTAGE -> log.getBatteryPercentage() != null ? log.getBatteryPercentage().doubleValue() : null;
-        };
-    }
-
-    private boolean evaluateCondition(double value, AlertOperator operator, double threshold) {
-        if (operator == AlertOperator.BELOW) {
-            return value < threshold;
-        } else if (operator == AlertOperator.ABOVE) {
-            return value > threshold;
+    private void openEvent(AlertRule rule, UUID fieldId, double value) {
+        // First time breach - start tracking
+        boolean instant = rule.getDurationMinutes() <= 0;
+        LocalDateTime now = LocalDateTime.now();
+        AlertEvent event = AlertEvent.builder()
+                .ruleId(rule.getId())
+                .fieldId(fieldId)
+                .ruleName(rule.getName())
+                .metric(rule.getMetric().name())
+                .threshold(rule.getThreshold())
+                .lastValue(value)
+                .triggeredAt(now)
+                .notifiedAt(instant ? now : null)
+                .read(!instant) // Unread in-app only if duration is 0
+                .build();
+
+        alertEventRepository.save(event);
+        alertNotificationDispatcher.enqueue(event, rule, instant ? AlertOutboxType.TRIGGERED : AlertOutboxType.OPENED);
+
+        if (instant) {
+            log.info("[Alerts] Rule breached instantly, event started: rule={}, field={}", rule.getId(), rule.getFieldId());
+        } else {
+            log.info("[Alerts] Rule breached, tracking started (duration {} min): rule={}, field={}", rule.getDurationMinutes(), rule.getId(), rule.getFieldId());
         }
-        return false;
+        alertStateService.opened(event, open -> {
+            if (open.state() == AlertStateService.State.PENDING) {
+                arm(rule, open);
+            }
+        });
     }
 
-    private void sendAlertEmail(AlertRule rule, AlertEvent event, double latestValue) {
-        fieldRepository.findById(rule.getFieldId()).ifPresent(field -> {
-            userRepository.findById(rule.getUserId()).ifPresent(user -> {
-                String lang = user.getPreferredLanguage() != null ? user.getPreferredLanguage().toLowerCase() : "en";
-                String subject;
-                String htmlBody;
-
-                String metricName = rule.getMetric().name();
-                String operatorName = rule.getOperator().name();
-
-                if (lang.startsWith("tr")) {
-                    subject = "Solara - Akıllı Uyarı: " + rule.getName();
-                    htmlBody = "<div style='font-family: Arial, sans-serif; max-width: 600px; margin: 0 auto; padding: 20px; border: 1px solid #e0e0e0; border-radius: 10px;'>"
-                            + "<h2 style='color: #DD6B20;'> Akıllı Uyarı Tetiklendi</h2>"
-                            + "<p>Merhaba,</p>"
-                            + "<p><strong>" + field.getName() + "</strong> tarlası için tanımladığınız <strong>" + rule.getName() + "</strong> kuralı devreye girdi.</p>"
-                            + "<div style='background-color: #FFF5F5; padding: 15px; border-radius: 8px; margin: 20px 0;'>"
-                            + "<p style='margin:0;'><strong>Metrik:</strong> " + metricName + "</p>"
-                            + "<p style='margin:0;'><strong>Durum:</strong> " + operatorName + " " + rule.getThreshold() + " (Devam Süresi: " + rule.getDurationMinutes() + " dk)</p>"
-                            + "<p style='margin:0;'><strong>Güncel Değer:</strong> <span style='color: #E53E3E; font-weight: bold;'>" + latestValue + "</span></p>"
-                            + "</div>"
-                            + "<p>Lütfen tarlanızı kontrol ediniz.</p>"
-                            + "<p>Teşekkürler,<br/>Solara Ekibi</p>"
-                            + "</div>";
-                } else {
-                    subject = "Solara - Smart Alert: " + rule.getName();
-                    htmlBody = "<div style='font-family: Arial, sans-serif; max-width: 600px; margin: 0 auto; padding: 20px; border: 1px solid #e0e0e0; border-radius: 10px;'>"
-                            + "<h2 style='color: #DD6B20;'> Smart Alert Triggered</h2>"
-                            + "<p>Hello,</p>"
-                            + "<p>The rule <strong>" + rule.getName() + "</strong> for field <strong>" + field.getName() + "</strong> has been triggered.</p>"
-                            + "<div style='background-color: #FFF5F5; padding: 15px; border-radius: 8px; margin: 20px 0;'>"
-                            + "<p style='margin:0;'><strong>Metric:</strong> " + metricName + "</p>"
-                            + "<p style='margin:0;'><strong>Condition:</strong> " + operatorName + " " + rule.getThreshold() + " (Duration: " + rule.getDurationMinutes() + " min)</p>"
-                            + "<p style='margin:0;'><strong>Current Value:</strong> <span style='color: #E53E3E; font-weight: bold;'>" + latestValue + "</span></p>"
-                            + "</div>"
-                            + "<p>Please check your field.</p>"
-                            + "<p>Thanks,<br/>The Solara Team</p>"
-                            + "</div>";
+    /**
+     * Pops the due deadlines and sends their notifications, so a duration rule fires
+     * when its duration elapses even if the device reports rarely or has stopped.
+     * Stale deadlines (resolved, already notified, rule removed) are discarded.
+     */
+    @Scheduled(fixedDelayString = "${alerts.timer.check-interval-ms:1000}")
+    public void fireDueAlerts() {
+        Deadline deadline;
+        while ((deadline = deadlines.poll()) != null) {
+            AlertStateService.OpenAlert open = deadline.alert();
+            AlertRule rule = alertRuleIndex.rule(deadline.ruleId());
+            if (rule == null) {
+                continue;
+            }
+            synchronized (open) {
+                if (alertStateService.get(rule.getId()) != open || open.state() != AlertStateService.State.PENDING) {
+                    continue;
+                }
+                if (dueAtMillis(rule, open) > System.currentTimeMillis()) {
+                    arm(rule, open); // duration was extended since this deadline was armed
+                    continue;
                 }
+                try {
+                    transactionTemplate.executeWithoutResult(status -> notifyEvent(rule, open, open.event().getLastValue()));
+                } catch (Exception e) {
+                    log.error("[Alerts] Failed to send duration alert for rule {}", rule.getId(), e);
+                }
+            }
+        }
+    }
 
-                emailService.sendHtmlEmail(user.getEmail(), subject, htmlBody);
-            });
+    /**
+     * Called by AlertRuleService after a rule update, so a changed duration takes
+     * effect immediately. The rule's window restarts empty. Applied once the update commits.
+     */
+    public void onRuleChanged(AlertRule rule) {
+        TransactionHooks.afterCommit(() -> {
+            windows.remove(rule.getId());
+            AlertStateService.OpenAlert open = alertStateService.get(rule.getId());
+            if (open != null && rule.isActive() && open.state() == AlertStateService.State.PENDING) {
+                arm(rule, open);
+            }
         });
     }
+
+    public void onRuleDeleted(UUID ruleId) {
+        TransactionHooks.afterCommit(() -> windows.remove(ruleId));
+    }
+
+    private AlertSlidingWindow window(UUID ruleId, long widthMillis) {
+        AlertSlidingWindow window = windows.get(ruleId);
+        if (window == null || window.widthMillis() != widthMillis) {
+            window = new AlertSlidingWindow(widthMillis);
+            windows.put(ruleId, window);
+        }
+        return window;
+    }
+
+    private void arm(AlertRule rule, AlertStateService.OpenAlert open) {
+        deadlines.offer(new Deadline(rule.getId(), open, dueAtMillis(rule, open)));
+    }
+
+    private static long dueAtMillis(AlertRule rule, AlertStateService.OpenAlert open) {
+        // triggeredAt is stored in server-local time (LocalDateTime.now())
+        long triggeredAt = open.event().getTriggeredAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return triggeredAt + TimeUnit.MINUTES.toMillis(Math.max(rule.getDurationMinutes(), 0));
+    }
+
+    private void notifyEvent(AlertRule rule, AlertStateService.OpenAlert open, Double value) {
+        // Duration elapsed -> fire notifications
+        AlertEvent event = open.event();
+        LocalDateTime now = LocalDateTime.now();
+        alertEventRepository.markNotified(event.getId(), now, value); // Also makes it unread in-app
+        alertNotificationDispatcher.enqueue(event, rule, AlertOutboxType.TRIGGERED);
+
+        alertStateService.notified(open, now);
+        log.info("[Alerts] Rule breached duration elapsed, notification queued: rule={}, field={}", rule.getId(), rule.getFieldId());
+    }
+
+    private void resolveEvent(AlertRule rule, AlertStateService.OpenAlert open, double value) {
+        // Condition is fine again
+        AlertEvent event = open.event();
+        LocalDateTime now = LocalDateTime.now();
+        alertEventRepository.markResolved(event.getId(), now, value);
+        alertNotificationDispatcher.enqueue(event, rule, AlertOutboxType.RESOLVED);
+        alertStateService.resolved(open, now, value);
+        log.info("[Alerts] Rule resolved: rule={}, field={}", rule.getId(), rule.getFieldId());
+    }
 }
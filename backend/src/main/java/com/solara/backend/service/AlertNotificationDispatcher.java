@@ -0,0 +1,314 @@
+package com.solara.backend.service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.solara.backend.dto.response.AlertEventDTO;
+import com.solara.backend.entity.AlertEvent;
+import com.solara.backend.entity.AlertOutbox;
+import com.solara.backend.entity.AlertOutboxType;
+import com.solara.backend.entity.AlertRule;
+import com.solara.backend.entity.Field;
+import com.solara.backend.entity.User;
+import com.solara.backend.repository.AlertEventRepository;
+import com.solara.backend.repository.AlertOutboxRepository;
+import com.solara.backend.repository.AlertRuleRepository;
+import com.solara.backend.repository.FieldRepository;
+import com.solara.backend.repository.UserRepository;
+import com.solara.backend.utils.TransactionHooks;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Delivers alert notifications from the alert_outbox table.
+ *
+ * AlertEvaluationService only records the state change and calls
+ * {@link #enqueue} in the same transaction, so nothing is sent for an event
+ * that was rolled back and the evaluating thread never waits for Expo or SMTP.
+ * A dedicated thread drains due rows in batches (woken right after a commit,
+ * otherwise every {@code alerts.outbox.poll-interval-ms}) and fans each one out
+ * to push, email and WebSocket outside of any transaction. A failed row is retried
+ * with exponential backoff, skipping the channels that already succeeded.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AlertNotificationDispatcher {
+
+    // One row per (event, type); a repeated transition is a no-op
+    private static final String INSERT_SQL = """
+            INSERT INTO alert_outbox (id, event_id, user_id, type, created_at, attempts, next_attempt_at,
+                                      push_sent, email_sent, ws_sent)
+            VALUES (gen_random_uuid(), ?, ?, ?, ?, 0, ?, false, false, false)
+            ON CONFLICT (event_id, type) DO NOTHING
+            """;
+
+    private static final long MAX_BACKOFF_SECONDS = 600;
+    private static final long PUSH_TIMEOUT_SECONDS = 30;
+    private static final long EMAIL_TIMEOUT_SECONDS = 60;
+
+    private final AlertOutboxRepository alertOutboxRepository;
+    private final AlertEventRepository alertEventRepository;
+    private final AlertRuleRepository alertRuleRepository;
+    private final FieldRepository fieldRepository;
+    private final UserRepository userRepository;
+    private final PushNotificationService pushNotificationService;
+    private final AlertEmailService alertEmailService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${alerts.outbox.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${alerts.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${alerts.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${alerts.outbox.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${alerts.outbox.retention-days:7}")
+    private int retentionDays;
+
+    private final Semaphore wakeUp = new Semaphore(0);
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    @PostConstruct
+    void start() {
+        running = true;
+        dispatcher = Thread.ofPlatform()
+                .name("alert-dispatcher")
+                .start(this::dispatchLoop);
+        log.info("[AlertOutbox] Dispatcher started (batchSize={}, maxAttempts={})", batchSize, maxAttempts);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        wakeUp.release();
+        dispatcher.join(10_000);
+    }
+
+    /** Writes an outbox row in the caller's transaction; the dispatcher is woken once it commits. */
+    public void enqueue(AlertEvent event, AlertRule rule, AlertOutboxType type) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update(INSERT_SQL, event.getId(), rule.getUserId(), type.name(), now, now);
+        TransactionHooks.afterCommit(wakeUp::release);
+    }
+
+    @Scheduled(cron = "0 30 * * * *")
+    public void purgeDispatched() {
+        int deleted = alertOutboxRepository.deleteDispatchedBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            log.info("[AlertOutbox] Purged {} dispatched rows", deleted);
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                wakeUp.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                wakeUp.drainPermits();
+                // Keep going while full batches come back
+                int claimed;
+                do {
+                    claimed = dispatchBatch();
+                } while (running && claimed == batchSize);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("[AlertOutbox] Dispatch loop failed", e);
+            }
+        }
+    }
+
+    /** Due rows of one batch with the events, rules and fields they refer to */
+    private record Claim(List<AlertOutbox> batch, Map<UUID, AlertEvent> events, Map<UUID, AlertRule> rules, Map<UUID, Field> fields) {}
+
+    /**
+     * Claims, delivers and records one batch; returns the number of rows claimed.
+     * The row locks are only held while claiming and while writing the results back,
+     * never during delivery: the claim pushes next_attempt_at out by the lease, so
+     * other instances leave the rows alone until the results are written.
+     */
+    int dispatchBatch() {
+        Claim claim = transactionTemplate.execute(status -> claim());
+        if (claim == null || claim.batch().isEmpty()) {
+            return 0;
+        }
+
+        // Queue every push and email of the batch first so they share Expo chunks and SMTP
+        // connections, then wait per row
+        Map<UUID, CompletableFuture<Void>> pushes = new HashMap<>();
+        Map<UUID, CompletableFuture<Void>> emails = new HashMap<>();
+        for (AlertOutbox row : claim.batch()) {
+            AlertEvent event = claim.events().get(row.getEventId());
+            AlertRule rule = event != null ? claim.rules().get(event.getRuleId()) : null;
+            if (rule == null || row.getType() != AlertOutboxType.TRIGGERED) {
+                continue;
+            }
+            if (!row.isPushSent()) {
+                pushes.put(row.getId(), queuePush(row, event, fieldName(claim.fields(), event)));
+            }
+            if (!row.isEmailSent()) {
+                if (rule.isNotifyEmail()) {
+                    emails.put(row.getId(), queueEmail(rule, event, fieldName(claim.fields(), event)));
+                } else {
+                    row.setEmailSent(true);
+                }
+            }
+        }
+
+        for (AlertOutbox row : claim.batch()) {
+            AlertEvent event = claim.events().get(row.getEventId());
+            AlertRule rule = event != null ? claim.rules().get(event.getRuleId()) : null;
+            if (rule == null) {
+                // Event or rule deleted since the row was written; nothing left to notify about
+                row.setDispatchedAt(LocalDateTime.now());
+                continue;
+            }
+            deliver(row, event, fieldName(claim.fields(), event), pushes.get(row.getId()), emails.get(row.getId()));
+        }
+
+        transactionTemplate.executeWithoutResult(status -> alertOutboxRepository.saveAll(claim.batch()));
+        return claim.batch().size();
+    }
+
+    private Claim claim() {
+        LocalDateTime now = LocalDateTime.now();
+        List<AlertOutbox> batch = alertOutboxRepository.claimDue(now, maxAttempts, batchSize);
+        if (batch.isEmpty()) {
+            return new Claim(batch, Map.of(), Map.of(), Map.of());
+        }
+        batch.forEach(row -> row.setNextAttemptAt(now.plusSeconds(leaseSeconds)));
+
+        Set<UUID> eventIds = new HashSet<>();
+        batch.forEach(row -> eventIds.add(row.getEventId()));
+        Map<UUID, AlertEvent> events = new HashMap<>();
+        alertEventRepository.findAllById(eventIds).forEach(event -> events.put(event.getId(), event));
+        Set<UUID> ruleIds = new HashSet<>();
+        Set<UUID> fieldIds = new HashSet<>();
+        events.values().forEach(event -> {
+            ruleIds.add(event.getRuleId());
+            fieldIds.add(event.getFieldId());
+        });
+        Map<UUID, AlertRule> rules = new HashMap<>();
+        alertRuleRepository.findAllById(ruleIds).forEach(rule -> rules.put(rule.getId(), rule));
+        Map<UUID, Field> fields = new HashMap<>();
+        fieldRepository.findAllById(fieldIds).forEach(field -> fields.put(field.getId(), field));
+        return new Claim(batch, events, rules, fields);
+    }
+
+    private CompletableFuture<Void> queuePush(AlertOutbox row, AlertEvent event, String fieldName) {
+        try {
+            return pushNotificationService.sendAlertTriggeredPush(row.getUserId(), fieldName, event);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private CompletableFuture<Void> queueEmail(AlertRule rule, AlertEvent event, String fieldName) {
+        try {
+            User user = userRepository.findById(rule.getUserId()).orElse(null);
+            if (user == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return alertEmailService.send(user, new AlertEmailService.AlertEmail(rule.getName(), fieldName, rule.getMetric().name(),
+                    rule.getOperator().name(), rule.getThreshold(), rule.getDurationMinutes(), event.getLastValue()));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static String fieldName(Map<UUID, Field> fields, AlertEvent event) {
+        Field field = fields.get(event.getFieldId());
+        return field != null ? field.getName() : "Field";
+    }
+
+    /**
+     * Waits for the row's push and email and sends the WebSocket message. Each
+     * channel is recorded as soon as it succeeded, so a retry only repeats the
+     * channels that failed.
+     */
+    private void deliver(AlertOutbox row, AlertEvent event, String fieldName,
+                         CompletableFuture<Void> push, CompletableFuture<Void> email) {
+        Exception failure = null;
+        if (push != null) {
+            try {
+                await(push, PUSH_TIMEOUT_SECONDS);
+                row.setPushSent(true);
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+        if (email != null) {
+            try {
+                await(email, EMAIL_TIMEOUT_SECONDS);
+                row.setEmailSent(true);
+            } catch (Exception e) {
+                failure = failure != null ? failure : e;
+            }
+        }
+        if (!row.isWsSent()) {
+            try {
+                messagingTemplate.convertAndSend("/topic/user." + row.getUserId() + ".alerts", new AlertEventDTO(event, fieldName));
+                row.setWsSent(true);
+            } catch (Exception e) {
+                failure = failure != null ? failure : e;
+            }
+        }
+
+        if (failure == null) {
+            row.setDispatchedAt(LocalDateTime.now());
+            row.setLastError(null);
+            return;
+        }
+        int attempts = row.getAttempts() + 1;
+        long backoffSeconds = Math.min(MAX_BACKOFF_SECONDS, 5L << Math.min(attempts - 1, 16));
+        row.setAttempts(attempts);
+        row.setNextAttemptAt(LocalDateTime.now().plusSeconds(backoffSeconds));
+        String message = String.valueOf(failure.getMessage());
+        row.setLastError(message.length() > 500 ? message.substring(0, 500) : message);
+        if (attempts >= maxAttempts) {
+            log.error("[AlertOutbox] Giving up on {} notification of event {} after {} attempts", row.getType(), row.getEventId(), attempts, failure);
+        } else {
+            log.warn("[AlertOutbox] {} notification of event {} failed (attempt {}), retrying in {}s: {}",
+                    row.getType(), row.getEventId(), attempts, backoffSeconds, failure.getMessage());
+        }
+    }
+
+    private static void await(CompletableFuture<Void> future, long timeoutSeconds) throws Exception {
+        try {
+            future.get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
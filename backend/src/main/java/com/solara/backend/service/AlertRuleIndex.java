@@ -0,0 +1,208 @@
+package com.solara.backend.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Service;
+
+import com.solara.backend.entity.AlertCondition;
+import com.solara.backend.entity.AlertMetric;
+import com.solara.backend.entity.AlertOperator;
+import com.solara.backend.entity.AlertRule;
+import com.solara.backend.entity.SensorLogs;
+import com.solara.backend.repository.AlertRuleRepository;
+import com.solara.backend.utils.TransactionHooks;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory index of the active alert rules, grouped by field.
+ *
+ * Each field's rules are compiled into parallel primitive arrays (metric
+ * ordinal, operator ordinal, thresholds, window, duration) so AlertEvaluationService
+ * can check a reading against them without allocating or querying. A field's
+ * entry is immutable and replaced as a whole when AlertRuleService creates,
+ * updates or deletes one of its rules; changes made inside a transaction are
+ * applied after it commits.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AlertRuleIndex {
+
+    private static final AlertMetric[] METRICS = AlertMetric.values();
+    private static final int BELOW = AlertOperator.BELOW.ordinal();
+
+    /** The active rules of one field, column-wise. */
+    public static final class FieldRules {
+        private final AlertRule[] rules;
+        private final int[] metric;
+        private final int[] operator;
+        private final double[] threshold;
+        private final double[] clearThreshold;
+        private final AlertCondition[] condition;
+        private final long[] windowMillis;
+        private final int[] durationMinutes;
+
+        private FieldRules(List<AlertRule> source) {
+            int n = source.size();
+            rules = source.toArray(new AlertRule[0]);
+            metric = new int[n];
+            operator = new int[n];
+            threshold = new double[n];
+            clearThreshold = new double[n];
+            condition = new AlertCondition[n];
+            windowMillis = new long[n];
+            durationMinutes = new int[n];
+            for (int i = 0; i < n; i++) {
+                AlertRule rule = rules[i];
+                metric[i] = rule.getMetric().ordinal();
+                operator[i] = rule.getOperator().ordinal();
+                threshold[i] = rule.getThreshold();
+                clearThreshold[i] = rule.getClearThreshold() != null ? rule.getClearThreshold() : rule.getThreshold();
+                condition[i] = rule.getCondition() != null ? rule.getCondition() : AlertCondition.VALUE;
+                windowMillis[i] = condition[i] == AlertCondition.VALUE || rule.getWindowMinutes() == null
+                        ? 0 : TimeUnit.MINUTES.toMillis(rule.getWindowMinutes());
+                durationMinutes[i] = rule.getDurationMinutes() != null ? rule.getDurationMinutes() : 0;
+            }
+        }
+
+        public int size() {
+            return rules.length;
+        }
+
+        public AlertRule rule(int i) {
+            return rules[i];
+        }
+
+        public int metric(int i) {
+            return metric[i];
+        }
+
+        public int durationMinutes(int i) {
+            return durationMinutes[i];
+        }
+
+        public AlertCondition condition(int i) {
+            return condition[i];
+        }
+
+        /** Window length of a windowed condition, 0 for VALUE */
+        public long windowMillis(int i) {
+            return windowMillis[i];
+        }
+
+        public boolean breaches(int i, double value) {
+            return operator[i] == BELOW ? value < threshold[i] : value > threshold[i];
+        }
+
+        /** Whether an open breach is over; with a clear threshold the value must pass it, not just the threshold. */
+        public boolean clears(int i, double value) {
+            return operator[i] == BELOW ? value >= clearThreshold[i] : value <= clearThreshold[i];
+        }
+    }
+
+    private final AlertRuleRepository alertRuleRepository;
+
+    private final Map<UUID, FieldRules> byField = new ConcurrentHashMap<>();
+    private final Map<UUID, UUID> fieldByRule = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void load() {
+        Map<UUID, List<AlertRule>> grouped = new HashMap<>();
+        for (AlertRule rule : alertRuleRepository.findByActiveTrue()) {
+            grouped.computeIfAbsent(rule.getFieldId(), id -> new ArrayList<>()).add(rule);
+            fieldByRule.put(rule.getId(), rule.getFieldId());
+        }
+        grouped.forEach((fieldId, rules) -> byField.put(fieldId, new FieldRules(rules)));
+        log.info("[AlertRuleIndex] Loaded {} active rules for {} fields.", fieldByRule.size(), byField.size());
+    }
+
+    /** Active rules of a field, or null if it has none. */
+    public FieldRules rulesFor(UUID fieldId) {
+        return byField.get(fieldId);
+    }
+
+    /** An active rule by id, or null if it is inactive or unknown. */
+    public AlertRule rule(UUID ruleId) {
+        UUID fieldId = fieldByRule.get(ruleId);
+        FieldRules rules = fieldId != null ? byField.get(fieldId) : null;
+        if (rules == null) {
+            return null;
+        }
+        for (AlertRule rule : rules.rules) {
+            if (rule.getId().equals(ruleId)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The reading's metric values indexed by AlertMetric ordinal, NaN where the metric is missing.
+     */
+    public static double[] metricValues(SensorLogs reading) {
+        double[] values = new double[METRICS.length];
+        for (AlertMetric metric : METRICS) {
+            Double value = switch (metric) {
+                case SOIL_HUMIDITY -> reading.getSoilHumidity();
+                case SOIL_TEMP -> reading.getSoilTemp();
+                case AMBIENT_TEMP -> reading.getAmbientTemp();
+                case AMBIENT_HUMIDITY -> reading.getAmbientHumidity();
+                case BATTERY_PERCENTAGE -> reading.getBatteryPercentage() != null ? reading.getBatteryPercentage().doubleValue() : null;
+            };
+            values[metric.ordinal()] = value != null ? value : Double.NaN;
+        }
+        return values;
+    }
+
+    /** Adds or replaces a rule; an inactive rule is removed from the index. */
+    public void put(AlertRule rule) {
+        TransactionHooks.afterCommit(() -> {
+            synchronized (this) {
+                removeNow(rule.getId());
+                if (rule.isActive()) {
+                    UUID fieldId = rule.getFieldId();
+                    List<AlertRule> rules = current(fieldId);
+                    rules.add(rule);
+                    byField.put(fieldId, new FieldRules(rules));
+                    fieldByRule.put(rule.getId(), fieldId);
+                }
+            }
+        });
+    }
+
+    public void remove(UUID ruleId) {
+        TransactionHooks.afterCommit(() -> {
+            synchronized (this) {
+                removeNow(ruleId);
+            }
+        });
+    }
+
+    private void removeNow(UUID ruleId) {
+        UUID fieldId = fieldByRule.remove(ruleId);
+        if (fieldId == null) {
+            return;
+        }
+        List<AlertRule> rules = current(fieldId);
+        rules.removeIf(rule -> rule.getId().equals(ruleId));
+        if (rules.isEmpty()) {
+            byField.remove(fieldId);
+        } else {
+            byField.put(fieldId, new FieldRules(rules));
+        }
+    }
+
+    private List<AlertRule> current(UUID fieldId) {
+        FieldRules existing = byField.get(fieldId);
+        return existing == null ? new ArrayList<>() : new ArrayList<>(List.of(existing.rules));
+    }
+}
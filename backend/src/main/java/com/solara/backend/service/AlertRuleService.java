@@ -11,7 +11,9 @@ import org.springframework.stereotype.Service;
 import com.solara.backend.dto.request.CreateAlertRuleRequest;
 import com.solara.backend.dto.response.AlertEventDTO;
 import com.solara.backend.dto.response.AlertRuleDTO;
+import com.solara.backend.entity.AlertCondition;
 import com.solara.backend.entity.AlertEvent;
+import com.solara.backend.entity.AlertOperator;
 import com.solara.backend.entity.AlertRule;
 import com.solara.backend.entity.Field;
 import com.solara.backend.exception.AppException;
@@ -28,9 +30,13 @@ public class AlertRuleService {
     private final AlertRuleRepository alertRuleRepository;
     private final AlertEventRepository alertEventRepository;
     private final FieldRepository fieldRepository;
+    private final AlertRuleIndex alertRuleIndex;
+    private final AlertStateService alertStateService;
+    private final AlertEvaluationService alertEvaluationService;
 
     public AlertRuleDTO createRule(UUID userId, CreateAlertRuleRequest req) {
         verifyFieldOwnership(userId, req.getFieldId());
+        validateCondition(req);
 
         AlertRule rule = AlertRule.builder()
                 .userId(userId)
@@ -39,12 +45,16 @@ public class AlertRuleService {
                 .metric(req.getMetric())
                 .operator(req.getOperator())
                 .threshold(req.getThreshold())
+                .condition(conditionOf(req))
+                .windowMinutes(windowMinutesOf(req))
+                .clearThreshold(req.getClearThreshold())
                 .durationMinutes(req.getDurationMinutes())
                 .notifyEmail(req.isNotifyEmail())
                 .active(req.isActive())
                 .build();
 
         rule = alertRuleRepository.save(rule);
+        alertRuleIndex.put(rule);
         return mapToRuleDTO(rule);
     }
 
@@ -68,6 +78,7 @@ public class AlertRuleService {
         if (!rule.getFieldId().equals(req.getFieldId())) {
             verifyFieldOwnership(userId, req.getFieldId());
         }
+        validateCondition(req);
 
         boolean wasActive = rule.isActive();
         rule.setFieldId(req.getFieldId());
@@ -75,11 +86,16 @@ public class AlertRuleService {
         rule.setMetric(req.getMetric());
         rule.setOperator(req.getOperator());
         rule.setThreshold(req.getThreshold());
+        rule.setCondition(conditionOf(req));
+        rule.setWindowMinutes(windowMinutesOf(req));
+        rule.setClearThreshold(req.getClearThreshold());
         rule.setDurationMinutes(req.getDurationMinutes());
         rule.setNotifyEmail(req.isNotifyEmail());
         rule.setActive(req.isActive());
 
         rule = alertRuleRepository.save(rule);
+        alertRuleIndex.put(rule);
+        alertEvaluationService.onRuleChanged(rule);
 
         // If rule was deactivated, cleanup its open events
         if (wasActive && !rule.isActive()) {
@@ -96,6 +112,8 @@ public class AlertRuleService {
         // Cleanup before deleting the rule itself
         cleanupRelatedEvents(ruleId);
         alertRuleRepository.delete(rule);
+        alertRuleIndex.remove(ruleId);
+        alertEvaluationService.onRuleDeleted(ruleId);
     }
 
     private void cleanupRelatedEvents(UUID ruleId) {
@@ -113,6 +131,7 @@ public class AlertRuleService {
         if (changed) {
             alertEventRepository.saveAll(relatedEvents);
         }
+        alertStateService.forget(ruleId);
     }
 
     public List<AlertEventDTO> getEventHistory(UUID userId, UUID fieldId) {
@@ -175,6 +194,28 @@ public class AlertRuleService {
         alertEventRepository.saveAll(unreadEvents);
     }
 
+    private void validateCondition(CreateAlertRuleRequest req) {
+        if (conditionOf(req) != AlertCondition.VALUE && req.getWindowMinutes() == null) {
+            throw new AppException(HttpStatus.BAD_REQUEST, "windowMinutes is required for condition " + req.getCondition());
+        }
+        Double clear = req.getClearThreshold();
+        if (clear != null) {
+            boolean valid = req.getOperator() == AlertOperator.BELOW ? clear >= req.getThreshold() : clear <= req.getThreshold();
+            if (!valid) {
+                throw new AppException(HttpStatus.BAD_REQUEST,
+                        "clearThreshold must be on the non-breaching side of the threshold (" + req.getOperator() + " " + req.getThreshold() + ")");
+            }
+        }
+    }
+
+    private static AlertCondition conditionOf(CreateAlertRuleRequest req) {
+        return req.getCondition() != null ? req.getCondition() : AlertCondition.VALUE;
+    }
+
+    private static Integer windowMinutesOf(CreateAlertRuleRequest req) {
+        return conditionOf(req) == AlertCondition.VALUE ? null : req.getWindowMinutes();
+    }
+
     private void verifyFieldOwnership(UUID userId, UUID fieldId) {
         Field field = fieldRepository.findById(fieldId)
                 .orElseThrow(() -> new AppException(HttpStatus.NOT_FOUND, "Field not found: " + fieldId));
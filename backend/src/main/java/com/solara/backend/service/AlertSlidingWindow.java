@@ -0,0 +1,125 @@
+package com.solara.backend.service;
+
+import com.solara.backend.entity.AlertCondition;
+
+/**
+ * Time-based sliding window over one metric of one field, used for the windowed
+ * AlertCondition kinds.
+ *
+ * Samples live in a growable ring buffer. A running sum gives the mean, and two
+ * monotonic deques of sample sequence numbers give the min and max, so adding a
+ * sample and reading any aggregate is amortized O(1). Not thread-safe; only the
+ * telemetry writer thread touches it.
+ */
+final class AlertSlidingWindow {
+
+    private final long widthMillis;
+
+    private long[] times = new long[16];
+    private double[] values = new double[16];
+    private long[] minQueue = new long[16];
+    private long[] maxQueue = new long[16];
+    private int mask = 15;
+
+    // Sequence numbers; sample s lives at index (s & mask)
+    private long head;
+    private long tail;
+    private long minHead;
+    private long minTail;
+    private long maxHead;
+    private long maxTail;
+
+    private double sum;
+
+    AlertSlidingWindow(long widthMillis) {
+        this.widthMillis = widthMillis;
+    }
+
+    long widthMillis() {
+        return widthMillis;
+    }
+
+    /** Adds a sample and evicts the ones that fell out of the window. Out-of-order samples are clamped to the newest time. */
+    AlertSlidingWindow add(long timeMillis, double value) {
+        if (tail > head) {
+            timeMillis = Math.max(timeMillis, times[(int) ((tail - 1) & mask)]);
+        }
+        long cutoff = timeMillis - widthMillis;
+        while (head < tail && times[(int) (head & mask)] <= cutoff) {
+            sum -= values[(int) (head & mask)];
+            if (minHead < minTail && minQueue[(int) (minHead & mask)] == head) {
+                minHead++;
+            }
+            if (maxHead < maxTail && maxQueue[(int) (maxHead & mask)] == head) {
+                maxHead++;
+            }
+            head++;
+        }
+        if (tail - head == times.length) {
+            grow();
+        }
+
+        int index = (int) (tail & mask);
+        times[index] = timeMillis;
+        values[index] = value;
+        sum += value;
+        while (minTail > minHead && values[(int) (minQueue[(int) ((minTail - 1) & mask)] & mask)] >= value) {
+            minTail--;
+        }
+        minQueue[(int) (minTail++ & mask)] = tail;
+        while (maxTail > maxHead && values[(int) (maxQueue[(int) ((maxTail - 1) & mask)] & mask)] <= value) {
+            maxTail--;
+        }
+        maxQueue[(int) (maxTail++ & mask)] = tail;
+        tail++;
+        return this;
+    }
+
+    /** The aggregate for a windowed condition, or NaN if there are not enough samples yet. */
+    double value(AlertCondition condition) {
+        if (tail == head) {
+            return Double.NaN;
+        }
+        return switch (condition) {
+            case VALUE -> values[(int) ((tail - 1) & mask)];
+            case MEAN -> sum / (tail - head);
+            case MIN -> values[(int) (minQueue[(int) (minHead & mask)] & mask)];
+            case MAX -> values[(int) (maxQueue[(int) (maxHead & mask)] & mask)];
+            case RATE_PER_HOUR -> ratePerHour();
+        };
+    }
+
+    private double ratePerHour() {
+        int oldest = (int) (head & mask);
+        int newest = (int) ((tail - 1) & mask);
+        long spanMillis = times[newest] - times[oldest];
+        if (spanMillis <= 0) {
+            return Double.NaN;
+        }
+        return (values[newest] - values[oldest]) * 3_600_000d / spanMillis;
+    }
+
+    private void grow() {
+        int capacity = times.length * 2;
+        int newMask = capacity - 1;
+        long[] newTimes = new long[capacity];
+        double[] newValues = new double[capacity];
+        for (long s = head; s < tail; s++) {
+            newTimes[(int) (s & newMask)] = times[(int) (s & mask)];
+            newValues[(int) (s & newMask)] = values[(int) (s & mask)];
+        }
+        long[] newMin = new long[capacity];
+        for (long q = minHead; q < minTail; q++) {
+            newMin[(int) (q & newMask)] = minQueue[(int) (q & mask)];
+        }
+        long[] newMax = new long[capacity];
+        for (long q = maxHead; q < maxTail; q++) {
+            newMax[(int) (q & newMask)] = maxQueue[(int) (q & mask)];
+        }
+        times = newTimes;
+        values = newValues;
+        minQueue = newMin;
+        maxQueue = newMax;
+        mask = newMask;
+    }
+}
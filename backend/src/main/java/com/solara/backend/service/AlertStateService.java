@@ -0,0 +1,156 @@
+package com.solara.backend.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.solara.backend.entity.AlertEvent;
+import com.solara.backend.repository.AlertEventRepository;
+import com.solara.backend.utils.TransactionHooks;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory state of every open alert event, keyed by rule.
+ *
+ * A rule without an entry is resolved (or never breached). An entry is PENDING
+ * until its notification has been sent and NOTIFIED afterwards. The table is
+ * rebuilt from the unresolved alert_events at startup. AlertEvaluationService
+ * persists the open/notify/resolve transitions itself and applies them here
+ * after its transaction commits; the lastValue of an ongoing breach is only
+ * kept in memory and written to alert_events in bulk every
+ * {@code alerts.state.flush-interval-ms}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AlertStateService {
+
+    public enum State {
+        PENDING, NOTIFIED
+    }
+
+    /** One open event. The event snapshot is only mutated by the evaluating thread. */
+    public static final class OpenAlert {
+        private final AlertEvent event;
+        private volatile State state;
+        private volatile double lastValue;
+        private final AtomicBoolean dirty = new AtomicBoolean();
+
+        OpenAlert(AlertEvent event) {
+            this.event = event;
+            this.state = event.getNotifiedAt() != null ? State.NOTIFIED : State.PENDING;
+            this.lastValue = event.getLastValue() != null ? event.getLastValue() : Double.NaN;
+        }
+
+        public AlertEvent event() {
+            return event;
+        }
+
+        public State state() {
+            return state;
+        }
+    }
+
+    private final AlertEventRepository alertEventRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<UUID, OpenAlert> openByRule = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void load() {
+        for (AlertEvent event : alertEventRepository.findByResolvedAtIsNull()) {
+            openByRule.put(event.getRuleId(), new OpenAlert(event));
+        }
+        log.info("[AlertState] Restored {} open alert events.", openByRule.size());
+    }
+
+    public OpenAlert get(UUID ruleId) {
+        return openByRule.get(ruleId);
+    }
+
+    /** All open alerts, for re-arming duration deadlines at startup */
+    public List<OpenAlert> openAlerts() {
+        return new ArrayList<>(openByRule.values());
+    }
+
+    /** Records the latest value of an ongoing breach; written by the next flush. */
+    public void recordValue(OpenAlert alert, double value) {
+        alert.lastValue = value;
+        alert.event.setLastValue(value);
+        alert.dirty.set(true);
+    }
+
+    /** A new event was inserted for the rule; onOpen runs with the new entry once it is visible. */
+    public void opened(AlertEvent event, Consumer<OpenAlert> onOpen) {
+        TransactionHooks.afterCommit(() -> {
+            OpenAlert alert = new OpenAlert(event);
+            openByRule.put(event.getRuleId(), alert);
+            onOpen.accept(alert);
+        });
+    }
+
+    /** The event's notification was queued and notified_at persisted; the cached event follows once that commits. */
+    public void notified(OpenAlert alert, LocalDateTime notifiedAt) {
+        TransactionHooks.afterCommit(() -> {
+            alert.event.setNotifiedAt(notifiedAt);
+            alert.event.setRead(false);
+            alert.state = State.NOTIFIED;
+        });
+    }
+
+    /** The event was resolved (resolved_at and last_value persisted); the cached event follows once that commits. */
+    public void resolved(OpenAlert alert, LocalDateTime resolvedAt, double value) {
+        TransactionHooks.afterCommit(() -> {
+            alert.event.setResolvedAt(resolvedAt);
+            alert.event.setLastValue(value);
+            openByRule.remove(alert.event.getRuleId());
+        });
+    }
+
+    /** Rule deactivated or deleted; AlertRuleService closed its events itself. */
+    public void forget(UUID ruleId) {
+        TransactionHooks.afterCommit(() -> openByRule.remove(ruleId));
+    }
+
+    @Scheduled(fixedDelayString = "${alerts.state.flush-interval-ms:30000}")
+    public void flush() {
+        List<Object[]> args = new ArrayList<>();
+        List<OpenAlert> flushed = new ArrayList<>();
+        for (OpenAlert alert : openByRule.values()) {
+            if (alert.dirty.compareAndSet(true, false)) {
+                args.add(new Object[] { alert.lastValue, alert.event.getId() });
+                flushed.add(alert);
+            }
+        }
+        if (args.isEmpty()) {
+            return;
+        }
+
+        try {
+            // An event resolved since it was marked dirty already has its final last_value
+            jdbcTemplate.batchUpdate("UPDATE alert_events SET last_value = ? WHERE id = ? AND resolved_at IS NULL", args);
+            log.debug("[AlertState] Flushed last values of {} open events", args.size());
+        } catch (Exception e) {
+            flushed.forEach(alert -> alert.dirty.set(true));
+            log.error("[AlertState] Failed to flush last values of {} open events", args.size(), e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+}
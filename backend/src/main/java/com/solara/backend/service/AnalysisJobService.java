@@ -0,0 +1,241 @@
+package com.solara.backend.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.solara.backend.dto.request.AnalysisRequestDTO;
+import com.solara.backend.dto.response.AnalysisJobDTO;
+import com.solara.backend.dto.response.AnalysisResultDTO;
+import com.solara.backend.exception.AppException;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs analyses in the background so no request thread waits on weather
+ * reads, sensor scans or the ML engine.
+ *
+ * A submitted job runs on a fixed pool of {@code analysis.jobs.workers} threads
+ * behind a queue of {@code analysis.jobs.queue-capacity}; a full queue rejects
+ * the submission with 429. Submitting the same field and parameters again while
+ * a job is queued or running returns that job instead of starting another.
+ * Every transition after QUEUED is pushed to {@code /topic/user.{id}.analysis};
+ * finished jobs stay pollable for {@code analysis.jobs.retention-minutes}.
+ * Jobs are kept in memory only, so a restart loses them.
+ */
+@Slf4j
+@Service
+public class AnalysisJobService {
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED
+    }
+
+    public record AnalysisJobStats(
+        int queued,
+        int running,
+        int retained,
+        long submitted,
+        long deduplicated,
+        long rejected,
+        long succeeded,
+        long failed
+    ) {}
+
+    /** What makes two submissions the same analysis; fields that do not apply to the scenario are dropped */
+    private record JobKey(UUID fieldId, boolean futurePrediction, LocalDate startDate, LocalDate endDate,
+                          int targetMonthStart, int targetMonthEnd, Map<String, Double> overrides, int topN) {
+
+        static JobKey of(AnalysisRequestDTO request) {
+            if (request.isFuturePrediction()) {
+                Map<String, Double> overrides = request.getOverrides() == null || request.getOverrides().isEmpty()
+                        ? null : new HashMap<>(request.getOverrides());
+                return new JobKey(request.getFieldId(), true, null, null,
+                        request.getTargetMonthStart(), request.getTargetMonthEnd(), overrides, request.getTopN());
+            }
+            return new JobKey(request.getFieldId(), false, request.getStartDate(), request.getEndDate(),
+                    0, 0, null, request.getTopN());
+        }
+    }
+
+    private static final class Job {
+        final UUID id = UUID.randomUUID();
+        final UUID userId;
+        final JobKey key;
+        final AnalysisRequestDTO request;
+        final LocalDateTime submittedAt = LocalDateTime.now();
+        volatile Status status = Status.QUEUED;
+        volatile LocalDateTime startedAt;
+        volatile LocalDateTime finishedAt;
+        volatile AnalysisResultDTO result;
+        volatile String error;
+        volatile Integer errorStatus;
+
+        Job(UUID userId, JobKey key, AnalysisRequestDTO request) {
+            this.userId = userId;
+            this.key = key;
+            this.request = request;
+        }
+
+        AnalysisJobDTO toDTO() {
+            return AnalysisJobDTO.builder()
+                    .jobId(id)
+                    .fieldId(key.fieldId())
+                    .status(status.name())
+                    .submittedAt(submittedAt)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .result(result)
+                    .error(error)
+                    .errorStatus(errorStatus)
+                    .build();
+        }
+    }
+
+    private final AnalysisService analysisService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final long retentionMinutes;
+    private final ThreadPoolExecutor workers;
+
+    private final Map<UUID, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<JobKey, Job> active = new ConcurrentHashMap<>();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public AnalysisJobService(AnalysisService analysisService,
+                              SimpMessagingTemplate messagingTemplate,
+                              @Value("${analysis.jobs.workers:4}") int workerCount,
+                              @Value("${analysis.jobs.queue-capacity:100}") int queueCapacity,
+                              @Value("${analysis.jobs.retention-minutes:30}") long retentionMinutes) {
+        this.analysisService = analysisService;
+        this.messagingTemplate = messagingTemplate;
+        this.retentionMinutes = retentionMinutes;
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("analysis-worker-", 0).factory());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        workers.shutdownNow();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /** Queues the analysis, or returns the queued or running job for the same field and parameters. */
+    public AnalysisJobDTO submit(UUID userId, AnalysisRequestDTO request) {
+        JobKey key = JobKey.of(request);
+        Job created = new Job(userId, key, request);
+        Job existing = active.putIfAbsent(key, created);
+        if (existing != null) {
+            deduplicated.increment();
+            return existing.toDTO();
+        }
+
+        jobs.put(created.id, created);
+        try {
+            workers.execute(() -> run(created));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(created.id);
+            active.remove(key, created);
+            rejected.increment();
+            throw new AppException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Too many analyses are queued. Please try again shortly.");
+        }
+        submitted.increment();
+        log.info("Queued analysis job {} for field {}", created.id, key.fieldId());
+        return created.toDTO();
+    }
+
+    /** The job if it exists, is still retained and belongs to the user; 404 otherwise. */
+    public AnalysisJobDTO getJob(UUID userId, UUID jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null || !job.userId.equals(userId)) {
+            throw new AppException(HttpStatus.NOT_FOUND, "Analysis job not found: " + jobId);
+        }
+        return job.toDTO();
+    }
+
+    public AnalysisJobStats getStats() {
+        int running = 0;
+        for (Job job : active.values()) {
+            if (job.status == Status.RUNNING) {
+                running++;
+            }
+        }
+        return new AnalysisJobStats(
+                workers.getQueue().size(),
+                running,
+                jobs.size(),
+                submitted.sum(),
+                deduplicated.sum(),
+                rejected.sum(),
+                succeeded.sum(),
+                failed.sum());
+    }
+
+    @Scheduled(fixedDelayString = "${analysis.jobs.purge-interval-ms:60000}")
+    public void purgeFinished() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    private void run(Job job) {
+        job.startedAt = LocalDateTime.now();
+        job.status = Status.RUNNING;
+        publish(job);
+
+        Status outcome = Status.FAILED;
+        try {
+            job.result = analysisService.analyze(job.key.fieldId(), job.request);
+            outcome = Status.SUCCEEDED;
+        } catch (AppException e) {
+            job.error = e.getMessage();
+            job.errorStatus = e.getStatus().value();
+            log.warn("Analysis job {} for field {} failed: {}", job.id, job.key.fieldId(), e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Analysis job {} for field {} failed", job.id, job.key.fieldId(), e);
+        } finally {
+            // Also reached when an Error escapes, so the job never stays RUNNING
+            if (outcome == Status.SUCCEEDED) {
+                succeeded.increment();
+            } else {
+                if (job.errorStatus == null) {
+                    job.error = "Analysis failed. Please try again later.";
+                    job.errorStatus = HttpStatus.INTERNAL_SERVER_ERROR.value();
+                }
+                failed.increment();
+            }
+            // Removed before the status flips: whoever sees the job finished gets a fresh job for the same parameters
+            active.remove(job.key, job);
+            job.finishedAt = LocalDateTime.now();
+            job.status = outcome;
+            publish(job);
+        }
+    }
+
+    private void publish(Job job) {
+        try {
+            messagingTemplate.convertAndSend("/topic/user." + job.userId + ".analysis", job.toDTO());
+        } catch (RuntimeException e) {
+            log.warn("Failed to publish analysis job {} update: {}", job.id, e.getMessage());
+        }
+    }
+}
@@ -2,6 +2,9 @@ package com.solara.backend.service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -9,6 +12,7 @@ import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
@@ -17,16 +21,19 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.solara.backend.dto.request.AnalysisRequestDTO;
 import com.solara.backend.dto.request.MlPayloadDTO;
+import com.solara.backend.dto.request.WhatIfSweepRequestDTO;
 import com.solara.backend.dto.response.AnalysisResultDTO;
 import com.solara.backend.dto.response.MlCropRecommendationDTO;
+import com.solara.backend.dto.response.WhatIfSweepResultDTO;
 import com.solara.backend.entity.AnalysisLog;
-import com.solara.backend.entity.Field;
 import com.solara.backend.entity.FieldProperties;
 import com.solara.backend.entity.SensorLogs;
+import com.solara.backend.entity.WeatherClimatologyMonth;
 import com.solara.backend.entity.WeatherLog;
 import com.solara.backend.exception.AppException;
 import com.solara.backend.repository.AnalysisLogRepository;
 import com.solara.backend.repository.SensorLogsRepository;
+import com.solara.backend.repository.WeatherClimatologyMonthRepository;
 import com.solara.backend.repository.WeatherLogRepository;
 
 @Service
@@ -35,41 +42,53 @@ public class AnalysisService {
     private static final Logger log = LoggerFactory.getLogger(AnalysisService.class);
     private static final double CONFIDENCE_THRESHOLD = 5.0;
     private static final boolean INCLUDE_EXPLANATIONS = true;
+    private static final String SWEEP_SCENARIO = "WHAT_IF_SWEEP";
+    private static final String WEATHER_HISTORY_PENDING =
+            "Weather history for this field is being prepared. Please retry shortly.";
 
     private final SensorLogsRepository sensorLogsRepository;
     private final WeatherLogRepository weatherLogRepository;
+    private final WeatherClimatologyMonthRepository climatologyMonthRepository;
+    private final WeatherClimatologyService weatherClimatologyService;
     private final FieldPropertyService fieldPropertyService;
     private final MlEngineClient mlEngineClient;
-    private final WeatherSyncService weatherSyncService;
-    private final FieldService fieldService;
+    private final WeatherBackfillService weatherBackfillService;
     private final AnalysisLogRepository analysisLogRepository;
+    private final FieldLogCounterService fieldLogCounterService;
     private final ObjectMapper objectMapper;
+    private final int sweepMaxPoints;
 
     public AnalysisService(SensorLogsRepository sensorLogsRepository,
                            WeatherLogRepository weatherLogRepository,
+                           WeatherClimatologyMonthRepository climatologyMonthRepository,
+                           WeatherClimatologyService weatherClimatologyService,
                            FieldPropertyService fieldPropertyService,
                            MlEngineClient mlEngineClient,
-                           WeatherSyncService weatherSyncService,
-                           FieldService fieldService,
+                           WeatherBackfillService weatherBackfillService,
                            AnalysisLogRepository analysisLogRepository,
-                           ObjectMapper objectMapper) {
+                           FieldLogCounterService fieldLogCounterService,
+                           ObjectMapper objectMapper,
+                           @Value("${analysis.sweep.max-points:400}") int sweepMaxPoints) {
         this.sensorLogsRepository = sensorLogsRepository;
         this.weatherLogRepository = weatherLogRepository;
+        this.climatologyMonthRepository = climatologyMonthRepository;
+        this.weatherClimatologyService = weatherClimatologyService;
         this.fieldPropertyService = fieldPropertyService;
         this.mlEngineClient = mlEngineClient;
-        this.weatherSyncService = weatherSyncService;
-        this.fieldService = fieldService;
+        this.weatherBackfillService = weatherBackfillService;
         this.analysisLogRepository = analysisLogRepository;
+        this.fieldLogCounterService = fieldLogCounterService;
         this.objectMapper = objectMapper;
+        this.sweepMaxPoints = sweepMaxPoints;
     }
 
     public AnalysisResultDTO analyze(UUID fieldId, AnalysisRequestDTO request) {
         // Self-healing: if weather_logs is completely empty (Open-Meteo was down at field
-        // creation time), fetch the historical year now before proceeding.
-        if (weatherLogRepository.findAllByFieldId(fieldId).isEmpty()) {
-            log.warn("No weather logs found for field {} — triggering on-demand initialization.", fieldId);
-            Field field = fieldService.getFieldById(fieldId);
-            weatherSyncService.initializeFieldWeatherDataSync(field);
+        // creation time), queue the historical year; the request itself never waits for it.
+        boolean historyPending = !weatherLogRepository.existsByFieldId(fieldId);
+        if (historyPending) {
+            log.warn("No weather logs found for field {} — queueing background backfill.", fieldId);
+            weatherBackfillService.requestBackfill(fieldId);
         }
 
         FieldProperties props = fieldPropertyService.getFieldPropertiesByFieldId(fieldId);
@@ -81,13 +100,14 @@ public class AnalysisService {
         if (request.isFuturePrediction()) {
             return handleFutureOrWhatIf(fieldId, request, props);
         } else {
-            return handleRange(fieldId, request, props);
+            return handleRange(fieldId, request, props, historyPending);
         }
     }
 
     // ── Scenario A ────────────────────────────────────────────────────────────
 
-    private AnalysisResultDTO handleRange(UUID fieldId, AnalysisRequestDTO request, FieldProperties props) {
+    private AnalysisResultDTO handleRange(UUID fieldId, AnalysisRequestDTO request, FieldProperties props,
+                                          boolean historyPending) {
         LocalDate start = request.getStartDate();
         LocalDate end   = request.getEndDate();
 
@@ -135,6 +155,9 @@ public class AnalysisService {
                     .findByFieldIdAndLogDateBetween(fieldId, start, end);
 
             if (weatherFallback.isEmpty()) {
+                if (historyPending) {
+                    throw new AppException(HttpStatus.SERVICE_UNAVAILABLE, WEATHER_HISTORY_PENDING);
+                }
                 throw new AppException(HttpStatus.valueOf(422),
                         "No sensor or weather data available for the requested date range.");
             }
@@ -171,6 +194,15 @@ public class AnalysisService {
                 ? weatherLogRepository.findByFieldIdAndLogDateBetween(fieldId, start, end)
                 : annualLogs;
 
+        // Without any rainfall history the sum would be 0 and the recommendation silently wrong
+        if (rainfallLogs.isEmpty()) {
+            if (historyPending) {
+                throw new AppException(HttpStatus.SERVICE_UNAVAILABLE, WEATHER_HISTORY_PENDING);
+            }
+            throw new AppException(HttpStatus.valueOf(422),
+                    "No weather history available to estimate rainfall for the requested date range.");
+        }
+
         double rainfall = rainfallLogs.stream()
                 .filter(w -> w.getTotalRainfall() != null)
                 .mapToDouble(WeatherLog::getTotalRainfall)
@@ -197,25 +229,169 @@ public class AnalysisService {
         int monthStart = request.getTargetMonthStart();
         int monthEnd   = request.getTargetMonthEnd();
 
+        Climatology baseline = climatology(fieldId, monthStart, monthEnd);
+        double temperature = baseline.temperature();
+        double humidity = baseline.humidity();
+        double rainfall = baseline.rainfall();
+
+        // Scenario C: apply user overrides on top of the climatology baseline
+        Map<String, Double> overrides = request.getOverrides();
+        boolean isWhatIf = overrides != null && !overrides.isEmpty();
+
+        if (isWhatIf) {
+            if (overrides.containsKey("temperature")) temperature = overrides.get("temperature");
+            if (overrides.containsKey("humidity"))    humidity    = overrides.get("humidity");
+            if (overrides.containsKey("rainfall"))    rainfall    = overrides.get("rainfall");
+            log.info("Scenario C — what-if overrides applied for field {}: {}", fieldId, overrides);
+        } else {
+            log.info("Scenario B — climatology for field {} months {}-{}: temp={}, hum={}, rain={}",
+                    fieldId, monthStart, monthEnd, temperature, humidity, rainfall);
+        }
+
+        MlPayloadDTO payload = buildPayload(props, temperature, humidity, rainfall, request.getTopN());
+        List<MlCropRecommendationDTO> recommendations = filterAndCall(payload);
+
+        AnalysisResultDTO result = AnalysisResultDTO.builder()
+                .fieldId(fieldId)
+                .scenario(isWhatIf ? "WHAT_IF" : "FUTURE")
+                .weatherSource("CLIMATOLOGY")
+                .timestamp(LocalDateTime.now())
+                .recommendations(recommendations)
+                .build();
+
+        saveAnalysisLog(result);
+        return result;
+    }
+
+    // ── What-if sweep ─────────────────────────────────────────────────────────
+
+    /**
+     * Scenario C over a grid of temperature/humidity/rainfall values: the climatology
+     * baseline is computed once, every grid point is scored in one batch ML call and
+     * the sweep is stored as a single compact analysis log.
+     */
+    public WhatIfSweepResultDTO sweepWhatIf(WhatIfSweepRequestDTO request) {
+        UUID fieldId = request.getFieldId();
+        FieldProperties props = fieldPropertyService.getFieldPropertiesByFieldId(fieldId);
+        if (props == null) {
+            throw new AppException(HttpStatus.NOT_FOUND,
+                    "No soil properties found for field: " + fieldId);
+        }
+
+        Climatology baseline = climatology(fieldId, request.getTargetMonthStart(), request.getTargetMonthEnd());
+        List<Double> temperatures = axisValues("temperature", request.getTemperature(), baseline.temperature());
+        List<Double> humidities = axisValues("humidity", request.getHumidity(), baseline.humidity());
+        List<Double> rainfalls = axisValues("rainfall", request.getRainfall(), baseline.rainfall());
+
+        long pointCount = (long) temperatures.size() * humidities.size() * rainfalls.size();
+        if (pointCount > sweepMaxPoints) {
+            throw new AppException(HttpStatus.BAD_REQUEST,
+                    "A sweep can evaluate at most " + sweepMaxPoints + " points, requested " + pointCount + ".");
+        }
+
+        List<MlPayloadDTO> payloads = new ArrayList<>((int) pointCount);
+        for (double temperature : temperatures) {
+            for (double humidity : humidities) {
+                for (double rainfall : rainfalls) {
+                    MlPayloadDTO payload = buildPayload(props, temperature, humidity, rainfall, request.getTopN());
+                    payload.setIncludeExplanation(false); // a surface has no room for per-point explanations
+                    payloads.add(payload);
+                }
+            }
+        }
+
+        List<List<MlCropRecommendationDTO>> results = mlEngineClient.recommendBatch(payloads);
+        List<WhatIfSweepResultDTO.SweepPoint> points = new ArrayList<>(payloads.size());
+        for (int i = 0; i < payloads.size(); i++) {
+            MlPayloadDTO payload = payloads.get(i);
+            points.add(new WhatIfSweepResultDTO.SweepPoint(payload.getTemperature(), payload.getHumidity(),
+                    payload.getRainfall(), aboveThreshold(results.get(i))));
+        }
+        log.info("What-if sweep for field {} months {}-{}: {} points", fieldId,
+                request.getTargetMonthStart(), request.getTargetMonthEnd(), points.size());
+
+        WhatIfSweepResultDTO result = WhatIfSweepResultDTO.builder()
+                .fieldId(fieldId)
+                .timestamp(LocalDateTime.now())
+                .baselineTemperature(baseline.temperature())
+                .baselineHumidity(baseline.humidity())
+                .baselineRainfall(baseline.rainfall())
+                .temperatures(temperatures)
+                .humidities(humidities)
+                .rainfalls(rainfalls)
+                .points(points)
+                .build();
+
+        saveSweepLog(result);
+        return result;
+    }
+
+    private List<Double> axisValues(String name, WhatIfSweepRequestDTO.SweepAxis axis, double baseline) {
+        if (axis == null) {
+            return List.of(baseline);
+        }
+        if (axis.getValues() != null && !axis.getValues().isEmpty()) {
+            if (axis.getValues().size() > sweepMaxPoints) {
+                throw new AppException(HttpStatus.BAD_REQUEST, "Too many " + name + " values.");
+            }
+            return List.copyOf(axis.getValues());
+        }
+        Double from = axis.getFrom();
+        Double to = axis.getTo();
+        Double step = axis.getStep();
+        if (from == null || to == null || step == null || step <= 0 || from > to) {
+            throw new AppException(HttpStatus.BAD_REQUEST,
+                    name + " needs either values or from <= to with a positive step.");
+        }
+        long count = (long) Math.floor((to - from) / step + 1e-9) + 1;
+        if (count > sweepMaxPoints) {
+            throw new AppException(HttpStatus.BAD_REQUEST, "Too many " + name + " values.");
+        }
+        List<Double> values = new ArrayList<>((int) count);
+        for (long i = 0; i < count; i++) {
+            values.add(from + i * step);
+        }
+        return values;
+    }
+
+    /** Seasonal temperature/humidity and annual rainfall baseline for the target months */
+    private record Climatology(double temperature, double humidity, double rainfall) {}
+
+    private Climatology climatology(UUID fieldId, int monthStart, int monthEnd) {
         if (monthStart < 1 || monthStart > 12 || monthEnd < 1 || monthEnd > 12) {
             throw new AppException(HttpStatus.BAD_REQUEST,
                     "targetMonthStart and targetMonthEnd must be between 1 and 12.");
         }
 
-        // Fetch all stored weather logs for the field
-        List<WeatherLog> allLogs = weatherLogRepository.findAllByFieldId(fieldId);
+        // Latest months of the field's climatology: at most five years, no full-history scan
+        List<WeatherClimatologyMonth> months = climatologyMonthRepository.findTop61ByFieldIdOrderByMonthStartDesc(fieldId);
 
-        if (allLogs.isEmpty()) {
+        if (months.isEmpty()) {
+            if (!weatherLogRepository.existsByFieldId(fieldId)) {
+                weatherBackfillService.requestBackfill(fieldId);
+                throw new AppException(HttpStatus.SERVICE_UNAVAILABLE, WEATHER_HISTORY_PENDING);
+            }
+            // Weather history written before the climatology existed: build the field's months on first use
+            log.info("No climatology for field {} — building it from weather_logs.", fieldId);
+            weatherClimatologyService.rebuild(fieldId);
+            months = climatologyMonthRepository.findTop61ByFieldIdOrderByMonthStartDesc(fieldId);
+        }
+        if (months.isEmpty()) {
             throw new AppException(HttpStatus.valueOf(422),
                     "No historical weather data found for field " + fieldId
                     + ". Ensure the field has at least one year of weather data.");
         }
 
-        // Determine the most recent log date so we can walk backwards in 1-year windows.
-        LocalDate latestDate = allLogs.stream()
-                .map(WeatherLog::getLogDate)
-                .max(LocalDate::compareTo)
-                .orElseThrow();
+        Map<LocalDate, WeatherClimatologyMonth> byMonth = new HashMap<>();
+        months.forEach(m -> byMonth.put(m.getMonthStart(), m));
+
+        // Walk backwards in 1-year windows of whole months, ending at the latest complete month
+        // (the current month is still being filled by the daily sync).
+        WeatherClimatologyMonth latest = months.get(0);
+        LocalDate latestMonth = latest.getMonthStart();
+        if (latest.getDayCount() < latestMonth.lengthOfMonth() && months.size() > 1) {
+            latestMonth = latestMonth.minusMonths(1);
+        }
 
         int maxYears = 5; // cap how many past years to include in the climatology
         int yearsUsed = 0;
@@ -225,55 +401,51 @@ public class AnalysisService {
         double sumOfYearlyRainfall = 0.0;
 
         for (int k = 0; k < maxYears; k++) {
-            // Window: (end-1year, end] — i.e. one full year back from the current end
-            LocalDate windowEnd = latestDate.minusYears(k);
-            LocalDate windowStart = windowEnd.minusYears(1).plusDays(1);
-
-            // All logs in this 1-year window (used for ANNUAL rainfall)
-            List<WeatherLog> windowLogsYear = allLogs.stream()
-                    .filter(w -> {
-                        LocalDate d = w.getLogDate();
-                        return !d.isBefore(windowStart) && !d.isAfter(windowEnd);
-                    })
-                    .toList();
-
-            // Within that year, restrict to the target months (used for SEASONAL temp/humidity)
-            List<WeatherLog> windowLogsSeason = windowLogsYear.stream()
-                    .filter(w -> {
-                        int m = w.getLogDate().getMonthValue();
-                        if (monthStart <= monthEnd) {
-                            return m >= monthStart && m <= monthEnd;
-                        } else {
-                            // Wrap-around (e.g., Nov–Feb: 11,12,1,2)
-                            return m >= monthStart || m <= monthEnd;
-                        }
-                    })
-                    .toList();
-
-            if (windowLogsSeason.isEmpty() || windowLogsYear.isEmpty()) {
+            // Window: the 12 months ending k years before the latest month
+            LocalDate windowEnd = latestMonth.minusYears(k);
+            LocalDate windowStart = windowEnd.minusMonths(11);
+
+            boolean hasYear = false;
+            boolean hasSeason = false;
+            double tempSum = 0.0;
+            long tempCount = 0;
+            double humSum = 0.0;
+            long humCount = 0;
+            double yearRain = 0.0;
+
+            for (LocalDate m = windowStart; !m.isAfter(windowEnd); m = m.plusMonths(1)) {
+                WeatherClimatologyMonth month = byMonth.get(m);
+                if (month == null) {
+                    continue;
+                }
+                hasYear = true;
+                // Annual rainfall: sum over the FULL year window, regardless of month,
+                // to match the ML model which was trained on yearly rainfall.
+                yearRain += month.getRainfallSum();
+
+                // Seasonal temperature/humidity: only days in the requested months
+                int monthValue = m.getMonthValue();
+                boolean inSeason = monthStart <= monthEnd
+                        ? monthValue >= monthStart && monthValue <= monthEnd
+                        // Wrap-around (e.g., Nov–Feb: 11,12,1,2)
+                        : monthValue >= monthStart || monthValue <= monthEnd;
+                if (inSeason) {
+                    hasSeason = true;
+                    tempSum += month.getTemperatureSum();
+                    tempCount += month.getTemperatureCount();
+                    humSum += month.getHumiditySum();
+                    humCount += month.getHumidityCount();
+                }
+            }
+
+            if (!hasSeason || !hasYear) {
                 // No more complete years with data for the requested months
                 break;
             }
 
-            // Seasonal temperature/humidity: only logs in the requested months
-            double yearTemp = windowLogsSeason.stream()
-                    .filter(w -> w.getAverageTemperature() != null)
-                    .mapToDouble(WeatherLog::getAverageTemperature)
-                    .average()
-                    .orElse(0.0);
-
-            double yearHum = windowLogsSeason.stream()
-                    .filter(w -> w.getAverageHumidity() != null)
-                    .mapToDouble(WeatherLog::getAverageHumidity)
-                    .average()
-                    .orElse(0.0);
-
-            // Annual rainfall: sum over the FULL year window, regardless of month,
-            // to match the ML model which was trained on yearly rainfall.
-            double yearRain = windowLogsYear.stream()
-                    .filter(w -> w.getTotalRainfall() != null)
-                    .mapToDouble(WeatherLog::getTotalRainfall)
-                    .sum();
+            // Day-weighted seasonal means, same as averaging the daily logs
+            double yearTemp = tempCount > 0 ? tempSum / tempCount : 0.0;
+            double yearHum = humCount > 0 ? humSum / humCount : 0.0;
 
             sumOfYearlyTemps += yearTemp;
             sumOfYearlyHumidity += yearHum;
@@ -289,50 +461,10 @@ public class AnalysisService {
 
         // Final climatology: average of per-year seasonal statistics, so rainfall is effectively
         // \"average yearly\" rainfall for the requested months, matching the ML model training scale.
-        double temperature = sumOfYearlyTemps / yearsUsed;
-        double humidity = sumOfYearlyHumidity / yearsUsed;
-        double rainfall = sumOfYearlyRainfall / yearsUsed;
-
-        // Scenario C: apply user overrides on top of the climatology baseline
-        Map<String, Double> overrides = request.getOverrides();
-        boolean isWhatIf = overrides != null && !overrides.isEmpty();
-
-        if (isWhatIf) {
-            if (overrides.containsKey("temperature")) temperature = overrides.get("temperature");
-            if (overrides.containsKey("humidity"))    humidity    = overrides.get("humidity");
-            if (overrides.containsKey("rainfall"))    rainfall    = overrides.get("rainfall");
-            log.info("Scenario C — what-if overrides applied for field {}: {}", fieldId, overrides);
-        } else {
-            log.info("Scenario B — climatology for field {} months {}-{}: temp={}, hum={}, rain={}",
-                    fieldId, monthStart, monthEnd, temperature, humidity, rainfall);
-        }
-
-        MlPayloadDTO payload = buildPayload(props, temperature, humidity, rainfall, request.getTopN());
-        List<MlCropRecommendationDTO> recommendations = filterAndCall(payload);
-
-        AnalysisResultDTO result = AnalysisResultDTO.builder()
-                .fieldId(fieldId)
-                .scenario(isWhatIf ? "WHAT_IF" : "FUTURE")
-                .weatherSource("CLIMATOLOGY")
-                .timestamp(LocalDateTime.now())
-                .recommendations(recommendations)
-                .build();
-
-        saveAnalysisLog(result);
-        return result;
-    }
-
-    public long countAnalysisLogsForUser(UUID userId) {
-        long total = 0;
-
-        List<Field> userFields = fieldService.getFieldsByUserId(userId);
-
-        for (Field field : userFields) {
-            long count = analysisLogRepository.countByFieldId(field.getId());
-            total += count;
-        }
-        
-        return total;
+        return new Climatology(
+                sumOfYearlyTemps / yearsUsed,
+                sumOfYearlyHumidity / yearsUsed,
+                sumOfYearlyRainfall / yearsUsed);
     }
 
     public long countAnalysisLogs() {
@@ -357,7 +489,10 @@ public class AnalysisService {
     }
 
     private List<MlCropRecommendationDTO> filterAndCall(MlPayloadDTO payload) {
-        List<MlCropRecommendationDTO> raw = mlEngineClient.recommend(payload);
+        return aboveThreshold(mlEngineClient.recommend(payload));
+    }
+
+    private static List<MlCropRecommendationDTO> aboveThreshold(List<MlCropRecommendationDTO> raw) {
         return raw.stream()
                 .filter(r -> r.getProbability() != null && r.getProbability() >= CONFIDENCE_THRESHOLD)
                 .toList();
@@ -373,14 +508,46 @@ public class AnalysisService {
                     .recommendations(recommendationsJson)
                     .build();
             analysisLogRepository.save(logEntry);
+            fieldLogCounterService.addAnalysisLog(result.getFieldId());
             log.info("Saved analysis log for field {} scenario {}", result.getFieldId(), result.getScenario());
         } catch (JsonProcessingException e) {
             log.error("Failed to serialize recommendations for analysis log: {}", e.getMessage());
         }
     }
 
+    /**
+     * Stores a sweep as one log: the axes plus the best crop of each point, in grid order.
+     * The full surface is only returned to the caller.
+     */
+    private void saveSweepLog(WhatIfSweepResultDTO result) {
+        try {
+            List<Object[]> best = new ArrayList<>(result.getPoints().size());
+            for (WhatIfSweepResultDTO.SweepPoint point : result.getPoints()) {
+                MlCropRecommendationDTO top = point.getRecommendations().isEmpty() ? null : point.getRecommendations().get(0);
+                best.add(top == null ? new Object[] { null, null } : new Object[] { top.getCrop(), top.getProbability() });
+            }
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("temperature", result.getTemperatures());
+            summary.put("humidity", result.getHumidities());
+            summary.put("rainfall", result.getRainfalls());
+            summary.put("best", best);
+
+            AnalysisLog logEntry = AnalysisLog.builder()
+                    .fieldId(result.getFieldId())
+                    .scenario(SWEEP_SCENARIO)
+                    .weatherSource("CLIMATOLOGY")
+                    .recommendations(objectMapper.writeValueAsString(summary))
+                    .build();
+            analysisLogRepository.save(logEntry);
+            fieldLogCounterService.addAnalysisLog(result.getFieldId());
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize what-if sweep for analysis log: {}", e.getMessage());
+        }
+    }
+
     public Optional<AnalysisResultDTO> getLastAnalysis(UUID fieldId) {
-        return analysisLogRepository.findTopByFieldIdOrderByCreatedAtDesc(fieldId)
+        // Sweep logs have a different shape and are not a single result
+        return analysisLogRepository.findTopByFieldIdAndScenarioNotOrderByCreatedAtDesc(fieldId, SWEEP_SCENARIO)
                 .map(entry -> {
                     try {
                         List<MlCropRecommendationDTO> recommendations = objectMapper.readValue(
@@ -0,0 +1,482 @@
+package com.solara.backend.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.solara.backend.dto.request.MlPayloadDTO;
+import com.solara.backend.dto.response.MlCropRecommendationDTO;
+import com.solara.backend.dto.response.MlRecommendationContributionDTO;
+
+/**
+ * The LightGBM crop model, loaded from the artifact written by ml-engine's
+ * {@code model_export.py} and scored in-process.
+ *
+ * All trees share flat primitive arrays: tree t owns nodes
+ * [nodeStart[t], nodeStart[t + 1]) and leaves [leafStart[t], leafStart[t + 1]).
+ * Child indices are tree-local and follow LightGBM: {@code >= 0} is an internal
+ * node, {@code ~i} is leaf i. Probabilities are the softmax of the summed leaf
+ * values per class and contributions are TreeSHAP values computed the way
+ * LightGBM's pred_contrib does, so both reproduce the Python engine. Instances
+ * are immutable and safe to share between threads.
+ */
+final class CropModel {
+
+    static final String FORMAT = "solara-lgbm-v1";
+
+    /** Same as ml-engine's recommend_with_explanations default */
+    private static final int TOP_FEATURES = 3;
+    // LightGBM's kZeroThreshold, a float constant
+    private static final double ZERO_THRESHOLD = 1e-35f;
+    private static final int MISSING_ZERO = 1;
+    private static final int MISSING_NAN = 2;
+
+    private static final Map<String, ToDoubleFunction<MlPayloadDTO>> FEATURES = Map.of(
+            "N", MlPayloadDTO::getN,
+            "P", MlPayloadDTO::getP,
+            "K", MlPayloadDTO::getK,
+            "temperature", MlPayloadDTO::getTemperature,
+            "humidity", MlPayloadDTO::getHumidity,
+            "ph", MlPayloadDTO::getPh,
+            "rainfall", MlPayloadDTO::getRainfall);
+
+    /** Input and output of the Python engine for one feature vector */
+    record ParityCase(double[] features, double[] probabilities, double[][] contributions) {}
+
+    private final String version;
+    private final String[] featureNames;
+    private final List<ToDoubleFunction<MlPayloadDTO>> featureGetters;
+    private final String[] classes;
+    private final double[] mean;
+    private final double[] scale;
+
+    private final int[] treeClass;
+    private final int[] nodeStart;
+    private final int[] leafStart;
+    private final int[] splitFeature;
+    private final double[] threshold;
+    private final boolean[] defaultLeft;
+    private final byte[] missingType;
+    private final int[] leftChild;
+    private final int[] rightChild;
+    private final double[] internalCount;
+    private final double[] leafValue;
+    private final double[] leafCount;
+    private final int maxDepth;
+
+    private final List<ParityCase> parityCases;
+
+    private CropModel(JsonNode root) {
+        if (!FORMAT.equals(root.path("format").asText())) {
+            throw new IllegalArgumentException("Unsupported model artifact format: " + root.path("format").asText());
+        }
+        version = root.path("version").asText(null);
+        featureNames = strings(root.path("feature_names"));
+        classes = strings(root.path("classes"));
+        mean = doubles(root.path("scaler").path("mean"));
+        scale = doubles(root.path("scaler").path("scale"));
+        if (classes.length != root.path("num_class").asInt() || classes.length < 2) {
+            throw new IllegalArgumentException("Class names do not match num_class");
+        }
+        if (mean.length != featureNames.length || scale.length != featureNames.length) {
+            throw new IllegalArgumentException("Scaler does not match the feature count");
+        }
+        featureGetters = new ArrayList<>(featureNames.length);
+        for (String name : featureNames) {
+            ToDoubleFunction<MlPayloadDTO> getter = FEATURES.get(name);
+            if (getter == null) {
+                throw new IllegalArgumentException("Unknown model feature: " + name);
+            }
+            featureGetters.add(getter);
+        }
+
+        JsonNode trees = root.path("trees");
+        int treeCount = trees.size();
+        treeClass = new int[treeCount];
+        nodeStart = new int[treeCount + 1];
+        leafStart = new int[treeCount + 1];
+        for (int t = 0; t < treeCount; t++) {
+            JsonNode tree = trees.get(t);
+            treeClass[t] = tree.path("class").asInt(-1);
+            if (treeClass[t] < 0 || treeClass[t] >= classes.length) {
+                throw new IllegalArgumentException("Tree " + t + " has no valid class");
+            }
+            int nodes = tree.path("split_feature").size();
+            int leaves = tree.path("leaf_value").size();
+            if (leaves != nodes + 1) {
+                throw new IllegalArgumentException("Tree " + t + " has " + nodes + " splits but " + leaves + " leaves");
+            }
+            nodeStart[t + 1] = nodeStart[t] + nodes;
+            leafStart[t + 1] = leafStart[t] + leaves;
+        }
+
+        int nodeCount = nodeStart[treeCount];
+        int totalLeaves = leafStart[treeCount];
+        splitFeature = new int[nodeCount];
+        threshold = new double[nodeCount];
+        defaultLeft = new boolean[nodeCount];
+        missingType = new byte[nodeCount];
+        leftChild = new int[nodeCount];
+        rightChild = new int[nodeCount];
+        internalCount = new double[nodeCount];
+        leafValue = new double[totalLeaves];
+        leafCount = new double[totalLeaves];
+        for (int t = 0; t < treeCount; t++) {
+            JsonNode tree = trees.get(t);
+            int nodes = nodeStart[t + 1] - nodeStart[t];
+            for (int i = 0; i < nodes; i++) {
+                int at = nodeStart[t] + i;
+                splitFeature[at] = tree.path("split_feature").get(i).asInt();
+                threshold[at] = tree.path("threshold").get(i).asDouble();
+                defaultLeft[at] = tree.path("default_left").get(i).asBoolean();
+                missingType[at] = (byte) tree.path("missing_type").get(i).asInt();
+                leftChild[at] = tree.path("left_child").get(i).asInt();
+                rightChild[at] = tree.path("right_child").get(i).asInt();
+                internalCount[at] = tree.path("internal_count").get(i).asDouble();
+                if (splitFeature[at] < 0 || splitFeature[at] >= featureNames.length
+                        || !validChild(leftChild[at], i, nodes) || !validChild(rightChild[at], i, nodes)) {
+                    throw new IllegalArgumentException("Tree " + t + " node " + i + " is out of range");
+                }
+            }
+            for (int i = 0; i <= nodes; i++) {
+                leafValue[leafStart[t] + i] = tree.path("leaf_value").get(i).asDouble();
+                leafCount[leafStart[t] + i] = tree.path("leaf_count").get(i).asDouble();
+            }
+        }
+        maxDepth = maxDepth();
+
+        List<ParityCase> cases = new ArrayList<>();
+        for (JsonNode parity : root.path("parity")) {
+            JsonNode contributions = parity.path("contributions");
+            double[][] byClass = new double[contributions.size()][];
+            for (int c = 0; c < byClass.length; c++) {
+                byClass[c] = doubles(contributions.get(c));
+            }
+            cases.add(new ParityCase(doubles(parity.path("features")), doubles(parity.path("probabilities")), byClass));
+        }
+        parityCases = List.copyOf(cases);
+    }
+
+    static CropModel load(Path path) throws IOException {
+        return new CropModel(new ObjectMapper().readTree(path.toFile()));
+    }
+
+    String version() {
+        return version;
+    }
+
+    int treeCount() {
+        return treeClass.length;
+    }
+
+    /** Same shape as the Python engine's response for one payload */
+    List<MlCropRecommendationDTO> recommend(MlPayloadDTO payload) {
+        double[] raw = new double[featureNames.length];
+        for (int f = 0; f < raw.length; f++) {
+            raw[f] = featureGetters.get(f).applyAsDouble(payload);
+        }
+        double[] scaled = scale(raw);
+        double[] probabilities = softmax(rawScores(scaled));
+        double[][] contributions = payload.isIncludeExplanation() ? contributions(scaled) : null;
+
+        int topN = Math.max(0, Math.min(payload.getTopN(), classes.length));
+        List<MlCropRecommendationDTO> recommendations = new ArrayList<>(topN);
+        for (int idx : ranking(probabilities).subList(0, topN)) {
+            List<MlRecommendationContributionDTO> explanation = null;
+            if (contributions != null) {
+                explanation = topContributions(contributions[idx], raw);
+            }
+            recommendations.add(new MlCropRecommendationDTO(classes[idx], probabilities[idx] * 100, explanation));
+        }
+        return recommendations;
+    }
+
+    /**
+     * Scores the parity cases embedded by the exporter and fails on the first one
+     * that differs from the Python engine by more than the tolerance.
+     *
+     * @return the number of cases checked
+     */
+    int verifyParity(double tolerance) {
+        if (parityCases.isEmpty()) {
+            throw new IllegalStateException("Model artifact has no parity cases");
+        }
+        for (int i = 0; i < parityCases.size(); i++) {
+            ParityCase parity = parityCases.get(i);
+            double[] scaled = scale(parity.features());
+            double[] probabilities = softmax(rawScores(scaled));
+            double[][] contributions = contributions(scaled);
+            for (int c = 0; c < classes.length; c++) {
+                if (Math.abs(probabilities[c] - parity.probabilities()[c]) > tolerance) {
+                    throw new IllegalStateException("Parity case " + i + ": probability of " + classes[c] + " is "
+                            + probabilities[c] + ", Python gave " + parity.probabilities()[c]);
+                }
+                for (int f = 0; f < featureNames.length; f++) {
+                    if (Math.abs(contributions[c][f] - parity.contributions()[c][f]) > tolerance) {
+                        throw new IllegalStateException("Parity case " + i + ": contribution of " + featureNames[f]
+                                + " to " + classes[c] + " is " + contributions[c][f] + ", Python gave "
+                                + parity.contributions()[c][f]);
+                    }
+                }
+            }
+        }
+        return parityCases.size();
+    }
+
+    /** StandardScaler.transform */
+    double[] scale(double[] raw) {
+        double[] scaled = new double[raw.length];
+        for (int f = 0; f < raw.length; f++) {
+            scaled[f] = (raw[f] - mean[f]) / scale[f];
+        }
+        return scaled;
+    }
+
+    /** Summed leaf values per class, trees in boosting order like GBDT::PredictRaw */
+    double[] rawScores(double[] scaled) {
+        double[] scores = new double[classes.length];
+        for (int t = 0; t < treeClass.length; t++) {
+            int node = nodeStart[t + 1] > nodeStart[t] ? 0 : ~0;
+            while (node >= 0) {
+                node = decide(t, node, scaled);
+            }
+            scores[treeClass[t]] += leafValue[leafStart[t] + ~node];
+        }
+        return scores;
+    }
+
+    /** TreeSHAP value of every feature per class, without the bias term */
+    double[][] contributions(double[] scaled) {
+        double[][] phi = new double[classes.length][featureNames.length];
+        ShapPath path = new ShapPath((maxDepth + 1) * (maxDepth + 2) / 2);
+        for (int t = 0; t < treeClass.length; t++) {
+            if (nodeStart[t + 1] > nodeStart[t]) {
+                treeShap(t, scaled, phi[treeClass[t]], path, 0, 0, 0, 1, 1, -1);
+            }
+        }
+        return phi;
+    }
+
+    private static double[] softmax(double[] scores) {
+        double max = scores[0];
+        for (int i = 1; i < scores.length; i++) {
+            max = Math.max(scores[i], max);
+        }
+        double sum = 0;
+        double[] probabilities = new double[scores.length];
+        for (int i = 0; i < scores.length; i++) {
+            probabilities[i] = Math.exp(scores[i] - max);
+            sum += probabilities[i];
+        }
+        for (int i = 0; i < scores.length; i++) {
+            probabilities[i] /= sum;
+        }
+        return probabilities;
+    }
+
+    /** Class indices by descending probability; ties in the order of numpy's argsort()[::-1] */
+    private static List<Integer> ranking(double[] probabilities) {
+        List<Integer> order = new ArrayList<>(probabilities.length);
+        for (int i = 0; i < probabilities.length; i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.<Integer>comparingDouble(i -> probabilities[i]).thenComparingInt(i -> i).reversed());
+        return order;
+    }
+
+    private List<MlRecommendationContributionDTO> topContributions(double[] phi, double[] raw) {
+        List<MlRecommendationContributionDTO> rows = new ArrayList<>();
+        for (int f = 0; f < phi.length; f++) {
+            if (phi[f] <= 0) {
+                continue;
+            }
+            MlRecommendationContributionDTO row = new MlRecommendationContributionDTO();
+            row.setFeature(featureNames[f]);
+            row.setScore(phi[f]);
+            row.setRawValue(raw[f]);
+            rows.add(row);
+        }
+        rows.sort(Comparator.comparingDouble(MlRecommendationContributionDTO::getScore).reversed());
+        return rows.size() > TOP_FEATURES ? List.copyOf(rows.subList(0, TOP_FEATURES)) : rows;
+    }
+
+    /** Tree.NumericalDecision: the child taken at a node */
+    private int decide(int tree, int node, double[] scaled) {
+        int at = nodeStart[tree] + node;
+        double value = scaled[splitFeature[at]];
+        if (Double.isNaN(value) && missingType[at] != MISSING_NAN) {
+            value = 0.0;
+        }
+        if ((missingType[at] == MISSING_ZERO && value >= -ZERO_THRESHOLD && value <= ZERO_THRESHOLD)
+                || (missingType[at] == MISSING_NAN && Double.isNaN(value))) {
+            return defaultLeft[at] ? leftChild[at] : rightChild[at];
+        }
+        return value <= threshold[at] ? leftChild[at] : rightChild[at];
+    }
+
+    private double dataCount(int tree, int node) {
+        return node >= 0 ? internalCount[nodeStart[tree] + node] : leafCount[leafStart[tree] + ~node];
+    }
+
+    private int maxDepth() {
+        int deepest = 0;
+        for (int t = 0; t < treeClass.length; t++) {
+            if (nodeStart[t + 1] > nodeStart[t]) {
+                deepest = Math.max(deepest, depth(t, 0));
+            }
+        }
+        return deepest;
+    }
+
+    private int depth(int tree, int node) {
+        if (node < 0) {
+            return 0;
+        }
+        int at = nodeStart[tree] + node;
+        return 1 + Math.max(depth(tree, leftChild[at]), depth(tree, rightChild[at]));
+    }
+
+    // ── TreeSHAP, ported from LightGBM's Tree::TreeSHAP ──────────────────────
+
+    /** The unique paths of all recursion levels, each level starting where its parent's ended */
+    private static final class ShapPath {
+        final int[] feature;
+        final double[] zeroFraction;
+        final double[] oneFraction;
+        final double[] weight;
+
+        ShapPath(int size) {
+            feature = new int[size];
+            zeroFraction = new double[size];
+            oneFraction = new double[size];
+            weight = new double[size];
+        }
+    }
+
+    private void treeShap(int tree, double[] scaled, double[] phi, ShapPath path, int parentOffset, int node,
+                          int depth, double parentZeroFraction, double parentOneFraction, int parentFeature) {
+        int offset = parentOffset + depth;
+        if (depth > 0) {
+            System.arraycopy(path.feature, parentOffset, path.feature, offset, depth);
+            System.arraycopy(path.zeroFraction, parentOffset, path.zeroFraction, offset, depth);
+            System.arraycopy(path.oneFraction, parentOffset, path.oneFraction, offset, depth);
+            System.arraycopy(path.weight, parentOffset, path.weight, offset, depth);
+        }
+        extendPath(path, offset, depth, parentZeroFraction, parentOneFraction, parentFeature);
+
+        if (node < 0) {
+            double value = leafValue[leafStart[tree] + ~node];
+            for (int i = 1; i <= depth; i++) {
+                double w = unwoundPathSum(path, offset, depth, i);
+                phi[path.feature[offset + i]] += w * (path.oneFraction[offset + i] - path.zeroFraction[offset + i]) * value;
+            }
+            return;
+        }
+
+        int at = nodeStart[tree] + node;
+        int hot = decide(tree, node, scaled);
+        int cold = hot == leftChild[at] ? rightChild[at] : leftChild[at];
+        double w = internalCount[at];
+        double hotZeroFraction = dataCount(tree, hot) / w;
+        double coldZeroFraction = dataCount(tree, cold) / w;
+        double incomingZeroFraction = 1;
+        double incomingOneFraction = 1;
+
+        // A feature already on the path is unwound so this split can redo it
+        int pathIndex = 0;
+        for (; pathIndex <= depth; pathIndex++) {
+            if (path.feature[offset + pathIndex] == splitFeature[at]) {
+                break;
+            }
+        }
+        if (pathIndex != depth + 1) {
+            incomingZeroFraction = path.zeroFraction[offset + pathIndex];
+            incomingOneFraction = path.oneFraction[offset + pathIndex];
+            unwindPath(path, offset, depth, pathIndex);
+            depth -= 1;
+        }
+
+        treeShap(tree, scaled, phi, path, offset, hot, depth + 1,
+                hotZeroFraction * incomingZeroFraction, incomingOneFraction, splitFeature[at]);
+        treeShap(tree, scaled, phi, path, offset, cold, depth + 1,
+                coldZeroFraction * incomingZeroFraction, 0, splitFeature[at]);
+    }
+
+    private static void extendPath(ShapPath path, int offset, int depth, double zeroFraction, double oneFraction,
+                                   int feature) {
+        path.feature[offset + depth] = feature;
+        path.zeroFraction[offset + depth] = zeroFraction;
+        path.oneFraction[offset + depth] = oneFraction;
+        path.weight[offset + depth] = depth == 0 ? 1 : 0;
+        for (int i = depth - 1; i >= 0; i--) {
+            path.weight[offset + i + 1] += oneFraction * path.weight[offset + i] * (i + 1) / (double) (depth + 1);
+            path.weight[offset + i] = zeroFraction * path.weight[offset + i] * (depth - i) / (double) (depth + 1);
+        }
+    }
+
+    private static void unwindPath(ShapPath path, int offset, int depth, int pathIndex) {
+        double oneFraction = path.oneFraction[offset + pathIndex];
+        double zeroFraction = path.zeroFraction[offset + pathIndex];
+        double nextOnePortion = path.weight[offset + depth];
+
+        for (int i = depth - 1; i >= 0; i--) {
+            if (oneFraction != 0) {
+                double tmp = path.weight[offset + i];
+                path.weight[offset + i] = nextOnePortion * (depth + 1) / ((i + 1) * oneFraction);
+                nextOnePortion = tmp - path.weight[offset + i] * zeroFraction * (depth - i) / (double) (depth + 1);
+            } else {
+                path.weight[offset + i] = (path.weight[offset + i] * (depth + 1)) / (zeroFraction * (depth - i));
+            }
+        }
+
+        for (int i = pathIndex; i < depth; i++) {
+            path.feature[offset + i] = path.feature[offset + i + 1];
+            path.zeroFraction[offset + i] = path.zeroFraction[offset + i + 1];
+            path.oneFraction[offset + i] = path.oneFraction[offset + i + 1];
+        }
+    }
+
+    private static double unwoundPathSum(ShapPath path, int offset, int depth, int pathIndex) {
+        double oneFraction = path.oneFraction[offset + pathIndex];
+        double zeroFraction = path.zeroFraction[offset + pathIndex];
+        double nextOnePortion = path.weight[offset + depth];
+        double total = 0;
+        for (int i = depth - 1; i >= 0; i--) {
+            if (oneFraction != 0) {
+                double tmp = nextOnePortion * (depth + 1) / ((i + 1) * oneFraction);
+                total += tmp;
+                nextOnePortion = path.weight[offset + i] - tmp * zeroFraction * ((depth - i) / (double) (depth + 1));
+            } else {
+                total += (path.weight[offset + i] / zeroFraction) / ((depth - i) / (double) (depth + 1));
+            }
+        }
+        return total;
+    }
+
+    /** Nodes are in pre-order, so an internal child always comes after its parent */
+    private static boolean validChild(int child, int parent, int nodes) {
+        return child >= 0 ? child > parent && child < nodes : ~child <= nodes;
+    }
+
+    private static String[] strings(JsonNode array) {
+        String[] values = new String[array.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = array.get(i).asText();
+        }
+        return values;
+    }
+
+    private static double[] doubles(JsonNode array) {
+        double[] values = new double[array.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = array.get(i).asDouble();
+        }
+        return values;
+    }
+}
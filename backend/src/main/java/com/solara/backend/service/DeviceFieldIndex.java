@@ -0,0 +1,124 @@
+package com.solara.backend.service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Service;
+
+import com.solara.backend.entity.Field;
+import com.solara.backend.repository.FieldRepository;
+import com.solara.backend.utils.TransactionHooks;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory index of paired devices: serial number -> (fieldId, userId, espDeviceId).
+ *
+ * Loaded once at startup and kept exact by the pairing code paths in FieldService
+ * and EspDeviceService, so telemetry ingest never has to join fields/esp_devices
+ * to find out where a reading belongs. Mutations are applied after the surrounding
+ * transaction commits, so a rolled-back pairing never leaks into the index.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DeviceFieldIndex {
+
+    public record DeviceBinding(UUID fieldId, UUID userId, UUID espDeviceId) {}
+
+    private final FieldRepository fieldRepository;
+
+    private final Map<String, DeviceBinding> bySerial = new ConcurrentHashMap<>();
+    private final Map<UUID, String> serialByField = new ConcurrentHashMap<>();
+
+    // Loaded before the ingest writer (which depends on this bean) accepts readings
+    @PostConstruct
+    public void load() {
+        synchronized (this) {
+            bySerial.clear();
+            serialByField.clear();
+            for (FieldRepository.DeviceBindingView view : fieldRepository.findAllDeviceBindings()) {
+                put(view.getSerialNumber(), new DeviceBinding(view.getFieldId(), view.getUserId(), view.getEspDeviceId()));
+            }
+        }
+        log.info("[DeviceIndex] Loaded {} paired devices.", bySerial.size());
+    }
+
+    public Optional<DeviceBinding> resolve(String serialNumber) {
+        return serialNumber == null ? Optional.empty() : Optional.ofNullable(bySerial.get(serialNumber));
+    }
+
+    /** Record that the given field is now paired with its current espDevice. */
+    public void bind(Field field) {
+        if (field.getEspDevice() == null) {
+            unbindField(field.getId());
+            return;
+        }
+        String serial = field.getEspDevice().getSerialNumber();
+        DeviceBinding binding = new DeviceBinding(field.getId(), field.getUserId(), field.getEspDevice().getId());
+        TransactionHooks.afterCommit(() -> {
+            synchronized (this) {
+                removeField(binding.fieldId());
+                removeSerial(serial);
+                put(serial, binding);
+            }
+        });
+    }
+
+    /** Drop whatever device is paired with the field (unpair or field deletion). */
+    public void unbindField(UUID fieldId) {
+        TransactionHooks.afterCommit(() -> {
+            synchronized (this) {
+                removeField(fieldId);
+            }
+        });
+    }
+
+    /** Drop a device from the index (device deletion). */
+    public void unbindSerial(String serialNumber) {
+        TransactionHooks.afterCommit(() -> {
+            synchronized (this) {
+                removeSerial(serialNumber);
+            }
+        });
+    }
+
+    /** Keep the index keyed correctly when an admin renames a device's serial number. */
+    public void renameSerial(String oldSerial, String newSerial) {
+        TransactionHooks.afterCommit(() -> {
+            synchronized (this) {
+                DeviceBinding binding = bySerial.remove(oldSerial);
+                if (binding != null) {
+                    put(newSerial, binding);
+                }
+            }
+        });
+    }
+
+    public int size() {
+        return bySerial.size();
+    }
+
+    private void put(String serial, DeviceBinding binding) {
+        bySerial.put(serial, binding);
+        serialByField.put(binding.fieldId(), serial);
+    }
+
+    private void removeField(UUID fieldId) {
+        String serial = serialByField.remove(fieldId);
+        if (serial != null) {
+            bySerial.remove(serial);
+        }
+    }
+
+    private void removeSerial(String serial) {
+        DeviceBinding binding = bySerial.remove(serial);
+        if (binding != null) {
+            serialByField.remove(binding.fieldId());
+        }
+    }
+}
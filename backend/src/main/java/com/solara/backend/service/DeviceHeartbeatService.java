@@ -0,0 +1,122 @@
+package com.solara.backend.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.solara.backend.entity.EspDevice;
+import com.solara.backend.utils.TransactionHooks;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tracks device liveness (esp_devices.last_seen_at) in memory.
+ *
+ * Telemetry ingest only records the time a device was seen; a scheduled flush
+ * writes every device that reported since the previous flush with one bulk
+ * UPDATE ... FROM (VALUES ...) statement. The database write rate therefore
+ * depends on the number of devices and the flush interval, not on how often
+ * the devices report. Readers should go through {@link #getLastSeenAt(EspDevice)}
+ * so they see the in-memory value before it is flushed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DeviceHeartbeatService {
+
+    private static final int FLUSH_CHUNK_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Latest time each device was seen since startup */
+    private final Map<UUID, LocalDateTime> lastSeen = new ConcurrentHashMap<>();
+    /** Devices seen since the last flush */
+    private final Map<UUID, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    /** Records a reading of the device; applied once the ingest transaction that stored it commits. */
+    public void recordSeen(UUID espDeviceId, LocalDateTime seenAt) {
+        TransactionHooks.afterCommit(() -> {
+            lastSeen.merge(espDeviceId, seenAt, DeviceHeartbeatService::latest);
+            pending.merge(espDeviceId, seenAt, DeviceHeartbeatService::latest);
+        });
+    }
+
+    /** Latest known lastSeenAt: the in-memory value if newer than the persisted one. */
+    public LocalDateTime getLastSeenAt(EspDevice device) {
+        if (device == null) {
+            return null;
+        }
+        return latest(lastSeen.get(device.getId()), device.getLastSeenAt());
+    }
+
+    public void forget(UUID espDeviceId) {
+        lastSeen.remove(espDeviceId);
+        pending.remove(espDeviceId);
+    }
+
+    @Scheduled(fixedDelayString = "${telemetry.heartbeat.flush-interval-ms:30000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // Take ownership of the pending entries; a device reporting meanwhile is simply re-added
+        List<Object[]> rows = new ArrayList<>(pending.size());
+        for (UUID id : pending.keySet()) {
+            LocalDateTime seenAt = pending.remove(id);
+            if (seenAt != null) {
+                rows.add(new Object[]{id, seenAt});
+            }
+        }
+
+        for (int from = 0; from < rows.size(); from += FLUSH_CHUNK_SIZE) {
+            List<Object[]> chunk = rows.subList(from, Math.min(from + FLUSH_CHUNK_SIZE, rows.size()));
+            try {
+                writeChunk(chunk);
+            } catch (Exception e) {
+                log.error("[Heartbeat] Failed to flush lastSeenAt for {} devices, will retry", chunk.size(), e);
+                for (Object[] row : chunk) {
+                    pending.merge((UUID) row[0], (LocalDateTime) row[1], DeviceHeartbeatService::latest);
+                }
+            }
+        }
+        log.debug("[Heartbeat] Flushed lastSeenAt for {} devices", rows.size());
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private void writeChunk(List<Object[]> chunk) {
+        StringBuilder sql = new StringBuilder("UPDATE esp_devices AS d SET last_seen_at = v.seen_at FROM (VALUES ");
+        Object[] params = new Object[chunk.size() * 2];
+        for (int i = 0; i < chunk.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(CAST(? AS uuid), CAST(? AS timestamp))");
+            params[i * 2] = chunk.get(i)[0];
+            params[i * 2 + 1] = Timestamp.valueOf((LocalDateTime) chunk.get(i)[1]);
+        }
+        // Never move last_seen_at backwards
+        sql.append(") AS v(id, seen_at) WHERE d.id = v.id AND (d.last_seen_at IS NULL OR d.last_seen_at < v.seen_at)");
+        jdbcTemplate.update(sql.toString(), params);
+    }
+
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.isAfter(b) ? a : b;
+    }
+}
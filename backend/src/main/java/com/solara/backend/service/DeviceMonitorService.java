@@ -1,25 +1,43 @@
 package com.solara.backend.service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.util.List;
-
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import com.solara.backend.entity.Field;
 import com.solara.backend.entity.User;
 import com.solara.backend.repository.FieldRepository;
-import com.solara.backend.repository.SensorLogsRepository;
 import com.solara.backend.repository.UserRepository;
+import com.solara.backend.utils.TransactionHooks;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * Runs an hourly cron job to detect ESP32 devices that have gone offline.
+ * Detects ESP32 devices that have gone offline.
  * A device is considered offline if its paired field has received no sensor
- * data in the last 24 hours.
+ * data for {@code device.monitor.offline-after-hours} (24h by default).
+ *
+ * Every paired field has an in-memory watch holding the time its device was
+ * last seen, plus at most one deadline in a DelayQueue. Telemetry only bumps
+ * the watch's timestamp; when a deadline expires the checker re-arms it from
+ * the latest timestamp, or fires the offline alert if the device really has
+ * been silent. If sending the alert fails, the watch is re-armed
+ * {@code device.monitor.retry-delay-ms} later and the alert is tried again.
+ * The next reading from an offline device fires the back-online
+ * transition. Only the transitions touch the database (fields.last_offline_alert_sent_at).
  */
 @Slf4j
 @Service
@@ -27,88 +45,176 @@ import lombok.extern.slf4j.Slf4j;
 public class DeviceMonitorService {
 
     private final FieldRepository fieldRepository;
-    private final SensorLogsRepository sensorLogsRepository;
     private final UserRepository userRepository;
     private final EmailService emailService;
+    private final MailTemplates mailTemplates;
     private final PushNotificationService pushNotificationService;
 
+    @Value("${device.monitor.offline-after-hours:24}")
+    private long offlineAfterHours;
+
+    @Value("${device.monitor.retry-delay-ms:300000}")
+    private long retryDelayMs;
+
+    private final Map<UUID, Watch> watches = new ConcurrentHashMap<>();
+    private final DelayQueue<Deadline> deadlines = new DelayQueue<>();
+
+    private static final class Watch {
+        final UUID fieldId;
+        volatile long lastSeenMillis;
+        final AtomicBoolean offline;
+        final AtomicBoolean armed = new AtomicBoolean();
+
+        Watch(UUID fieldId, long lastSeenMillis, boolean offline) {
+            this.fieldId = fieldId;
+            this.lastSeenMillis = lastSeenMillis;
+            this.offline = new AtomicBoolean(offline);
+        }
+    }
+
+    private record Deadline(Watch watch, long dueAtMillis) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtMillis, ((Deadline) other).dueAtMillis);
+        }
+    }
+
+    /** Rebuild the watches from the paired fields once at startup. */
+    @PostConstruct
+    void load() {
+        long now = System.currentTimeMillis();
+        for (FieldRepository.DeviceWatchView view : fieldRepository.findAllDeviceWatchStates()) {
+            // A device that never reported gets a full grace period from startup
+            long lastSeen = view.getLastSeenAt() != null ? toMillis(view.getLastSeenAt()) : now;
+            Watch watch = new Watch(view.getFieldId(), lastSeen, view.getLastOfflineAlertSentAt() != null);
+            watches.put(watch.fieldId, watch);
+            if (!watch.offline.get()) {
+                arm(watch);
+            }
+        }
+        log.info("[DeviceMonitor] Watching {} paired devices (offline after {}h).", watches.size(), offlineAfterHours);
+    }
+
+    /** Called by the telemetry writer for every persisted reading. O(1), no database access unless the device was offline. */
+    public void onTelemetry(UUID fieldId, LocalDateTime seenAt) {
+        // Only paired fields are watched; a late reading must not resurrect the watch of an unpaired or deleted field
+        Watch watch = watches.get(fieldId);
+        if (watch == null) {
+            return;
+        }
+        long seenMillis = toMillis(seenAt);
+        if (seenMillis > watch.lastSeenMillis) {
+            watch.lastSeenMillis = seenMillis;
+        }
+
+        if (watch.offline.compareAndSet(true, false)) {
+            // Device is online again. Reset the tracker so the next outage alerts again.
+            log.info("[DeviceMonitor] Field '{}' is back online. Resetting alert tracker.", fieldId);
+            fieldRepository.updateLastOfflineAlertSentAt(fieldId, null);
+        }
+        arm(watch);
+    }
+
+    /** Start watching a newly paired field once the pairing commits; the grace period starts then. */
+    public void watch(UUID fieldId) {
+        TransactionHooks.afterCommit(() -> {
+            Watch watch = new Watch(fieldId, System.currentTimeMillis(), false);
+            watches.put(fieldId, watch);
+            arm(watch);
+        });
+    }
+
+    /** Stop watching a field (device unpaired or field deleted) once that commits. Its queued deadline is discarded lazily. */
+    public void unwatch(UUID fieldId) {
+        TransactionHooks.afterCommit(() -> watches.remove(fieldId));
+    }
+
     /**
-     * Cron expression: "0 0 * * * *" = top of every hour.
-     * For testing you can change this to "0 * * * * *" (every minute).
+     * Pops the expired deadlines. Runs every few seconds, but only touches the
+     * deadlines that are due, so the cost does not depend on the number of fields.
      */
-    @Scheduled(cron = "0 0 * * * *")
+    @Scheduled(fixedDelayString = "${device.monitor.check-interval-ms:5000}")
     public void checkOfflineDevices() {
-        log.info("[DeviceMonitor] Running hourly offline device check...");
-
-        LocalDateTime threshold = LocalDateTime.now(ZoneOffset.UTC).minusHours(24);
-
-        // Get all fields that have a device paired
-        List<Field> pairedFields = fieldRepository.findAll().stream()
-                .filter(f -> f.getEspDevice() != null && !f.getEspDevice().getSerialNumber().isBlank())
-                .toList();
-
-        for (Field field : pairedFields) {
-            boolean hasRecentData = sensorLogsRepository
-                    .existsByFieldIdAndTimestampAfter(field.getId(), threshold);
-
-            if (!hasRecentData) {
-                // Only send alert if we haven't already sent one for this specific offline event
-                if (field.getLastOfflineAlertSentAt() == null) {
-                    log.warn("[DeviceMonitor] Field '{}' (device='{}') has been OFFLINE for 24h. Sending alert.",
-                            field.getName(), field.getEspDevice().getSerialNumber());
-
-                    // Send alert to the field owner
-                    userRepository.findById(field.getUserId()).ifPresent(user -> {
-                        sendOfflineAlert(user, field);
-                        pushNotificationService.sendOfflineDevicePush(
-                                user.getID(),
-                                field.getName(),
-                                field.getEspDevice().getSerialNumber());
-                        field.setLastOfflineAlertSentAt(LocalDateTime.now(ZoneOffset.UTC));
-                        fieldRepository.save(field);
-                    });
-                }
-            } else {
-                // Device is online. If we had previously sent an alert, reset the tracker
-                if (field.getLastOfflineAlertSentAt() != null) {
-                    log.info("[DeviceMonitor] Field '{}' is back online. Resetting alert tracker.", field.getName());
-                    field.setLastOfflineAlertSentAt(null);
-                    fieldRepository.save(field);
+        long offlineAfterMillis = Duration.ofHours(offlineAfterHours).toMillis();
+        Deadline deadline;
+        while ((deadline = deadlines.poll()) != null) {
+            Watch watch = deadline.watch();
+            if (watches.get(watch.fieldId) != watch) {
+                continue; // unwatched or replaced by a re-pairing
+            }
+            watch.armed.set(false);
+
+            long dueAt = watch.lastSeenMillis + offlineAfterMillis;
+            if (dueAt > System.currentTimeMillis()) {
+                arm(watch); // seen since this deadline was armed
+                continue;
+            }
+
+            if (watch.offline.compareAndSet(false, true)) {
+                try {
+                    fireOffline(watch.fieldId);
+                } catch (Exception e) {
+                    log.error("[DeviceMonitor] Failed to send offline alert for field {}, retrying in {} ms",
+                            watch.fieldId, retryDelayMs, e);
+                    // The alert was not recorded; unless the device came back meanwhile, try again later
+                    if (watch.offline.compareAndSet(true, false)) {
+                        arm(watch, System.currentTimeMillis() + retryDelayMs);
+                    }
                 }
             }
         }
+    }
 
-        log.info("[DeviceMonitor] Offline device check complete.");
+    private void arm(Watch watch) {
+        arm(watch, watch.lastSeenMillis + Duration.ofHours(offlineAfterHours).toMillis());
     }
 
-    private void sendOfflineAlert(User user, Field field) {
-        String lang = user.getPreferredLanguage() != null ? user.getPreferredLanguage().toLowerCase() : "en";
-        String subject;
-        String htmlBody;
-
-        if (lang.startsWith("tr")) {
-            subject = "Solara - Cihaz Çevrimdışı Uyarısı: " + field.getName();
-            htmlBody = "<div style='font-family: Arial, sans-serif; max-width: 600px; margin: 0 auto;"
-                    + "padding: 20px; border: 1px solid #e0e0e0; border-radius: 10px;'>"
-                    + "<h2 style='color: #C53030;'> Cihaz Çevrimdışı Uyarısı</h2>"
-                    + "<p>Merhaba,</p>"
-                    + "<p><strong>" + field.getName() + "</strong> tarlası ile eşleşen <strong>" + field.getEspDevice().getSerialNumber() + "</strong> seri numaralı cihazınız son 24 saattir veri göndermedi.</p>"
-                    + "<p>Lütfen cihazınızın açık ve WiFi ağına bağlı olduğundan emin olun.</p>"
-                    + "<p>Teşekkürler,<br/>Solara Ekibi</p>"
-                    + "</div>";
-        } else {
-            subject = "Solara - Device Offline Alert: " + field.getName();
-            htmlBody = "<div style='font-family: Arial, sans-serif; max-width: 600px; margin: 0 auto;"
-                    + "padding: 20px; border: 1px solid #e0e0e0; border-radius: 10px;'>"
-                    + "<h2 style='color: #C53030;'> Device Offline Alert</h2>"
-                    + "<p>Hello,</p>"
-                    + "<p>Your device <strong>" + field.getEspDevice().getSerialNumber() + "</strong> paired to field "
-                    + "<strong>" + field.getName() + "</strong> has not sent any data in the last 24 hours.</p>"
-                    + "<p>Please check that your device is powered on and connected to WiFi.</p>"
-                    + "<p>Thanks,<br/>The Solara Team</p>"
-                    + "</div>";
+    private void arm(Watch watch, long dueAtMillis) {
+        if (watch.armed.compareAndSet(false, true)) {
+            deadlines.offer(new Deadline(watch, dueAtMillis));
+        }
+    }
+
+    private void fireOffline(UUID fieldId) {
+        Field field = fieldRepository.findById(fieldId).orElse(null);
+        if (field == null || field.getEspDevice() == null || field.getEspDevice().getSerialNumber().isBlank()) {
+            watches.remove(fieldId);
+            return;
+        }
+
+        // Only send alert if we haven't already sent one for this specific offline event
+        if (field.getLastOfflineAlertSentAt() != null) {
+            return;
         }
 
-        emailService.sendHtmlEmail(user.getEmail(), subject, htmlBody);
+        log.warn("[DeviceMonitor] Field '{}' (device='{}') has been OFFLINE for {}h. Sending alert.",
+                field.getName(), field.getEspDevice().getSerialNumber(), offlineAfterHours);
+
+        // Send alert to the field owner
+        userRepository.findById(field.getUserId()).ifPresent(user -> {
+            sendOfflineAlert(user, field);
+            pushNotificationService.sendOfflineDevicePush(
+                    user.getID(),
+                    field.getName(),
+                    field.getEspDevice().getSerialNumber(),
+                    offlineAfterHours);
+            fieldRepository.updateLastOfflineAlertSentAt(fieldId, LocalDateTime.now(ZoneOffset.UTC));
+        });
+    }
+
+    private static long toMillis(LocalDateTime utc) {
+        return utc.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private void sendOfflineAlert(User user, Field field) {
+        emailService.send(user.getEmail(), mailTemplates.render("device_offline", user.getPreferredLanguage(), Map.of(
+                "fieldName", field.getName(),
+                "serialNumber", field.getEspDevice().getSerialNumber(),
+                "hours", offlineAfterHours)));
     }
 }
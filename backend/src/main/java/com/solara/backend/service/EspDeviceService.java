@@ -20,16 +20,21 @@ public class EspDeviceService {
 
     private final EspDeviceRepository espDeviceRepository;
     private final FieldService fieldService;
+    private final DeviceFieldIndex deviceFieldIndex;
+    private final DeviceHeartbeatService deviceHeartbeatService;
 
-    public EspDeviceService(EspDeviceRepository espDeviceRepository, FieldService fieldService) {
+    public EspDeviceService(EspDeviceRepository espDeviceRepository, FieldService fieldService, DeviceFieldIndex deviceFieldIndex,
+                            DeviceHeartbeatService deviceHeartbeatService) {
         this.espDeviceRepository = espDeviceRepository;
         this.fieldService = fieldService;
+        this.deviceFieldIndex = deviceFieldIndex;
+        this.deviceHeartbeatService = deviceHeartbeatService;
     }
 
     public List<EspDeviceResponseDTO> getAllDevices() {
         return espDeviceRepository.findAll()
                 .stream()
-                .map(EspDeviceResponseDTO::new)
+                .map(this::toResponse)
                 .collect(Collectors.toList());
     }
 
@@ -45,7 +50,7 @@ public class EspDeviceService {
                 .build();
 
         device = espDeviceRepository.save(device);
-        return new EspDeviceResponseDTO(device);
+        return toResponse(device);
     }
 
     @Transactional
@@ -57,10 +62,14 @@ public class EspDeviceService {
             throw new AppException(HttpStatus.BAD_REQUEST, "Another device with this serial number already exists.");
         }
 
+        String oldSerial = device.getSerialNumber();
         device.setSerialNumber(dto.getSerialNumber());
         device.setStatus(dto.getStatus());
         device = espDeviceRepository.save(device);
-        return new EspDeviceResponseDTO(device);
+        if (!oldSerial.equals(device.getSerialNumber())) {
+            deviceFieldIndex.renameSerial(oldSerial, device.getSerialNumber());
+        }
+        return toResponse(device);
     }
 
     @Transactional
@@ -73,6 +82,8 @@ public class EspDeviceService {
         }
 
         espDeviceRepository.delete(device);
+        deviceFieldIndex.unbindSerial(device.getSerialNumber());
+        deviceHeartbeatService.forget(device.getId());
     }
 
     @Transactional
@@ -84,7 +95,7 @@ public class EspDeviceService {
         fieldService.pairDevice(fieldId, device.getSerialNumber());
         
         device = espDeviceRepository.findById(deviceId).get(); // re-fetch to get mapped field
-        return new EspDeviceResponseDTO(device);
+        return toResponse(device);
     }
 
     @Transactional
@@ -97,6 +108,13 @@ public class EspDeviceService {
         }
 
         device = espDeviceRepository.findById(deviceId).get();
-        return new EspDeviceResponseDTO(device);
+        return toResponse(device);
+    }
+
+    /** lastSeenAt comes from the heartbeat tracker, which may be ahead of the database. */
+    private EspDeviceResponseDTO toResponse(EspDevice device) {
+        EspDeviceResponseDTO dto = new EspDeviceResponseDTO(device);
+        dto.setLastSeenAt(deviceHeartbeatService.getLastSeenAt(device));
+        return dto;
     }
  }
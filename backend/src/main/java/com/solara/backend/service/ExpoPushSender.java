@@ -0,0 +1,265 @@
+package com.solara.backend.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends Expo push messages in batches.
+ *
+ * Messages from all users are queued and a single thread sends them in chunks
+ * of up to {@value #CHUNK_SIZE} (Expo's limit per request), waiting at most
+ * {@code expo.push.batch-window-ms} for a chunk to fill. Each caller gets a future
+ * that completes when its chunk was accepted or fails with the transport error.
+ * A message whose ticket comes back with an error other than DeviceNotRegistered
+ * or MessageTooBig (e.g. MessageRateExceeded) fails its future too, so the caller
+ * can retry it later; a message that is too big would fail every time and is
+ * only logged.
+ *
+ * Tokens reported as DeviceNotRegistered, either in the immediate tickets or in
+ * the receipts polled {@code expo.push.receipts.delay-ms} later, are deactivated
+ * in bulk. Pending receipt ids are kept in memory only; a restart loses them.
+ */
+@Slf4j
+@Service
+public class ExpoPushSender {
+
+    public static final int CHUNK_SIZE = 100;
+    private static final int RECEIPT_CHUNK_SIZE = 1000;
+    // Expo keeps receipts for about a day
+    private static final long RECEIPT_TTL_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    public record PushMessage(String token, String title, String body, Map<String, Object> data) {
+    }
+
+    private record Pending(PushMessage message, CompletableFuture<Void> result) {
+    }
+
+    private record PendingReceipt(String token, long sentAtMillis) {
+    }
+
+    private final RestTemplate restTemplate;
+    private final PushTokenService pushTokenService;
+    private final String sendUrl;
+    private final String receiptsUrl;
+    private final long batchWindowMs;
+    private final long receiptDelayMs;
+
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Map<String, PendingReceipt> pendingReceipts = new ConcurrentHashMap<>();
+    private volatile boolean running;
+    private Thread sender;
+
+    public ExpoPushSender(@Qualifier("expoPushRestTemplate") RestTemplate restTemplate,
+            PushTokenService pushTokenService,
+            @Value("${expo.push.url:https://exp.host/--/api/v2/push/send}") String sendUrl,
+            @Value("${expo.push.receipts-url:https://exp.host/--/api/v2/push/getReceipts}") String receiptsUrl,
+            @Value("${expo.push.batch-window-ms:200}") long batchWindowMs,
+            @Value("${expo.push.receipts.delay-ms:900000}") long receiptDelayMs) {
+        this.restTemplate = restTemplate;
+        this.pushTokenService = pushTokenService;
+        this.sendUrl = sendUrl;
+        this.receiptsUrl = receiptsUrl;
+        this.batchWindowMs = batchWindowMs;
+        this.receiptDelayMs = receiptDelayMs;
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        sender = Thread.ofPlatform()
+                .name("expo-push-sender")
+                .start(this::sendLoop);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        sender.join(10_000);
+    }
+
+    /** Queues the messages; the future completes once all of them were handed to Expo. */
+    public CompletableFuture<Void> send(List<PushMessage> messages) {
+        if (messages.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<CompletableFuture<Void>> results = new ArrayList<>(messages.size());
+        for (PushMessage message : messages) {
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            queue.add(new Pending(message, result));
+            results.add(result);
+        }
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture[0]));
+    }
+
+    public int pendingReceiptCount() {
+        return pendingReceipts.size();
+    }
+
+    private void sendLoop() {
+        List<Pending> chunk = new ArrayList<>(CHUNK_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                chunk.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchWindowMs);
+                while (chunk.size() < CHUNK_SIZE) {
+                    queue.drainTo(chunk, CHUNK_SIZE - chunk.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (chunk.size() >= CHUNK_SIZE || remaining <= 0 || !running) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        chunk.add(next);
+                    }
+                }
+                sendChunk(chunk);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                chunk.forEach(pending -> pending.result().completeExceptionally(e));
+                return;
+            } finally {
+                chunk.clear();
+            }
+        }
+    }
+
+    private void sendChunk(List<Pending> chunk) {
+        List<Map<String, Object>> payload = new ArrayList<>(chunk.size());
+        for (Pending pending : chunk) {
+            PushMessage message = pending.message();
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("to", message.token());
+            entry.put("title", message.title());
+            entry.put("body", message.body());
+            entry.put("sound", "default");
+            entry.put("channelId", "alerts");
+            entry.put("priority", "high");
+            entry.put("data", message.data());
+            payload.add(entry);
+        }
+
+        Map<?, ?> response;
+        try {
+            response = restTemplate.postForObject(sendUrl, payload, Map.class);
+        } catch (Exception e) {
+            log.error("[Push] Failed to send chunk of {} Expo messages", chunk.size(), e);
+            chunk.forEach(pending -> pending.result().completeExceptionally(e));
+            return;
+        }
+
+        Set<String> deadTokens = new HashSet<>();
+        if (response != null && response.get("data") instanceof List<?> tickets) {
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < tickets.size() && i < chunk.size(); i++) {
+                if (!(tickets.get(i) instanceof Map<?, ?> ticket)) {
+                    continue;
+                }
+                String token = chunk.get(i).message().token();
+                if ("ok".equals(ticket.get("status")) && ticket.get("id") instanceof String receiptId) {
+                    pendingReceipts.put(receiptId, new PendingReceipt(token, now));
+                } else if (isDeviceNotRegistered(ticket)) {
+                    deadTokens.add(token);
+                } else if ("error".equals(ticket.get("status"))) {
+                    String error = errorOf(ticket);
+                    log.warn("[Push] Expo rejected message to {}: {} {}", token, error, ticket.get("message"));
+                    if (!"MessageTooBig".equals(error)) {
+                        chunk.get(i).result().completeExceptionally(
+                                new IllegalStateException("Expo rejected push: " + error + " - " + ticket.get("message")));
+                    }
+                }
+            }
+        }
+        deactivate(deadTokens);
+        // No-op for the futures already failed above
+        chunk.forEach(pending -> pending.result().complete(null));
+    }
+
+    /**
+     * Fetches the receipts of messages sent at least receipts.delay-ms ago and
+     * deactivates the tokens Expo could not deliver to.
+     */
+    @Scheduled(fixedDelayString = "${expo.push.receipts.poll-interval-ms:300000}")
+    public void pollReceipts() {
+        long now = System.currentTimeMillis();
+        List<String> due = new ArrayList<>();
+        pendingReceipts.forEach((id, receipt) -> {
+            if (now - receipt.sentAtMillis() >= RECEIPT_TTL_MILLIS) {
+                pendingReceipts.remove(id);
+            } else if (now - receipt.sentAtMillis() >= receiptDelayMs) {
+                due.add(id);
+            }
+        });
+
+        Set<String> deadTokens = new HashSet<>();
+        for (int from = 0; from < due.size(); from += RECEIPT_CHUNK_SIZE) {
+            List<String> ids = due.subList(from, Math.min(from + RECEIPT_CHUNK_SIZE, due.size()));
+            Map<?, ?> response;
+            try {
+                response = restTemplate.postForObject(receiptsUrl, Map.of("ids", ids), Map.class);
+            } catch (Exception e) {
+                log.warn("[Push] Failed to fetch {} Expo receipts, will retry: {}", ids.size(), e.getMessage());
+                continue;
+            }
+            if (response == null || !(response.get("data") instanceof Map<?, ?> receipts)) {
+                continue;
+            }
+            // Ids missing from the response are not ready yet and stay pending
+            for (String id : ids) {
+                if (!(receipts.get(id) instanceof Map<?, ?> receipt)) {
+                    continue;
+                }
+                PendingReceipt pending = pendingReceipts.remove(id);
+                if (pending != null && isDeviceNotRegistered(receipt)) {
+                    deadTokens.add(pending.token());
+                }
+            }
+        }
+        deactivate(deadTokens);
+    }
+
+    private void deactivate(Set<String> deadTokens) {
+        if (deadTokens.isEmpty()) {
+            return;
+        }
+        try {
+            int deactivated = pushTokenService.deactivateTokens(deadTokens);
+            log.info("[Push] Deactivated {} unregistered Expo tokens", deactivated);
+        } catch (Exception e) {
+            log.error("[Push] Failed to deactivate {} unregistered Expo tokens", deadTokens.size(), e);
+        }
+    }
+
+    private static boolean isDeviceNotRegistered(Map<?, ?> ticketOrReceipt) {
+        return "error".equals(ticketOrReceipt.get("status"))
+                && "DeviceNotRegistered".equals(errorOf(ticketOrReceipt));
+    }
+
+    private static String errorOf(Map<?, ?> ticketOrReceipt) {
+        return ticketOrReceipt.get("details") instanceof Map<?, ?> details && details.get("error") instanceof String error
+                ? error
+                : null;
+    }
+}
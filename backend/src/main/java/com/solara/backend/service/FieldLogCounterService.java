@@ -0,0 +1,116 @@
+package com.solara.backend.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.solara.backend.repository.FieldLogCounterRepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Maintains field_log_counters, the per-field number of sensor and analysis logs.
+ *
+ * The telemetry writer and AnalysisService add to the counters in the same
+ * transaction as the rows they insert; retention subtracts a partition's rows
+ * before dropping it. The admin dashboard reads per-user sums for a whole page
+ * with one grouped query instead of counting sensor_logs per field.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FieldLogCounterService {
+
+    public record LogCounts(long sensorLogs, long analysisLogs) {
+        public static final LogCounts EMPTY = new LogCounts(0, 0);
+    }
+
+    // user_id is taken from fields, so a counter row can be created by any writer
+    private static final String INCREMENT_SQL = """
+            INSERT INTO field_log_counters AS c (field_id, user_id, sensor_log_count, analysis_log_count)
+            SELECT f.id, f.user_id, ?, ? FROM fields f WHERE f.id = ?
+            ON CONFLICT (field_id) DO UPDATE SET
+                   sensor_log_count = c.sensor_log_count + EXCLUDED.sensor_log_count,
+                   analysis_log_count = c.analysis_log_count + EXCLUDED.analysis_log_count
+            """;
+
+    private static final String REBUILD_SQL = """
+            INSERT INTO field_log_counters (field_id, user_id, sensor_log_count, analysis_log_count)
+            SELECT f.id, f.user_id, COALESCE(s.total, 0), COALESCE(a.total, 0)
+            FROM fields f
+            LEFT JOIN (SELECT field_id, COUNT(*) AS total FROM sensor_logs GROUP BY field_id) s ON s.field_id = f.id
+            LEFT JOIN (SELECT field_id, COUNT(*) AS total FROM analysis_logs GROUP BY field_id) a ON a.field_id = f.id
+            """;
+
+    private final FieldLogCounterRepository fieldLogCounterRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Seeds the counters once, the first time the table is empty. */
+    @PostConstruct
+    void load() {
+        if (fieldLogCounterRepository.count() == 0) {
+            int seeded = jdbcTemplate.update(REBUILD_SQL);
+            log.info("[LogCounters] Seeded counters for {} fields.", seeded);
+        }
+    }
+
+    /** Adds sensor log counts per field. Runs in the ingest transaction. */
+    public void addSensorLogs(Map<UUID, Long> countsByField) {
+        List<Object[]> args = new ArrayList<>(countsByField.size());
+        countsByField.forEach((fieldId, count) -> args.add(new Object[] { count, 0L, fieldId }));
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(INCREMENT_SQL, args);
+        }
+    }
+
+    public void addAnalysisLog(UUID fieldId) {
+        jdbcTemplate.update(INCREMENT_SQL, 0L, 1L, fieldId);
+    }
+
+    /** Subtracts the rows of a sensor_logs partition that is about to be dropped. Runs in the caller's transaction. */
+    public void subtractSensorLogPartition(String partitionTable) {
+        jdbcTemplate.update("UPDATE field_log_counters c SET sensor_log_count = GREATEST(c.sensor_log_count - d.total, 0)"
+                + " FROM (SELECT field_id, COUNT(*) AS total FROM " + partitionTable + " GROUP BY field_id) d"
+                + " WHERE c.field_id = d.field_id");
+    }
+
+    public void forgetField(UUID fieldId) {
+        jdbcTemplate.update("DELETE FROM field_log_counters WHERE field_id = ?", fieldId);
+    }
+
+    /**
+     * Recounts every field from sensor_logs and analysis_logs. Rows inserted while
+     * the rebuild runs may be counted twice or not at all; run it when ingest is quiet.
+     */
+    @Transactional
+    public int rebuild() {
+        jdbcTemplate.update("DELETE FROM field_log_counters");
+        int rows = jdbcTemplate.update(REBUILD_SQL);
+        log.info("[LogCounters] Rebuilt counters for {} fields.", rows);
+        return rows;
+    }
+
+    /** Counts for every given user; users without fields map to {@link LogCounts#EMPTY}. */
+    public Map<UUID, LogCounts> getCountsForUsers(Collection<UUID> userIds) {
+        Map<UUID, LogCounts> counts = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return counts;
+        }
+        for (FieldLogCounterRepository.UserLogCountsView view : fieldLogCounterRepository.sumByUserIds(userIds)) {
+            counts.put(view.getUserId(), new LogCounts(view.getSensorLogCount(), view.getAnalysisLogCount()));
+        }
+        for (UUID userId : userIds) {
+            counts.putIfAbsent(userId, LogCounts.EMPTY);
+        }
+        return counts;
+    }
+}
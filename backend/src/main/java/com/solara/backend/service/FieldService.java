@@ -18,20 +18,31 @@ public class FieldService {
 
     private final FieldRepository fieldRepository;
     private final WeatherSyncService weatherSyncService;
+    private final WeatherBackfillService weatherBackfillService;
     private final com.solara.backend.repository.EspDeviceRepository espDeviceRepository;
-
-    public FieldService(FieldRepository fieldRepo, WeatherSyncService weatherSyncService, com.solara.backend.repository.EspDeviceRepository espDeviceRepository) {
+    private final DeviceFieldIndex deviceFieldIndex;
+    private final DeviceMonitorService deviceMonitorService;
+    private final FieldLogCounterService fieldLogCounterService;
+
+    public FieldService(FieldRepository fieldRepo, WeatherSyncService weatherSyncService, WeatherBackfillService weatherBackfillService,
+                        com.solara.backend.repository.EspDeviceRepository espDeviceRepository,
+                        DeviceFieldIndex deviceFieldIndex, DeviceMonitorService deviceMonitorService,
+                        FieldLogCounterService fieldLogCounterService) {
         this.fieldRepository = fieldRepo;
         this.weatherSyncService = weatherSyncService;
+        this.weatherBackfillService = weatherBackfillService;
         this.espDeviceRepository = espDeviceRepository;
+        this.deviceFieldIndex = deviceFieldIndex;
+        this.deviceMonitorService = deviceMonitorService;
+        this.fieldLogCounterService = fieldLogCounterService;
     }
 
     @Transactional
     public Field createField(Field field) {
         Field savedField = fieldRepository.save(field);
         
-        // Fetch past year's data for the new field
-        weatherSyncService.initializeFieldWeatherData(savedField);
+        // Fetch past year's data for the new field in the background
+        weatherBackfillService.requestBackfill(savedField.getId());
         
         return savedField;
     }
@@ -72,7 +83,7 @@ public class FieldService {
         
         if (locationChanged) {
             weatherSyncService.deleteWeatherLogsForField(id);
-            weatherSyncService.initializeFieldWeatherData(savedField);
+            weatherBackfillService.requestBackfill(savedField.getId());
         }
 
         return savedField;
@@ -84,6 +95,9 @@ public class FieldService {
 
         weatherSyncService.deleteWeatherLogsForField(id);
         fieldRepository.delete(existingField);
+        fieldLogCounterService.forgetField(id);
+        deviceFieldIndex.unbindField(id);
+        deviceMonitorService.unwatch(id);
     }
 
     /**
@@ -107,7 +121,10 @@ public class FieldService {
         }
 
         field.setEspDevice(espDevice);
-        return fieldRepository.save(field);
+        Field saved = fieldRepository.save(field);
+        deviceFieldIndex.bind(saved);
+        deviceMonitorService.watch(fieldId);
+        return saved;
     }
 
     /**
@@ -117,7 +134,10 @@ public class FieldService {
         Field field = fieldRepository.findById(fieldId)
                 .orElseThrow(() -> new AppException(HttpStatus.NOT_FOUND, "Field not found with id: " + fieldId));
         field.setEspDevice(null);
-        return fieldRepository.save(field);
+        Field saved = fieldRepository.save(field);
+        deviceFieldIndex.unbindField(fieldId);
+        deviceMonitorService.unwatch(fieldId);
+        return saved;
     }
 
     public String getFieldName(UUID fieldId) {
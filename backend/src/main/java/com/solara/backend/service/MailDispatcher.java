@@ -0,0 +1,171 @@
+package com.solara.backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends all outgoing email from a bounded queue on a few dedicated threads.
+ *
+ * Each worker takes up to {@code mail.sender.batch-size} queued messages and
+ * hands them to JavaMailSender in one call, which delivers them over a single
+ * SMTP connection; under load (e.g. a frost night) connection setup and TLS
+ * are paid once per batch instead of once per email. Messages the server
+ * rejected are retried once in the next batch. When the queue is full new
+ * messages are dropped and logged rather than blocking the caller. Callers that
+ * must know whether the email went out use {@link #deliver}.
+ */
+@Slf4j
+@Service
+public class MailDispatcher {
+
+    private record Outgoing(String to, MailTemplates.Mail mail, boolean retried, CompletableFuture<Void> result) {
+    }
+
+    private final JavaMailSender javaMailSender;
+    private final String fromEmail;
+    private final int threads;
+    private final int batchSize;
+    private final BlockingQueue<Outgoing> queue;
+
+    private volatile boolean running;
+    private final List<Thread> workers = new ArrayList<>();
+
+    public MailDispatcher(JavaMailSender javaMailSender,
+            @Value("${spring.mail.username}") String fromEmail,
+            @Value("${mail.sender.threads:2}") int threads,
+            @Value("${mail.sender.batch-size:50}") int batchSize,
+            @Value("${mail.sender.queue-capacity:5000}") int queueCapacity) {
+        this.javaMailSender = javaMailSender;
+        this.fromEmail = fromEmail;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        for (int i = 0; i < threads; i++) {
+            workers.add(Thread.ofPlatform()
+                    .name("mail-sender-" + i)
+                    .start(this::sendLoop));
+        }
+        log.info("[Mail] Started {} mail sender threads (batchSize={})", threads, batchSize);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.join(30_000);
+        }
+        List<Outgoing> unsent = new ArrayList<>();
+        queue.drainTo(unsent);
+        if (!unsent.isEmpty()) {
+            log.warn("[Mail] {} emails were not sent before shutdown", unsent.size());
+            unsent.forEach(outgoing -> outgoing.result().completeExceptionally(new MailSendException("Mail sender shut down")));
+        }
+    }
+
+    /** Queues an email; returns false if the queue is full and it was dropped. */
+    public boolean submit(String to, MailTemplates.Mail mail) {
+        return offer(new Outgoing(to, mail, false, new CompletableFuture<>()));
+    }
+
+    /**
+     * Queues an email and returns a future that completes once the SMTP server
+     * accepted it, or exceptionally if the queue is full or sending failed after
+     * the retry.
+     */
+    public CompletableFuture<Void> deliver(String to, MailTemplates.Mail mail) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        if (!offer(new Outgoing(to, mail, false, result))) {
+            result.completeExceptionally(new MailSendException("Mail queue is full"));
+        }
+        return result;
+    }
+
+    private boolean offer(Outgoing outgoing) {
+        boolean accepted = queue.offer(outgoing);
+        if (!accepted) {
+            log.warn("[Mail] Queue full, dropped email '{}' to {}", outgoing.mail().subject(), outgoing.to());
+        }
+        return accepted;
+    }
+
+    private void sendLoop() {
+        List<Outgoing> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Outgoing first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                sendBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("[Mail] Failed to send batch of {} emails", batch.size(), e);
+                batch.forEach(outgoing -> outgoing.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void sendBatch(List<Outgoing> batch) throws MessagingException {
+        MimeMessage[] messages = new MimeMessage[batch.size()];
+        for (int i = 0; i < messages.length; i++) {
+            Outgoing outgoing = batch.get(i);
+            MimeMessage message = javaMailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+            helper.setFrom(fromEmail);
+            helper.setTo(outgoing.to());
+            helper.setSubject(outgoing.mail().subject());
+            helper.setText(outgoing.mail().html(), true);
+            messages[i] = message;
+        }
+
+        try {
+            javaMailSender.send(messages);
+            log.info("[Mail] Sent {} emails", messages.length);
+            batch.forEach(outgoing -> outgoing.result().complete(null));
+        } catch (MailSendException e) {
+            Map<Object, Exception> failed = e.getFailedMessages();
+            for (int i = 0; i < messages.length; i++) {
+                Outgoing outgoing = batch.get(i);
+                // On a connection failure every message of the batch is in the map
+                if (!failed.containsKey(messages[i])) {
+                    outgoing.result().complete(null);
+                    continue;
+                }
+                if (!outgoing.retried() && queue.offer(new Outgoing(outgoing.to(), outgoing.mail(), true, outgoing.result()))) {
+                    continue;
+                }
+                log.error("[Mail] Failed to send email '{}' to {}", outgoing.mail().subject(), outgoing.to(), e);
+                Exception cause = failed.get(messages[i]);
+                outgoing.result().completeExceptionally(cause != null ? cause : e);
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.solara.backend.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Email templates from classpath:mail/, parsed once at startup.
+ *
+ * A template file is named {@code <name>_<lang>.html} (or {@code <name>.html}
+ * for language-neutral fragments). An optional first line {@code Subject: ...}
+ * is the subject; the rest is the HTML body. {@code {{key}}} is replaced with
+ * the value (HTML-escaped in the body), {@code {{{key}}}} with the raw value
+ * (for fragments rendered by another template). Unknown languages fall back
+ * to English.
+ */
+@Slf4j
+@Service
+public class MailTemplates {
+
+    public record Mail(String subject, String html) {
+    }
+
+    /** A template split into literal text and placeholders at load time. */
+    private record Compiled(String[] literals, String[] keys, boolean[] raw) {
+        String render(Map<String, ?> values, boolean html) {
+            StringBuilder out = new StringBuilder(256);
+            for (int i = 0; i < keys.length; i++) {
+                out.append(literals[i]);
+                Object value = values.get(keys[i]);
+                String text = value != null ? value.toString() : "";
+                // UTF-8: only markup characters are escaped, Turkish letters stay as they are
+                out.append(raw[i] || !html ? text : HtmlUtils.htmlEscape(text, "UTF-8"));
+            }
+            return out.append(literals[keys.length]).toString();
+        }
+    }
+
+    private record Template(Compiled subject, Compiled body) {
+    }
+
+    private static final String SUBJECT_PREFIX = "Subject:";
+
+    private final Map<String, Template> templates = new HashMap<>();
+
+    @PostConstruct
+    void load() throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources("classpath:mail/*.html");
+        for (Resource resource : resources) {
+            String filename = resource.getFilename();
+            String source = resource.getContentAsString(StandardCharsets.UTF_8);
+            templates.put(filename.substring(0, filename.length() - ".html".length()), parse(source));
+        }
+        log.info("[Mail] Loaded {} email templates.", templates.size());
+    }
+
+    public Mail render(String name, String language, Map<String, ?> values) {
+        Template template = lookup(name, language);
+        String subject = template.subject() != null ? template.subject().render(values, false) : "";
+        return new Mail(subject, template.body().render(values, true));
+    }
+
+    /** Body only, for fragments such as a digest row. */
+    public String renderFragment(String name, String language, Map<String, ?> values) {
+        return lookup(name, language).body().render(values, true);
+    }
+
+    /** "tr" for any Turkish locale tag, otherwise "en". */
+    public static String languageOf(String preferredLanguage) {
+        return preferredLanguage != null && preferredLanguage.toLowerCase().startsWith("tr") ? "tr" : "en";
+    }
+
+    private Template lookup(String name, String language) {
+        Template template = templates.get(name + "_" + languageOf(language));
+        if (template == null) {
+            template = templates.get(name + "_en");
+        }
+        if (template == null) {
+            template = templates.get(name);
+        }
+        if (template == null) {
+            throw new IllegalArgumentException("Unknown email template: " + name);
+        }
+        return template;
+    }
+
+    private static Template parse(String source) {
+        Compiled subject = null;
+        String body = source;
+        if (source.startsWith(SUBJECT_PREFIX)) {
+            int newline = source.indexOf('\n');
+            String subjectLine = newline < 0 ? source : source.substring(0, newline);
+            subject = compile(subjectLine.substring(SUBJECT_PREFIX.length()).strip());
+            body = newline < 0 ? "" : source.substring(newline + 1);
+        }
+        return new Template(subject, compile(body.strip()));
+    }
+
+    private static Compiled compile(String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        List<Boolean> raw = new ArrayList<>();
+        int pos = 0;
+        while (true) {
+            int start = text.indexOf("{{", pos);
+            if (start < 0) {
+                break;
+            }
+            boolean isRaw = text.startsWith("{{{", start);
+            String close = isRaw ? "}}}" : "}}";
+            int end = text.indexOf(close, start);
+            if (end < 0) {
+                break;
+            }
+            literals.add(text.substring(pos, start));
+            keys.add(text.substring(start + close.length(), end).strip());
+            raw.add(isRaw);
+            pos = end + close.length();
+        }
+        literals.add(text.substring(pos));
+
+        boolean[] rawFlags = new boolean[raw.size()];
+        for (int i = 0; i < rawFlags.length; i++) {
+            rawFlags[i] = raw.get(i);
+        }
+        return new Compiled(literals.toArray(new String[0]), keys.toArray(new String[0]), rawFlags);
+    }
+}
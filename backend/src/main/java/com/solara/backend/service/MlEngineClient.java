@@ -1,36 +1,275 @@
 package com.solara.backend.service;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.solara.backend.dto.request.MlPayloadDTO;
 import com.solara.backend.dto.response.MlCropRecommendationDTO;
+import com.solara.backend.dto.response.MlEngineBatchResponseDTO;
 import com.solara.backend.dto.response.MlEngineResponseDTO;
 import com.solara.backend.exception.AppException;
 
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Client of the Python ML engine with a recommendation cache in front of it.
+ *
+ * Inputs are rounded to the precision the model can actually tell apart
+ * ({@code ml.cache.step.*}) and the rounded payload is both the cache key and
+ * what is sent, so a cached answer is exactly what the engine would return.
+ * Concurrent requests for the same key share one in-flight call. The cache is
+ * dropped whenever the engine reports a different model version, either in a
+ * response or in the periodic /health check.
+ *
+ * When {@code ml.local-model.path} points to an artifact exported by the
+ * engine's {@code model_export.py}, recommendations are scored in-process by
+ * {@link CropModel} instead and neither the cache nor HTTP is involved. The
+ * artifact is only used if it reproduces the parity cases the exporter scored
+ * with the Python model; otherwise the client stays on HTTP.
+ */
 @Service
 public class MlEngineClient {
 
     private static final Logger log = LoggerFactory.getLogger(MlEngineClient.class);
 
+    public record MlCacheStats(
+        String modelVersion,
+        long size,
+        long hits,
+        long misses,
+        double hitRate,
+        long coalesced,
+        long evictions,
+        long invalidations,
+        String localModelVersion,
+        long localPredictions
+    ) {}
+
+    /** Quantized model inputs; each value is the number of steps */
+    private record CacheKey(long n, long p, long k, long temperature, long humidity, long ph, long rainfall,
+                            int topN, boolean includeExplanation) {}
+
+    /** Batch requests share top_n and include_explanation across their items */
+    private record BatchKind(int topN, boolean includeExplanation) {}
+
+    private record Pending(MlPayloadDTO payload, CompletableFuture<List<MlCropRecommendationDTO>> result) {}
+
+    // Same operations as LightGBM in the same order; only exp() may differ in the last bits
+    private static final double PARITY_TOLERANCE = 1e-9;
+
     private final RestTemplate weatherRestTemplate;
     private final String mlEngineUrl;
+    private final double npkStep;
+    private final double temperatureStep;
+    private final double humidityStep;
+    private final double phStep;
+    private final double rainfallStep;
+    private final int batchMaxItems;
+    private final String localModelPath;
+
+    private final AsyncCache<CacheKey, List<MlCropRecommendationDTO>> cache;
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private volatile String modelVersion;
+    private final LongAdder localPredictions = new LongAdder();
+    private volatile CropModel localModel;
 
     public MlEngineClient(RestTemplate weatherRestTemplate,
-                          @Value("${ml.engine.url}") String mlEngineUrl) {
+                          @Value("${ml.engine.url}") String mlEngineUrl,
+                          @Value("${ml.cache.max-size:10000}") long maxSize,
+                          @Value("${ml.cache.expire-after-write-minutes:1440}") long expireAfterWriteMinutes,
+                          @Value("${ml.cache.step.npk:1.0}") double npkStep,
+                          @Value("${ml.cache.step.temperature:0.1}") double temperatureStep,
+                          @Value("${ml.cache.step.humidity:0.5}") double humidityStep,
+                          @Value("${ml.cache.step.ph:0.05}") double phStep,
+                          @Value("${ml.cache.step.rainfall:1.0}") double rainfallStep,
+                          @Value("${ml.batch.max-items:500}") int batchMaxItems,
+                          @Value("${ml.local-model.path:}") String localModelPath) {
         this.weatherRestTemplate = weatherRestTemplate;
         this.mlEngineUrl = mlEngineUrl;
+        this.npkStep = npkStep;
+        this.temperatureStep = temperatureStep;
+        this.humidityStep = humidityStep;
+        this.phStep = phStep;
+        this.rainfallStep = rainfallStep;
+        this.batchMaxItems = batchMaxItems;
+        this.localModelPath = localModelPath;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(expireAfterWriteMinutes))
+                .recordStats()
+                .buildAsync();
+    }
+
+    @PostConstruct
+    void loadLocalModel() {
+        if (localModelPath == null || localModelPath.isBlank()) {
+            log.info("No local ML model configured, recommendations go to {}", mlEngineUrl);
+            return;
+        }
+        Path path = Path.of(localModelPath);
+        if (!Files.isRegularFile(path)) {
+            log.warn("Local ML model {} not found, recommendations go to {}", path, mlEngineUrl);
+            return;
+        }
+        try {
+            CropModel model = CropModel.load(path);
+            int checked = model.verifyParity(PARITY_TOLERANCE);
+            localModel = model;
+            log.info("Serving recommendations from local ML model {} (version {}, {} trees, {} parity cases matched)",
+                    path, model.version(), model.treeCount(), checked);
+        } catch (IOException | RuntimeException e) {
+            log.error("Local ML model {} rejected, recommendations go to {}: {}", path, mlEngineUrl, e.getMessage());
+        }
     }
 
     public List<MlCropRecommendationDTO> recommend(MlPayloadDTO payload) {
+        CropModel local = localModel;
+        if (local != null) {
+            localPredictions.increment();
+            return local.recommend(payload);
+        }
+
+        MlPayloadDTO quantized = quantize(payload);
+        CacheKey key = keyOf(quantized);
+
+        CompletableFuture<List<MlCropRecommendationDTO>> created = new CompletableFuture<>();
+        CompletableFuture<List<MlCropRecommendationDTO>> result = cache.get(key, (k, executor) -> created);
+        if (result == created) {
+            // This caller loads; a failed future is removed from the cache by Caffeine
+            try {
+                created.complete(callEngine(quantized));
+            } catch (Throwable e) {
+                // Also on an Error, or callers coalesced onto this key would wait forever
+                created.completeExceptionally(e);
+                if (e instanceof Error error) {
+                    throw error;
+                }
+            }
+        } else if (!result.isDone()) {
+            coalesced.increment();
+        }
+
+        return join(result);
+    }
+
+    /**
+     * Recommendations for many payloads, in input order. Payloads that round to a cached
+     * or in-flight key are served from it; all others go to the engine's batch endpoint
+     * together, at most {@code ml.batch.max-items} per call.
+     */
+    public List<List<MlCropRecommendationDTO>> recommendBatch(List<MlPayloadDTO> payloads) {
+        CropModel local = localModel;
+        if (local != null) {
+            localPredictions.add(payloads.size());
+            List<List<MlCropRecommendationDTO>> recommendations = new ArrayList<>(payloads.size());
+            payloads.forEach(payload -> recommendations.add(local.recommend(payload)));
+            return recommendations;
+        }
+
+        List<CompletableFuture<List<MlCropRecommendationDTO>>> results = new ArrayList<>(payloads.size());
+        Map<CacheKey, CompletableFuture<List<MlCropRecommendationDTO>>> byKey = new HashMap<>();
+        Map<BatchKind, Map<CacheKey, Pending>> toLoad = new LinkedHashMap<>();
+
+        for (MlPayloadDTO payload : payloads) {
+            MlPayloadDTO quantized = quantize(payload);
+            CacheKey key = keyOf(quantized);
+            CompletableFuture<List<MlCropRecommendationDTO>> result = byKey.get(key);
+            if (result == null) {
+                boolean loading = false;
+                result = cache.getIfPresent(key);
+                if (result == null) {
+                    CompletableFuture<List<MlCropRecommendationDTO>> created = new CompletableFuture<>();
+                    result = cache.asMap().putIfAbsent(key, created);
+                    if (result == null) {
+                        result = created;
+                        loading = true;
+                        toLoad.computeIfAbsent(new BatchKind(quantized.getTopN(), quantized.isIncludeExplanation()),
+                                kind -> new LinkedHashMap<>()).put(key, new Pending(quantized, created));
+                    }
+                }
+                if (!loading && !result.isDone()) {
+                    // Another request is already loading the same key
+                    coalesced.increment();
+                }
+                byKey.put(key, result);
+            }
+            results.add(result);
+        }
+
+        try {
+            toLoad.forEach((kind, pending) -> {
+                List<Pending> all = new ArrayList<>(pending.values());
+                for (int from = 0; from < all.size(); from += batchMaxItems) {
+                    loadBatch(kind, all.subList(from, Math.min(from + batchMaxItems, all.size())));
+                }
+            });
+        } catch (Error e) {
+            // The batches after the one that threw were never sent; fail them rather than leave them in flight
+            toLoad.values().forEach(pending -> pending.values().forEach(p -> p.result().completeExceptionally(e)));
+            throw e;
+        }
+
+        List<List<MlCropRecommendationDTO>> recommendations = new ArrayList<>(results.size());
+        for (CompletableFuture<List<MlCropRecommendationDTO>> result : results) {
+            recommendations.add(join(result));
+        }
+        return recommendations;
+    }
+
+    /** Polls the engine's model version so a redeployed model invalidates the cache without traffic. */
+    @Scheduled(fixedDelayString = "${ml.cache.version-check-interval-ms:60000}")
+    public void checkModelVersion() {
+        try {
+            Map<?, ?> health = weatherRestTemplate.getForObject(mlEngineUrl + "/health", Map.class);
+            if (health != null && health.get("model_version") instanceof String version) {
+                onModelVersion(version);
+            }
+        } catch (RestClientException e) {
+            log.debug("ML engine health check failed: {}", e.getMessage());
+        }
+    }
+
+    public MlCacheStats getCacheStats() {
+        CacheStats stats = cache.synchronous().stats();
+        return new MlCacheStats(
+                modelVersion,
+                cache.synchronous().estimatedSize(),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                coalesced.sum(),
+                stats.evictionCount(),
+                invalidations.sum(),
+                localModel != null ? localModel.version() : null,
+                localPredictions.sum());
+    }
+
+    private List<MlCropRecommendationDTO> callEngine(MlPayloadDTO payload) {
         String endpoint = mlEngineUrl + "/api/v1/recommend";
         log.info("Calling ML engine at {} with payload: {}", endpoint, payload);
 
@@ -43,11 +282,112 @@ public class MlEngineClient {
                 return Collections.emptyList();
             }
 
-            return response.getRecommendations();
+            if (response.getModelVersion() != null) {
+                onModelVersion(response.getModelVersion());
+            }
+            // Cached lists are shared between requests
+            return List.copyOf(response.getRecommendations());
         } catch (RestClientException e) {
             log.error("ML engine call failed: {}", e.getMessage());
             throw new AppException(HttpStatus.SERVICE_UNAVAILABLE,
                     "ML engine is unavailable. Please try again later.");
         }
     }
+
+    private void loadBatch(BatchKind kind, List<Pending> batch) {
+        String endpoint = mlEngineUrl + "/api/v1/recommend/batch";
+        log.info("Calling ML engine at {} with {} payloads", endpoint, batch.size());
+
+        List<MlPayloadDTO> items = new ArrayList<>(batch.size());
+        batch.forEach(pending -> items.add(pending.payload()));
+        Map<String, Object> request = Map.of(
+                "items", items,
+                "top_n", kind.topN(),
+                "include_explanation", kind.includeExplanation());
+
+        try {
+            MlEngineBatchResponseDTO response = weatherRestTemplate.postForObject(
+                    endpoint, request, MlEngineBatchResponseDTO.class);
+            if (response == null || response.getResults() == null || response.getResults().size() != batch.size()) {
+                throw new AppException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "ML engine returned an incomplete batch response.");
+            }
+            if (response.getModelVersion() != null) {
+                onModelVersion(response.getModelVersion());
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                List<MlCropRecommendationDTO> recommendations = response.getResults().get(i).getRecommendations();
+                batch.get(i).result().complete(recommendations != null ? List.copyOf(recommendations) : List.of());
+            }
+        } catch (RestClientException e) {
+            log.error("ML engine batch call failed: {}", e.getMessage());
+            AppException failure = new AppException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "ML engine is unavailable. Please try again later.");
+            batch.forEach(pending -> pending.result().completeExceptionally(failure));
+        } catch (Throwable e) {
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+            if (e instanceof Error error) {
+                throw error;
+            }
+        }
+    }
+
+    private static List<MlCropRecommendationDTO> join(CompletableFuture<List<MlCropRecommendationDTO>> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private synchronized void onModelVersion(String version) {
+        if (Objects.equals(version, modelVersion)) {
+            return;
+        }
+        if (modelVersion != null) {
+            cache.synchronous().invalidateAll();
+            invalidations.increment();
+            log.info("ML model version changed from {} to {}, recommendation cache cleared", modelVersion, version);
+        }
+        modelVersion = version;
+    }
+
+    private MlPayloadDTO quantize(MlPayloadDTO payload) {
+        return MlPayloadDTO.builder()
+                .n(round(payload.getN(), npkStep))
+                .p(round(payload.getP(), npkStep))
+                .k(round(payload.getK(), npkStep))
+                .temperature(round(payload.getTemperature(), temperatureStep))
+                .humidity(round(payload.getHumidity(), humidityStep))
+                .ph(round(payload.getPh(), phStep))
+                .rainfall(round(payload.getRainfall(), rainfallStep))
+                .topN(payload.getTopN())
+                .includeExplanation(payload.isIncludeExplanation())
+                .build();
+    }
+
+    private CacheKey keyOf(MlPayloadDTO quantized) {
+        return new CacheKey(
+                steps(quantized.getN(), npkStep),
+                steps(quantized.getP(), npkStep),
+                steps(quantized.getK(), npkStep),
+                steps(quantized.getTemperature(), temperatureStep),
+                steps(quantized.getHumidity(), humidityStep),
+                steps(quantized.getPh(), phStep),
+                steps(quantized.getRainfall(), rainfallStep),
+                quantized.getTopN(),
+                quantized.isIncludeExplanation());
+    }
+
+    private static long steps(double value, double step) {
+        return Math.round(value / step);
+    }
+
+    private static double round(double value, double step) {
+        // Round the step multiple to 6 decimals so e.g. 0.1 steps serialize as 24.3, not 24.300000000000001
+        return Math.round(steps(value, step) * step * 1_000_000d) / 1_000_000d;
+    }
 }
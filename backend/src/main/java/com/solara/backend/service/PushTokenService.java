@@ -1,5 +1,6 @@
 package com.solara.backend.service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -66,6 +67,14 @@ public class PushTokenService {
                 });
     }
 
+    @Transactional
+    public int deactivateTokens(Collection<String> expoPushTokens) {
+        if (expoPushTokens.isEmpty()) {
+            return 0;
+        }
+        return devicePushTokenRepository.deactivateByExpoPushTokenIn(expoPushTokens);
+    }
+
     private String normalizeOptional(String value) {
         if (value == null) return null;
         String trimmed = value.trim();
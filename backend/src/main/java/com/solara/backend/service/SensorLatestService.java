@@ -0,0 +1,120 @@
+package com.solara.backend.service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.solara.backend.entity.SensorLatest;
+import com.solara.backend.entity.SensorLogs;
+import com.solara.backend.repository.SensorLatestRepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Latest sensor reading of every field, kept in memory.
+ *
+ * The telemetry writer upserts the newest reading of each field in a batch
+ * into sensor_latest within the ingest transaction ({@link #persist(List)}),
+ * and publishes the readings to the in-memory map once the batch has
+ * committed ({@link #publish(SensorLogs)}). At startup the map is loaded from
+ * sensor_latest, so lookups never touch sensor_logs.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SensorLatestService {
+
+    // Older rows never overwrite newer ones, so a late or replayed reading is harmless
+    private static final String UPSERT_SQL = """
+            INSERT INTO sensor_latest AS l (field_id, sensor_log_id, device_id, soil_temperature, soil_humidity,
+                   ambient_temperature, ambient_humidity, battery_voltage, battery_percentage,
+                   location_latitude, location_longitude, location_accuracy, errors, timestamp)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (field_id) DO UPDATE SET
+                   sensor_log_id = EXCLUDED.sensor_log_id,
+                   device_id = EXCLUDED.device_id,
+                   soil_temperature = EXCLUDED.soil_temperature,
+                   soil_humidity = EXCLUDED.soil_humidity,
+                   ambient_temperature = EXCLUDED.ambient_temperature,
+                   ambient_humidity = EXCLUDED.ambient_humidity,
+                   battery_voltage = EXCLUDED.battery_voltage,
+                   battery_percentage = EXCLUDED.battery_percentage,
+                   location_latitude = EXCLUDED.location_latitude,
+                   location_longitude = EXCLUDED.location_longitude,
+                   location_accuracy = EXCLUDED.location_accuracy,
+                   errors = EXCLUDED.errors,
+                   timestamp = EXCLUDED.timestamp
+            WHERE l.timestamp <= EXCLUDED.timestamp
+            """;
+
+    private final SensorLatestRepository sensorLatestRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<UUID, SensorLogs> latestByField = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void load() {
+        if (sensorLatestRepository.count() == 0) {
+            int seeded = sensorLatestRepository.seedFromSensorLogs();
+            log.info("[SensorLatest] Seeded sensor_latest with {} fields from sensor_logs.", seeded);
+        }
+        for (SensorLatest latest : sensorLatestRepository.findAll()) {
+            latestByField.put(latest.getFieldId(), latest.toSensorLogs());
+        }
+        log.info("[SensorLatest] Loaded latest readings for {} fields.", latestByField.size());
+    }
+
+    public Optional<SensorLogs> get(UUID fieldId) {
+        return Optional.ofNullable(latestByField.get(fieldId));
+    }
+
+    /** Upserts the newest reading of each field in the batch. Runs in the ingest transaction. */
+    public void persist(List<SensorLogs> readings) {
+        Map<UUID, SensorLogs> newest = new LinkedHashMap<>();
+        for (SensorLogs reading : readings) {
+            newest.merge(reading.getFieldId(), reading, SensorLatestService::newer);
+        }
+
+        List<Object[]> args = new ArrayList<>(newest.size());
+        for (SensorLogs reading : newest.values()) {
+            args.add(new Object[] {
+                reading.getFieldId(),
+                reading.getId(),
+                reading.getDeviceId(),
+                reading.getSoilTemp(),
+                reading.getSoilHumidity(),
+                reading.getAmbientTemp(),
+                reading.getAmbientHumidity(),
+                reading.getBatteryVoltage(),
+                reading.getBatteryPercentage(),
+                reading.getLocationLatitude(),
+                reading.getLocationLongitude(),
+                reading.getLocationAccuracy(),
+                reading.getErrors(),
+                Timestamp.valueOf(reading.getTimestamp())
+            });
+        }
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, args);
+        }
+    }
+
+    /** Makes a committed reading visible to lookups. */
+    public void publish(SensorLogs reading) {
+        latestByField.merge(reading.getFieldId(), reading, SensorLatestService::newer);
+    }
+
+    private static SensorLogs newer(SensorLogs current, SensorLogs candidate) {
+        return candidate.getTimestamp().isBefore(current.getTimestamp()) ? current : candidate;
+    }
+}
@@ -0,0 +1,90 @@
+package com.solara.backend.service;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps monthly partitions of sensor_logs available ahead of time.
+ *
+ * sensor_logs is range-partitioned on "timestamp" by db/migration/V1; each month
+ * lives in sensor_logs_pYYYYMM. Partitions for the current month and the next
+ * {@code sensor.partitions.months-ahead} months are created at startup and daily,
+ * so the telemetry writer never falls back to the default partition.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SensorLogsPartitionManager {
+
+    private static final String PARTITION_PREFIX = "sensor_logs_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${sensor.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        ensureFuturePartitions();
+    }
+
+    @Scheduled(cron = "${sensor.partitions.cron:0 15 3 * * *}", zone = "UTC")
+    public void ensureFuturePartitions() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            try {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month)
+                        + " PARTITION OF sensor_logs FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+            } catch (Exception e) {
+                // Fails if sensor_logs_default already holds rows of that month
+                log.error("[Partitions] Could not create partition for {}", month, e);
+            }
+        }
+    }
+
+    /** Monthly partitions that currently exist, oldest first. The default partition is not included. */
+    public List<YearMonth> listMonthlyPartitions() {
+        List<String> names = jdbcTemplate.queryForList("""
+                SELECT c.relname
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                JOIN pg_class p ON p.oid = i.inhparent
+                WHERE p.relname = 'sensor_logs' AND c.relname LIKE 'sensor\\_logs\\_p%'
+                ORDER BY c.relname
+                """, String.class);
+
+        List<YearMonth> months = new ArrayList<>(names.size());
+        for (String name : names) {
+            try {
+                months.add(YearMonth.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX));
+            } catch (Exception e) {
+                log.warn("[Partitions] Ignoring unexpected partition '{}'", name);
+            }
+        }
+        return months;
+    }
+
+    /** Drops one monthly partition and its rows. Runs in the caller's transaction. */
+    public void dropPartition(YearMonth month) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partitionName(month));
+    }
+
+    public static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+}
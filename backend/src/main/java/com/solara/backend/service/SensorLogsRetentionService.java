@@ -0,0 +1,62 @@
+package com.solara.backend.service;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Downsamples and drops old raw sensor data.
+ *
+ * Raw monthly partitions older than {@code sensor.retention.raw-months} whole
+ * months are first recomputed into sensor_logs_hourly/daily and then dropped,
+ * in one transaction per month, so charts at hourly resolution and coarser keep
+ * working for the full history. Disabled when raw-months is 0.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SensorLogsRetentionService {
+
+    private final SensorLogsPartitionManager partitionManager;
+    private final SensorRollupService sensorRollupService;
+    private final FieldLogCounterService fieldLogCounterService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${sensor.retention.raw-months:0}")
+    private int rawMonths;
+
+    @Scheduled(cron = "${sensor.partitions.cron:0 15 3 * * *}", zone = "UTC")
+    public void applyRetention() {
+        if (rawMonths <= 0) {
+            return;
+        }
+
+        YearMonth oldestKept = YearMonth.now(ZoneOffset.UTC).minusMonths(rawMonths);
+        for (YearMonth month : partitionManager.listMonthlyPartitions()) {
+            if (!month.isBefore(oldestKept)) {
+                break;
+            }
+            try {
+                SensorRollupService.RebuildResult result = transactionTemplate.execute(status -> {
+                    SensorRollupService.RebuildResult rolled = sensorRollupService.rebuildRange(
+                            month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay());
+                    fieldLogCounterService.subtractSensorLogPartition(SensorLogsPartitionManager.partitionName(month));
+                    partitionManager.dropPartition(month);
+                    return rolled;
+                });
+                log.info("[Retention] Rolled up and dropped raw partition {} ({} hourly, {} daily rows)",
+                        SensorLogsPartitionManager.partitionName(month), result.hourlyRows(), result.dailyRows());
+            } catch (Exception e) {
+                log.error("[Retention] Failed to drop raw partition {}", SensorLogsPartitionManager.partitionName(month), e);
+                return;
+            }
+        }
+    }
+}
@@ -1,48 +1,100 @@
 package com.solara.backend.service;
 
-import java.io.ByteArrayOutputStream;
-import java.io.PrintWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import com.solara.backend.entity.Field;
 import com.solara.backend.entity.SensorLogs;
 import com.solara.backend.exception.AppException;
+import com.solara.backend.repository.SensorLogsDailyRepository;
+import com.solara.backend.repository.SensorLogsHourlyRepository;
 import com.solara.backend.repository.SensorLogsRepository;
 
+import jakarta.persistence.EntityManager;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Service
 public class SensorLogsService {
-    private final SensorLogsRepository sensorRepo;
-    private final FieldService fieldService;
+    // Lower bound for exports without a start; predates any device
+    private static final LocalDateTime EXPORT_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
 
-    public SensorLogsService(SensorLogsRepository sensorRepo, FieldService fieldService) {
+    private final SensorLogsRepository sensorRepo;
+    private final SensorLogsHourlyRepository hourlyRepo;
+    private final SensorLogsDailyRepository dailyRepo;
+    private final SensorLatestService sensorLatestService;
+    private final EntityManager entityManager;
+
+    public SensorLogsService(SensorLogsRepository sensorRepo, SensorLogsHourlyRepository hourlyRepo,
+            SensorLogsDailyRepository dailyRepo, SensorLatestService sensorLatestService,
+            EntityManager entityManager) {
         this.sensorRepo = sensorRepo;
-        this.fieldService = fieldService;
+        this.hourlyRepo = hourlyRepo;
+        this.dailyRepo = dailyRepo;
+        this.sensorLatestService = sensorLatestService;
+        this.entityManager = entityManager;
     }
 
+    /**
+     * History resolutions. Everything except RAW is aggregated in the database;
+     * bucketWidth is the PostgreSQL interval used for the bucket, and code is the
+     * short form accepted by the history endpoint next to the enum name.
+     */
     public enum Intervals {
-        RAW, HOURLY, DAILY
+        RAW(null, "raw"),
+        FIVE_MINUTES("5 minutes", "5m"),
+        FIFTEEN_MINUTES("15 minutes", "15m"),
+        HOURLY("1 hour", "1h"),
+        DAILY("1 day", "1d"),
+        WEEKLY("7 days", "1w");
+
+        private final String bucketWidth;
+        private final String code;
+
+        Intervals(String bucketWidth, String code) {
+            this.bucketWidth = bucketWidth;
+            this.code = code;
+        }
+
+        public String getBucketWidth() {
+            return bucketWidth;
+        }
+
+        public static Intervals fromParam(String value) {
+            for (Intervals interval : values()) {
+                if (interval.name().equalsIgnoreCase(value) || interval.code.equalsIgnoreCase(value)) {
+                    return interval;
+                }
+            }
+            throw new AppException(HttpStatus.BAD_REQUEST, "Unsupported interval: " + value);
+        }
     }
 
     @Data
     @Builder
     @NoArgsConstructor
+    @AllArgsConstructor
     public static class AggregateLog {
         @com.fasterxml.jackson.annotation.JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
         private java.time.OffsetDateTime period;
@@ -51,6 +103,17 @@ public class SensorLogsService {
         private Double avgAmbientHumidity;
         private Double avgSoilHumidity;
 
+        // Only set for aggregated intervals
+        private Double minAmbientTemp;
+        private Double maxAmbientTemp;
+        private Double minSoilTemp;
+        private Double maxSoilTemp;
+        private Double minAmbientHumidity;
+        private Double maxAmbientHumidity;
+        private Double minSoilHumidity;
+        private Double maxSoilHumidity;
+        private Long sampleCount;
+
         public AggregateLog(OffsetDateTime period, Double avgAmbientTemp, Double avgSoilTemp, Double avgAmbientHumidity, Double avgSoilHumidity) {
             this.period = period;
             this.avgAmbientTemp = avgAmbientTemp;
@@ -67,8 +130,7 @@ public class SensorLogsService {
     }
 
     public Optional<SensorLogs> getMostRecent(UUID fieldId) {
-        return sensorRepo.findByFieldId(fieldId).stream()
-                .max(Comparator.comparing(SensorLogs::getTimestamp));
+        return sensorLatestService.get(fieldId);
     }
 
     public List<AggregateLog> getLogsByInterval(Intervals interval, LocalDateTime start, LocalDateTime end, UUID fieldId) {
@@ -80,9 +142,8 @@ public class SensorLogsService {
             throw new AppException(HttpStatus.BAD_REQUEST, "Start timestamp must be before end timestamp");
         }
 
-        List<SensorLogs> logs = sensorRepo.findByFieldIdAndTimestampBetween(fieldId, start, end);
-
         if (interval == Intervals.RAW) {
+            List<SensorLogs> logs = sensorRepo.findByFieldIdAndTimestampBetween(fieldId, start, end);
             return logs.stream().map(log -> 
                 new AggregateLog(
                     toUtcOffset(log.getTimestamp()), 
@@ -95,82 +156,101 @@ public class SensorLogsService {
             .collect(Collectors.toList());
         }
 
-        // Determine the truncation unit based on interval
-        ChronoUnit unit = (interval == Intervals.HOURLY) ? ChronoUnit.HOURS : ChronoUnit.DAYS;
-
-        return logs.stream()
-            // Group logs by time period
-            .collect(Collectors.groupingBy(log -> log.getTimestamp().truncatedTo(unit)))
-            .entrySet().stream()
-            .map(entry -> {
-                LocalDateTime period = entry.getKey();
-                List<SensorLogs> periodLogs = entry.getValue();
-
-                // Calculate averages, filtering nulls to avoid NullPointerException
-                // (sensor may omit individual fields in some readings)
-                Double avgAmbTemp = periodLogs.stream()
-                        .filter(l -> l.getAmbientTemp() != null)
-                        .mapToDouble(SensorLogs::getAmbientTemp)
-                        .average().stream().boxed().findFirst().orElse(null);
-                Double avgSoilTemp = periodLogs.stream()
-                        .filter(l -> l.getSoilTemp() != null)
-                        .mapToDouble(SensorLogs::getSoilTemp)
-                        .average().stream().boxed().findFirst().orElse(null);
-                Double avgAmbHum = periodLogs.stream()
-                        .filter(l -> l.getAmbientHumidity() != null)
-                        .mapToDouble(SensorLogs::getAmbientHumidity)
-                        .average().stream().boxed().findFirst().orElse(null);
-                Double avgSoilHum = periodLogs.stream()
-                        .filter(l -> l.getSoilHumidity() != null)
-                        .mapToDouble(SensorLogs::getSoilHumidity)
-                        .average().stream().boxed().findFirst().orElse(null);
-
-                return new AggregateLog(toUtcOffset(period), avgAmbTemp, avgSoilTemp, avgAmbHum, avgSoilHum);
-            })
-            // Sort by period
-            .sorted(Comparator.comparing(AggregateLog::getPeriod))
-            .collect(Collectors.toList());
+        // Bucketing and averaging happen in PostgreSQL: one row per bucket reaches the JVM.
+        // Hourly and coarser charts read the pre-aggregated rollups instead of sensor_logs;
+        // the rollup bucket containing start is included whole.
+        List<SensorLogsRepository.SensorBucketView> buckets = switch (interval) {
+            case HOURLY -> hourlyRepo.aggregateByBucket(fieldId, interval.getBucketWidth(),
+                    SensorRollupService.Granularity.HOURLY.truncate(start), end);
+            case DAILY, WEEKLY -> dailyRepo.aggregateByBucket(fieldId, interval.getBucketWidth(),
+                    SensorRollupService.Granularity.DAILY.truncate(start), end);
+            default -> sensorRepo.aggregateByBucket(fieldId, interval.getBucketWidth(), start, end);
+        };
+        return buckets.stream()
+                .map(SensorLogsService::toAggregateLog)
+                .collect(Collectors.toList());
+    }
+
+    private static AggregateLog toAggregateLog(SensorLogsRepository.SensorBucketView bucket) {
+        return AggregateLog.builder()
+                .period(Instant.ofEpochSecond(bucket.getBucketEpoch()).atOffset(ZoneOffset.UTC))
+                .avgAmbientTemp(bucket.getAvgAmbientTemp())
+                .avgSoilTemp(bucket.getAvgSoilTemp())
+                .avgAmbientHumidity(bucket.getAvgAmbientHumidity())
+                .avgSoilHumidity(bucket.getAvgSoilHumidity())
+                .minAmbientTemp(bucket.getMinAmbientTemp())
+                .maxAmbientTemp(bucket.getMaxAmbientTemp())
+                .minSoilTemp(bucket.getMinSoilTemp())
+                .maxSoilTemp(bucket.getMaxSoilTemp())
+                .minAmbientHumidity(bucket.getMinAmbientHumidity())
+                .maxAmbientHumidity(bucket.getMaxAmbientHumidity())
+                .minSoilHumidity(bucket.getMinSoilHumidity())
+                .maxSoilHumidity(bucket.getMaxSoilHumidity())
+                .sampleCount(bucket.getSampleCount())
+                .build();
     }
 
     public boolean hasLogsForField(UUID fieldId) {
         return sensorRepo.existsByFieldId(fieldId);
     }
 
-    public byte[] exportToCSV(UUID fieldId){
-        List<SensorLogs> logs = sensorRepo.findByFieldId(fieldId);
-
-        ByteArrayOutputStream outstream = new ByteArrayOutputStream();
-        try(PrintWriter printWriter = new PrintWriter(outstream, true, StandardCharsets.UTF_8)) {
-
-            printWriter.println("Timestamp,Soil Temperature,Soil Humidity,Ambient Temperature,Ambient Humidity");
-
-            DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    /**
+     * Writes a field's readings as CSV straight to out. Raw exports iterate a database
+     * cursor and detach each row after writing it, so memory stays flat for any history
+     * size; aggregated exports write one row per bucket. A missing start or end leaves
+     * that side of the range open.
+     */
+    @Transactional(readOnly = true)
+    public void writeCSV(UUID fieldId, LocalDateTime start, LocalDateTime end, Intervals interval, OutputStream out) throws IOException {
+        LocalDateTime from = start != null ? start : EXPORT_EPOCH;
+        LocalDateTime to = end != null ? end : LocalDateTime.now(ZoneOffset.UTC).plusDays(1);
+        if (from.isAfter(to)) {
+            throw new AppException(HttpStatus.BAD_REQUEST, "Start timestamp must be before end timestamp");
+        }
 
-            for (SensorLogs log: logs) {
-                String timestamp = log.getTimestamp() != null ? log.getTimestamp().format(formatter) : "";
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
-                printWriter.printf("%s,%s,%s,%s,%s%n",
-                        timestamp,
-                        safeString(log.getSoilTemp()),
-                        safeString(log.getSoilHumidity()),
-                        safeString(log.getAmbientTemp()),
-                        safeString(log.getAmbientHumidity())
-                );
+        if (interval == Intervals.RAW) {
+            writer.write("Timestamp,Soil Temperature,Soil Humidity,Ambient Temperature,Ambient Humidity\n");
+            try (Stream<SensorLogs> logs = sensorRepo.streamByFieldIdAndTimestampRange(fieldId, from, to)) {
+                Iterator<SensorLogs> it = logs.iterator();
+                while (it.hasNext()) {
+                    SensorLogs log = it.next();
+                    writeRow(writer,
+                            log.getTimestamp() != null ? log.getTimestamp().format(formatter) : "",
+                            log.getSoilTemp(),
+                            log.getSoilHumidity(),
+                            log.getAmbientTemp(),
+                            log.getAmbientHumidity());
+                    entityManager.detach(log);
+                }
+            }
+        } else {
+            writer.write("Period,Samples,Avg Soil Temperature,Min Soil Temperature,Max Soil Temperature,"
+                    + "Avg Soil Humidity,Min Soil Humidity,Max Soil Humidity,"
+                    + "Avg Ambient Temperature,Min Ambient Temperature,Max Ambient Temperature,"
+                    + "Avg Ambient Humidity,Min Ambient Humidity,Max Ambient Humidity\n");
+            for (AggregateLog bucket : getLogsByInterval(interval, from, to, fieldId)) {
+                writeRow(writer,
+                        bucket.getPeriod().toLocalDateTime().format(formatter),
+                        bucket.getSampleCount(),
+                        bucket.getAvgSoilTemp(), bucket.getMinSoilTemp(), bucket.getMaxSoilTemp(),
+                        bucket.getAvgSoilHumidity(), bucket.getMinSoilHumidity(), bucket.getMaxSoilHumidity(),
+                        bucket.getAvgAmbientTemp(), bucket.getMinAmbientTemp(), bucket.getMaxAmbientTemp(),
+                        bucket.getAvgAmbientHumidity(), bucket.getMinAmbientHumidity(), bucket.getMaxAmbientHumidity());
             }
         }
-
-        return outstream.toByteArray();
+        writer.flush();
     }
 
-    public long countLogsForUser(UUID userId) {
-        List<Field> userFields = fieldService.getFieldsByUserId(userId);
-
-        long totalLogs = 0;
-
-        for(Field field : userFields) {
-            totalLogs += sensorRepo.countByFieldId(field.getId());
+    private void writeRow(Writer writer, String first, Object... values) throws IOException {
+        writer.write(first);
+        for (Object value : values) {
+            writer.write(',');
+            writer.write(safeString(value));
         }
-        return totalLogs;
+        writer.write('\n');
     }
 
     public long countLogs() {
@@ -0,0 +1,253 @@
+package com.solara.backend.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.solara.backend.entity.SensorLogs;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Maintains the sensor_logs_hourly and sensor_logs_daily rollups.
+ *
+ * The telemetry writer calls {@link #apply(List)} inside the same transaction
+ * as the sensor_logs insert. The batch is first folded in memory into one
+ * partial aggregate per (field, bucket), which is then merged into the rollup
+ * row with INSERT ... ON CONFLICT DO UPDATE. {@link #rebuild(UUID)} recomputes
+ * the closed buckets from sensor_logs; it runs for all fields at startup while
+ * a rollup table is still empty, so existing history shows up in the charts.
+ * {@link #rebuildRange} freezes a month into the rollups before retention
+ * drops its raw partition.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SensorRollupService {
+
+    /** Rollup granularity; table is the rollup table, unit the bucket truncation. */
+    public enum Granularity {
+        HOURLY("sensor_logs_hourly", "hour", ChronoUnit.HOURS),
+        DAILY("sensor_logs_daily", "day", ChronoUnit.DAYS);
+
+        private final String table;
+        private final String datePart;
+        private final ChronoUnit unit;
+
+        Granularity(String table, String datePart, ChronoUnit unit) {
+            this.table = table;
+            this.datePart = datePart;
+            this.unit = unit;
+        }
+
+        public LocalDateTime truncate(LocalDateTime timestamp) {
+            return timestamp.truncatedTo(unit);
+        }
+    }
+
+    public record RebuildResult(UUID fieldId, int hourlyRows, int dailyRows) {}
+
+    /** sensor_logs columns that are rolled up, in the order used by Partial */
+    private static final String[] METRICS = {
+        "ambient_temperature", "soil_temperature", "ambient_humidity", "soil_humidity"
+    };
+
+    private static final Map<Granularity, String> UPSERT_SQL = new EnumMap<>(Granularity.class);
+
+    static {
+        for (Granularity granularity : Granularity.values()) {
+            UPSERT_SQL.put(granularity, buildUpsertSql(granularity.table));
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SensorLogsPartitionManager partitionManager;
+
+    /** count/sum/min/max of the readings of one field in one bucket */
+    private static final class Partial {
+        final UUID fieldId;
+        final LocalDateTime bucketStart;
+        long samples;
+        final long[] count = new long[METRICS.length];
+        final double[] sum = new double[METRICS.length];
+        final double[] min = new double[METRICS.length];
+        final double[] max = new double[METRICS.length];
+
+        Partial(UUID fieldId, LocalDateTime bucketStart) {
+            this.fieldId = fieldId;
+            this.bucketStart = bucketStart;
+        }
+
+        void add(SensorLogs reading) {
+            samples++;
+            add(0, reading.getAmbientTemp());
+            add(1, reading.getSoilTemp());
+            add(2, reading.getAmbientHumidity());
+            add(3, reading.getSoilHumidity());
+        }
+
+        private void add(int metric, Double value) {
+            if (value == null) {
+                return;
+            }
+            if (count[metric] == 0) {
+                min[metric] = value;
+                max[metric] = value;
+            } else {
+                min[metric] = Math.min(min[metric], value);
+                max[metric] = Math.max(max[metric], value);
+            }
+            count[metric]++;
+            sum[metric] += value;
+        }
+    }
+
+    private record BucketKey(UUID fieldId, LocalDateTime bucketStart) {}
+
+    /**
+     * Merges a batch of persisted readings into both rollups.
+     * Must run in the caller's transaction so the rollups never drift from sensor_logs.
+     */
+    public void apply(List<SensorLogs> readings) {
+        if (readings.isEmpty()) {
+            return;
+        }
+        for (Granularity granularity : Granularity.values()) {
+            Map<BucketKey, Partial> partials = new LinkedHashMap<>();
+            for (SensorLogs reading : readings) {
+                LocalDateTime bucket = granularity.truncate(reading.getTimestamp());
+                partials.computeIfAbsent(new BucketKey(reading.getFieldId(), bucket),
+                        key -> new Partial(key.fieldId(), key.bucketStart())).add(reading);
+            }
+
+            List<Object[]> args = new ArrayList<>(partials.size());
+            for (Partial partial : partials.values()) {
+                args.add(toArgs(partial));
+            }
+            jdbcTemplate.batchUpdate(UPSERT_SQL.get(granularity), args);
+        }
+    }
+
+    /** Seeds the rollups from sensor_logs while either table is empty. Runs after Hibernate created the tables. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        Boolean seeded = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM sensor_logs_hourly) AND EXISTS (SELECT 1 FROM sensor_logs_daily)", Boolean.class);
+        if (!Boolean.TRUE.equals(seeded)) {
+            rebuild(null);
+        }
+    }
+
+    /**
+     * Recomputes the rollups from sensor_logs, for one field or all fields (fieldId null).
+     * Only closed buckets are rebuilt: the current hour and day keep receiving live
+     * upserts from the telemetry writer, so they are left as they are. Buckets before
+     * the oldest monthly partition are kept too, since retention has already dropped
+     * their raw rows and the rollups are all that is left of them.
+     */
+    @Transactional
+    public RebuildResult rebuild(UUID fieldId) {
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        List<YearMonth> partitions = partitionManager.listMonthlyPartitions();
+        LocalDateTime from = partitions.isEmpty() ? null : partitions.get(0).atDay(1).atStartOfDay();
+        int hourly = rebuild(Granularity.HOURLY, fieldId, from, Granularity.HOURLY.truncate(now));
+        int daily = rebuild(Granularity.DAILY, fieldId, from, Granularity.DAILY.truncate(now));
+        log.info("[Rollup] Rebuilt {} hourly and {} daily rows (field={})", hourly, daily, fieldId == null ? "all" : fieldId);
+        return new RebuildResult(fieldId, hourly, daily);
+    }
+
+    /**
+     * Recomputes the rollups of all fields for [from, to), which must be aligned to whole days.
+     * Used by SensorLogsRetentionService before a raw partition is dropped.
+     */
+    @Transactional
+    public RebuildResult rebuildRange(LocalDateTime from, LocalDateTime to) {
+        int hourly = rebuild(Granularity.HOURLY, null, from, to);
+        int daily = rebuild(Granularity.DAILY, null, from, to);
+        return new RebuildResult(null, hourly, daily);
+    }
+
+    private int rebuild(Granularity granularity, UUID fieldId, LocalDateTime from, LocalDateTime to) {
+        StringBuilder bucketFilter = new StringBuilder(" WHERE bucket_start < ?");
+        StringBuilder logFilter = new StringBuilder(" WHERE timestamp < ?");
+        List<Object> args = new ArrayList<>();
+        args.add(Timestamp.valueOf(to));
+        if (from != null) {
+            bucketFilter.append(" AND bucket_start >= ?");
+            logFilter.append(" AND timestamp >= ?");
+            args.add(Timestamp.valueOf(from));
+        }
+        if (fieldId != null) {
+            bucketFilter.append(" AND field_id = ?");
+            logFilter.append(" AND field_id = ?");
+            args.add(fieldId);
+        }
+
+        jdbcTemplate.update("DELETE FROM " + granularity.table + bucketFilter, args.toArray());
+        return jdbcTemplate.update(buildRebuildSql(granularity) + logFilter
+                + " GROUP BY field_id, date_trunc('" + granularity.datePart + "', timestamp)", args.toArray());
+    }
+
+    private static Object[] toArgs(Partial partial) {
+        Object[] args = new Object[3 + METRICS.length * 4];
+        int i = 0;
+        args[i++] = partial.fieldId;
+        args[i++] = Timestamp.valueOf(partial.bucketStart);
+        args[i++] = partial.samples;
+        for (int m = 0; m < METRICS.length; m++) {
+            boolean present = partial.count[m] > 0;
+            args[i++] = partial.count[m];
+            args[i++] = partial.sum[m];
+            args[i++] = present ? partial.min[m] : null;
+            args[i++] = present ? partial.max[m] : null;
+        }
+        return args;
+    }
+
+    private static String buildUpsertSql(String table) {
+        StringBuilder columns = new StringBuilder("id, field_id, bucket_start, sample_count");
+        StringBuilder values = new StringBuilder("gen_random_uuid(), ?, ?, ?");
+        StringBuilder updates = new StringBuilder("sample_count = t.sample_count + EXCLUDED.sample_count");
+        for (String metric : METRICS) {
+            columns.append(", ").append(metric).append("_count, ").append(metric).append("_sum, ")
+                    .append(metric).append("_min, ").append(metric).append("_max");
+            values.append(", ?, ?, ?, ?");
+            updates.append(", ").append(metric).append("_count = t.").append(metric).append("_count + EXCLUDED.").append(metric).append("_count")
+                    .append(", ").append(metric).append("_sum = t.").append(metric).append("_sum + EXCLUDED.").append(metric).append("_sum")
+                    // LEAST/GREATEST ignore NULLs, so an empty side never wins
+                    .append(", ").append(metric).append("_min = LEAST(t.").append(metric).append("_min, EXCLUDED.").append(metric).append("_min)")
+                    .append(", ").append(metric).append("_max = GREATEST(t.").append(metric).append("_max, EXCLUDED.").append(metric).append("_max)");
+        }
+        return "INSERT INTO " + table + " AS t (" + columns + ") VALUES (" + values + ")"
+                + " ON CONFLICT (field_id, bucket_start) DO UPDATE SET " + updates;
+    }
+
+    private static String buildRebuildSql(Granularity granularity) {
+        String bucket = "date_trunc('" + granularity.datePart + "', timestamp)";
+        StringBuilder columns = new StringBuilder("id, field_id, bucket_start, sample_count");
+        StringBuilder select = new StringBuilder("gen_random_uuid(), field_id, ").append(bucket).append(", COUNT(*)");
+        for (String metric : METRICS) {
+            columns.append(", ").append(metric).append("_count, ").append(metric).append("_sum, ")
+                    .append(metric).append("_min, ").append(metric).append("_max");
+            select.append(", COUNT(").append(metric).append("), COALESCE(SUM(").append(metric).append("), 0), MIN(")
+                    .append(metric).append("), MAX(").append(metric).append(")");
+        }
+        return "INSERT INTO " + granularity.table + " (" + columns + ") SELECT " + select
+                + " FROM sensor_logs";
+    }
+}
@@ -0,0 +1,297 @@
+package com.solara.backend.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.solara.backend.dto.response.SensorResponse;
+import com.solara.backend.entity.SensorLogs;
+import com.solara.backend.repository.SensorLogsRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Second stage of the telemetry pipeline.
+ *
+ * TelemetrySubscriber parses payloads on the MQTT callback thread and hands
+ * the readings to {@link #submit(SensorLogs)}. A single writer thread drains
+ * the bounded queue and flushes the readings to sensor_logs in JDBC batches,
+ * either when {@code telemetry.ingest.batch-size} readings are buffered or
+ * when {@code telemetry.ingest.flush-interval-ms} has elapsed since the first
+ * reading of the batch. Alert evaluation and the WebSocket broadcast run
+ * after the batch has committed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TelemetryIngestService {
+
+    /**
+     * What the MQTT thread does when the queue is full.
+     * BLOCK waits up to offer-timeout-ms (slowing down the broker acks) and then drops,
+     * DROP_NEWEST discards the incoming reading, DROP_OLDEST evicts the oldest queued one.
+     */
+    public enum BackpressurePolicy {
+        BLOCK, DROP_NEWEST, DROP_OLDEST
+    }
+
+    public record IngestStats(
+        int queueDepth,
+        int queueCapacity,
+        long enqueued,
+        long dropped,
+        long written,
+        long failed,
+        long flushes,
+        double lastFlushMillis,
+        double avgFlushMillis,
+        double maxFlushMillis
+    ) {}
+
+    private final DeviceFieldIndex deviceFieldIndex;
+    private final SensorLogsRepository sensorLogsRepository;
+    private final SensorRollupService sensorRollupService;
+    private final SensorLatestService sensorLatestService;
+    private final FieldLogCounterService fieldLogCounterService;
+    private final DeviceHeartbeatService deviceHeartbeatService;
+    private final DeviceMonitorService deviceMonitorService;
+    private final AlertEvaluationService alertEvaluationService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${telemetry.ingest.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${telemetry.ingest.batch-size:500}")
+    private int batchSize;
+
+    @Value("${telemetry.ingest.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${telemetry.ingest.backpressure:BLOCK}")
+    private BackpressurePolicy backpressure;
+
+    @Value("${telemetry.ingest.offer-timeout-ms:2000}")
+    private long offerTimeoutMs;
+
+    private BlockingQueue<SensorLogs> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder totalFlushNanos = new LongAdder();
+    private final AtomicLong lastFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = Thread.ofPlatform()
+                .name("telemetry-writer")
+                .start(this::drainLoop);
+        log.info("[Ingest] Telemetry writer started (capacity={}, batchSize={}, flushInterval={}ms, backpressure={})",
+                queueCapacity, batchSize, flushIntervalMs, backpressure);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        // The writer notices the flag within one flush interval and drains what is left.
+        writer.join(Math.max(flushIntervalMs * 10, 10_000));
+        log.info("[Ingest] Telemetry writer stopped ({} readings left in queue).", queue.size());
+    }
+
+    /**
+     * Enqueue a parsed reading. The fieldId is resolved by the writer, so only
+     * deviceId and timestamp need to be set by the caller.
+     *
+     * @return false if the reading was dropped because of backpressure
+     */
+    public boolean submit(SensorLogs reading) {
+        boolean accepted = switch (backpressure) {
+            case DROP_NEWEST -> queue.offer(reading);
+            case DROP_OLDEST -> offerEvictingOldest(reading);
+            case BLOCK -> offerBlocking(reading);
+        };
+
+        if (accepted) {
+            enqueued.increment();
+        } else {
+            dropped.increment();
+            log.warn("[Ingest] Queue full ({}), dropped reading from device='{}'", queueCapacity, reading.getDeviceId());
+        }
+        return accepted;
+    }
+
+    public IngestStats getStats() {
+        long flushCount = flushes.sum();
+        return new IngestStats(
+                queue.size(),
+                queueCapacity,
+                enqueued.sum(),
+                dropped.sum(),
+                written.sum(),
+                failed.sum(),
+                flushCount,
+                toMillis(lastFlushNanos.get()),
+                flushCount == 0 ? 0.0 : toMillis(totalFlushNanos.sum()) / flushCount,
+                toMillis(maxFlushNanos.get()));
+    }
+
+    private boolean offerBlocking(SensorLogs reading) {
+        try {
+            return queue.offer(reading, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean offerEvictingOldest(SensorLogs reading) {
+        while (!queue.offer(reading)) {
+            if (queue.poll() != null) {
+                dropped.increment();
+            }
+        }
+        return true;
+    }
+
+    private void drainLoop() {
+        List<SensorLogs> batch = new ArrayList<>(batchSize);
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                SensorLogs first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Keep filling until the batch is full or the flush interval has elapsed
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    SensorLogs next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutdown path: flush whatever we already took from the queue
+                running = false;
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<SensorLogs> batch) {
+        long startedAt = System.nanoTime();
+        List<SensorLogs> persisted;
+        try {
+            persisted = transactionTemplate.execute(status -> persist(batch));
+        } catch (Exception e) {
+            failed.add(batch.size());
+            log.error("[Ingest] Failed to flush batch of {} readings", batch.size(), e);
+            return;
+        }
+        recordFlush(System.nanoTime() - startedAt, persisted == null ? 0 : persisted.size());
+
+        if (persisted != null) {
+            persisted.forEach(this::afterCommit);
+        }
+    }
+
+    /**
+     * Resolves each reading's field through the in-memory DeviceFieldIndex and inserts
+     * the readings with a single saveAll (batched by hibernate.jdbc.batch_size).
+     * The hourly/daily rollups, sensor_latest and the log counters are updated in the same transaction.
+     * Device liveness is handed to DeviceHeartbeatService, which flushes it separately.
+     */
+    private List<SensorLogs> persist(List<SensorLogs> batch) {
+        List<SensorLogs> toSave = new ArrayList<>(batch.size());
+
+        for (SensorLogs reading : batch) {
+            DeviceFieldIndex.DeviceBinding binding = deviceFieldIndex.resolve(reading.getDeviceId()).orElse(null);
+            if (binding == null) {
+                log.warn("Received payload from unknown device_id='{}'. Pair the device to a field first.", reading.getDeviceId());
+                continue;
+            }
+            reading.setFieldId(binding.fieldId());
+            toSave.add(reading);
+            deviceHeartbeatService.recordSeen(binding.espDeviceId(), reading.getTimestamp());
+        }
+
+        if (toSave.isEmpty()) {
+            return toSave;
+        }
+
+        List<SensorLogs> saved = sensorLogsRepository.saveAll(toSave);
+        sensorRollupService.apply(saved);
+        sensorLatestService.persist(saved);
+
+        Map<UUID, Long> countsByField = new HashMap<>();
+        for (SensorLogs reading : saved) {
+            countsByField.merge(reading.getFieldId(), 1L, Long::sum);
+        }
+        fieldLogCounterService.addSensorLogs(countsByField);
+        return saved;
+    }
+
+    private void afterCommit(SensorLogs logEntry) {
+        UUID fieldId = logEntry.getFieldId();
+        sensorLatestService.publish(logEntry);
+        deviceMonitorService.onTelemetry(fieldId, logEntry.getTimestamp());
+        try {
+            // Evaluate smart alerts
+            alertEvaluationService.evaluate(logEntry);
+        } catch (Exception e) {
+            log.error("[Ingest] Alert evaluation failed for field='{}'", fieldId, e);
+        }
+
+        // Broadcast live telemetry via WebSocket STOMP to connected clients
+        messagingTemplate.convertAndSend("/topic/field." + fieldId + ".telemetry", new SensorResponse(logEntry));
+    }
+
+    private void recordFlush(long nanos, int count) {
+        flushes.increment();
+        written.add(count);
+        totalFlushNanos.add(nanos);
+        lastFlushNanos.set(nanos);
+        maxFlushNanos.accumulateAndGet(nanos, Math::max);
+        log.debug("[Ingest] Flushed {} readings in {} ms", count, toMillis(nanos));
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -2,7 +2,6 @@ package com.solara.backend.service;
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.util.UUID;
 
 import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.messaging.Message;
@@ -10,14 +9,9 @@ import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.solara.backend.entity.EspDevice;
-import com.solara.backend.entity.Field;
 import com.solara.backend.entity.SensorLogs;
 import java.util.ArrayList;
 import java.util.List;
-import com.solara.backend.repository.EspDeviceRepository;
-import com.solara.backend.repository.FieldRepository;
-import com.solara.backend.repository.SensorLogsRepository;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -25,20 +19,16 @@ import lombok.extern.slf4j.Slf4j;
 /**
  * Listens on the mqttInputChannel (configured in MqttConfig).
  * Every time the ESP32 publishes to solara/telemetry/{device_id},
- * this service receives the JSON payload, resolves the field ID,
- * and saves the data to sensor_logs.
+ * this service receives the JSON payload, validates it and hands the
+ * reading to TelemetryIngestService, which batches the writes to sensor_logs.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class TelemetrySubscriber {
 
-    private final FieldRepository fieldRepository;
-    private final SensorLogsRepository sensorLogsRepository;
-    private final EspDeviceRepository espDeviceRepository;
     private final ObjectMapper objectMapper;
-    private final AlertEvaluationService alertEvaluationService;
-    private final org.springframework.messaging.simp.SimpMessagingTemplate messagingTemplate;
+    private final TelemetryIngestService telemetryIngestService;
 
     /**
      * The @ServiceActivator annotation wires this method to the mqttInputChannel bean.
@@ -47,7 +37,7 @@ public class TelemetrySubscriber {
     @ServiceActivator(inputChannel = "mqttInputChannel")
     public void handleTelemetry(Message<String> message) {
         String payload = message.getPayload();
-        log.info("Received MQTT telemetry payload: {}", payload);
+        log.debug("Received MQTT telemetry payload: {}", payload);
 
         try {
             JsonNode json = objectMapper.readTree(payload);
@@ -96,17 +86,9 @@ public class TelemetrySubscriber {
             if (soilTemp != null && (soilTemp < -50 || soilTemp > 100)) soilTemp = null;
             if (soilHumidity != null && (soilHumidity < 0 || soilHumidity > 100)) soilHumidity = null;
 
-            // Look up the field that has this device paired
-            Field field = fieldRepository.findByEspDevice_SerialNumber(deviceId).orElse(null);
-            if (field == null) {
-                log.warn("Received payload from unknown device_id='{}'. Pair the device to a field first.", deviceId);
-                return;
-            }
-
-            UUID fieldId = field.getId();
-
+            // Field resolution, persistence and alert evaluation happen on the
+            // ingest writer thread so the MQTT callback thread is freed immediately.
             SensorLogs logEntry = SensorLogs.builder()
-                    .fieldId(fieldId)
                     .deviceId(deviceId)
                     .ambientTemp(ambientTemp)
                     .ambientHumidity(ambientHumid)
@@ -121,21 +103,7 @@ public class TelemetrySubscriber {
                     .timestamp(LocalDateTime.now(ZoneOffset.UTC))
                     .build();
 
-            sensorLogsRepository.save(logEntry);
-            
-            // Evaluate smart alerts
-            alertEvaluationService.evaluate(logEntry);
-            
-            // Update the lastSeenAt for the device
-            EspDevice espDevice = field.getEspDevice();
-            espDevice.setLastSeenAt(LocalDateTime.now(ZoneOffset.UTC));
-            espDeviceRepository.save(espDevice);
-            
-            // Broadcast live telemetry via WebSocket STOMP to connected clients
-            com.solara.backend.dto.response.SensorResponse responseDto = new com.solara.backend.dto.response.SensorResponse(logEntry);
-            messagingTemplate.convertAndSend("/topic/field." + fieldId.toString() + ".telemetry", responseDto);
-            
-            log.info("Saved telemetry from device='{}' for field='{}'", deviceId, fieldId);
+            telemetryIngestService.submit(logEntry);
 
         } catch (Exception e) {
             log.error("Failed to parse MQTT telemetry payload: {}", payload, e);
@@ -0,0 +1,244 @@
+package com.solara.backend.service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.solara.backend.entity.Field;
+import com.solara.backend.repository.FieldRepository;
+import com.solara.backend.utils.TransactionHooks;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps each field's weather_logs complete over the last
+ * {@code weather.backfill.history-days}.
+ *
+ * Every field has a watermark (field_weather_watermarks.synced_through): all
+ * days of the window up to it are present. The daily sync moves it forward by
+ * one day for fields that were up to date. A day Open-Meteo keeps answering
+ * without is recorded in field_weather_missing_days; after
+ * {@code weather.backfill.max-day-attempts} calendar days of trying it no longer
+ * holds the watermark back. The planner looks for missing days
+ * after the watermark, groups them into contiguous gaps and fills each gap with
+ * one Open-Meteo call (or straight from weather_cell_logs when the field's cell
+ * already has them). Both the sync and the backfill insert with ON CONFLICT DO
+ * NOTHING on (field_id, log_date), so a day they race on is written once. A new field simply starts without a watermark, so its
+ * whole year is one gap. Work runs on a single background thread; requests and
+ * field creation only enqueue the field.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WeatherBackfillService {
+
+    private static final String MISSING_DAYS_SQL = """
+            SELECT d::date FROM generate_series(CAST(? AS date), CAST(? AS date), interval '1 day') AS d
+            WHERE NOT EXISTS (SELECT 1 FROM weather_logs w WHERE w.field_id = ? AND w.log_date = d::date)
+              AND NOT EXISTS (SELECT 1 FROM field_weather_missing_days m
+                              WHERE m.field_id = ? AND m.log_date = d::date AND m.attempts >= ?)
+            ORDER BY 1
+            """;
+
+    // One attempt per still-missing day of the gap, counted at most once per calendar day
+    private static final String RECORD_MISSING_SQL = """
+            INSERT INTO field_weather_missing_days AS t (id, field_id, log_date, attempts, last_attempt_on)
+            SELECT gen_random_uuid(), ?, d::date, 1, ?
+            FROM generate_series(CAST(? AS date), CAST(? AS date), interval '1 day') AS d
+            WHERE NOT EXISTS (SELECT 1 FROM weather_logs w WHERE w.field_id = ? AND w.log_date = d::date)
+            ON CONFLICT (field_id, log_date) DO UPDATE SET attempts = t.attempts + 1, last_attempt_on = EXCLUDED.last_attempt_on
+            WHERE t.last_attempt_on < EXCLUDED.last_attempt_on
+            """;
+
+    private static final String BEHIND_FIELDS_SQL = """
+            SELECT f.id FROM fields f
+            LEFT JOIN field_weather_watermarks m ON m.field_id = f.id
+            WHERE m.synced_through IS NULL OR m.synced_through < ?
+            """;
+
+    private static final String UPSERT_WATERMARK_SQL = """
+            INSERT INTO field_weather_watermarks (field_id, synced_through, updated_at)
+            VALUES (?, ?, now())
+            ON CONFLICT (field_id) DO UPDATE SET synced_through = EXCLUDED.synced_through, updated_at = now()
+            """;
+
+    record Gap(LocalDate start, LocalDate end) {
+    }
+
+    private final FieldRepository fieldRepository;
+    private final WeatherSyncService weatherSyncService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${weather.backfill.history-days:365}")
+    private int historyDays;
+
+    @Value("${weather.backfill.max-day-attempts:7}")
+    private int maxDayAttempts;
+
+    private final LinkedBlockingQueue<UUID> queue = new LinkedBlockingQueue<>();
+    private final Set<UUID> queued = ConcurrentHashMap.newKeySet();
+    private volatile boolean running;
+    private Thread worker;
+
+    @PostConstruct
+    void start() {
+        running = true;
+        worker = Thread.ofPlatform()
+                .name("weather-backfill")
+                .start(this::backfillLoop);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(10_000);
+    }
+
+    /** Queues the field for backfill once the caller's transaction commits. */
+    public void requestBackfill(UUID fieldId) {
+        TransactionHooks.afterCommit(() -> {
+            if (queued.add(fieldId)) {
+                queue.add(fieldId);
+            }
+        });
+    }
+
+    /**
+     * Queues every field whose watermark is behind, e.g. after a failed daily sync.
+     * Until today's daily sync has run, yesterday is its job: only fields behind the
+     * day before yesterday are planned, so the whole fleet is not fetched field by
+     * field every night before the sync.
+     */
+    @Scheduled(fixedDelayString = "${weather.backfill.plan-interval-ms:3600000}",
+               initialDelayString = "${weather.backfill.initial-delay-ms:60000}")
+    public void planBackfill() {
+        LocalDate today = LocalDate.now();
+        LocalDate expected = today.equals(weatherSyncService.lastDailySyncOn()) ? today.minusDays(1) : today.minusDays(2);
+        List<UUID> behind = jdbcTemplate.queryForList(BEHIND_FIELDS_SQL, UUID.class, Date.valueOf(expected));
+        behind.forEach(this::requestBackfill);
+        if (!behind.isEmpty()) {
+            log.info("[WeatherBackfill] Planned backfill of {} fields", behind.size());
+        }
+    }
+
+    private void backfillLoop() {
+        while (running) {
+            UUID fieldId;
+            try {
+                fieldId = queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (fieldId == null) {
+                continue;
+            }
+            queued.remove(fieldId);
+            try {
+                backfill(fieldId);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                log.error("[WeatherBackfill] Backfill of field {} failed", fieldId, e);
+            }
+        }
+    }
+
+    void backfill(UUID fieldId) throws InterruptedException {
+        Field field = fieldRepository.findById(fieldId).orElse(null);
+        if (field == null) {
+            return;
+        }
+
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        LocalDate windowStart = yesterday.minusDays(historyDays);
+        LocalDate watermark = watermarkOf(fieldId);
+        LocalDate from = watermark == null || watermark.isBefore(windowStart) ? windowStart : watermark.plusDays(1);
+        if (from.isAfter(yesterday)) {
+            return;
+        }
+
+        List<Gap> gaps = findGaps(fieldId, from, yesterday);
+        LocalDate firstHole = null;
+        int filledGaps = 0;
+        for (Gap gap : gaps) {
+            boolean complete;
+            try {
+                complete = weatherSyncService.fillFieldRange(field, gap.start(), gap.end());
+                if (complete) {
+                    jdbcTemplate.update("DELETE FROM field_weather_missing_days WHERE field_id = ? AND log_date BETWEEN ? AND ?",
+                            fieldId, Date.valueOf(gap.start()), Date.valueOf(gap.end()));
+                } else {
+                    // Open-Meteo answered without some of the days; an error is not counted against them
+                    LocalDate today = LocalDate.now();
+                    jdbcTemplate.update(RECORD_MISSING_SQL, fieldId, Date.valueOf(today),
+                            Date.valueOf(gap.start()), Date.valueOf(gap.end()), fieldId);
+                }
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                log.warn("[WeatherBackfill] Could not fill {}..{} of field {}: {}", gap.start(), gap.end(), fieldId, e.getMessage());
+                complete = false;
+            }
+            if (complete) {
+                filledGaps++;
+            } else if (firstHole == null) {
+                firstHole = gap.start();
+            }
+        }
+
+        // The watermark only moves past days that are really there or given up; the rest is retried by the next plan
+        LocalDate syncedThrough = firstHole == null ? yesterday : firstHole.minusDays(1);
+        if (!syncedThrough.isBefore(from)) {
+            jdbcTemplate.update(UPSERT_WATERMARK_SQL, fieldId, Date.valueOf(syncedThrough));
+        }
+        if (!gaps.isEmpty()) {
+            log.info("[WeatherBackfill] Field {}: filled {}/{} gaps, synced through {}",
+                    fieldId, filledGaps, gaps.size(), syncedThrough);
+        }
+    }
+
+    private LocalDate watermarkOf(UUID fieldId) {
+        List<LocalDate> watermark = jdbcTemplate.queryForList(
+                "SELECT synced_through FROM field_weather_watermarks WHERE field_id = ?", LocalDate.class, fieldId);
+        return watermark.isEmpty() ? null : watermark.get(0);
+    }
+
+    /** Missing days of the field in [from, to], as contiguous ranges. */
+    private List<Gap> findGaps(UUID fieldId, LocalDate from, LocalDate to) {
+        List<LocalDate> missing = jdbcTemplate.queryForList(MISSING_DAYS_SQL, LocalDate.class,
+                Date.valueOf(from), Date.valueOf(to), fieldId, fieldId, maxDayAttempts);
+        List<Gap> gaps = new ArrayList<>();
+        LocalDate start = null;
+        LocalDate end = null;
+        for (LocalDate day : missing) {
+            if (start != null && day.equals(end.plusDays(1))) {
+                end = day;
+                continue;
+            }
+            if (start != null) {
+                gaps.add(new Gap(start, end));
+            }
+            start = day;
+            end = day;
+        }
+        if (start != null) {
+            gaps.add(new Gap(start, end));
+        }
+        return gaps;
+    }
+}
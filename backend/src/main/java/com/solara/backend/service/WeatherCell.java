@@ -0,0 +1,24 @@
+package com.solara.backend.service;
+
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+
+/**
+ * A cell of the lat/lon grid weather is fetched on. Fields whose centroids
+ * snap to the same cell share one Open-Meteo request and one weather_cell_logs
+ * series; the request uses the cell center, so they get identical data.
+ * The default resolution of 0.1° is roughly the weather model's own grid.
+ */
+public record WeatherCell(double latitude, double longitude) {
+
+    public static WeatherCell of(Polygon location, double resolutionDeg) {
+        Point centroid = location.getCentroid();
+        return new WeatherCell(snap(centroid.getY(), resolutionDeg), snap(centroid.getX(), resolutionDeg));
+    }
+
+    private static double snap(double degrees, double resolutionDeg) {
+        double center = Math.round(degrees / resolutionDeg) * resolutionDeg;
+        // Round away the floating point noise so equal cells compare and persist equally
+        return Math.round(center * 10_000d) / 10_000d;
+    }
+}
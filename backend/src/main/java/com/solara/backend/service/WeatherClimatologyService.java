@@ -0,0 +1,156 @@
+package com.solara.backend.service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.solara.backend.entity.WeatherLog;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Maintains weather_monthly_climatology.
+ *
+ * WeatherSyncService calls {@link #apply(List)} in the same transaction that
+ * writes weather_logs; the days are folded into one partial per (field, month)
+ * and merged with INSERT ... ON CONFLICT DO UPDATE. Deleting logs goes through
+ * {@link #deleteForField} or {@link #rebuild}, which recomputes from weather_logs.
+ * Existing weather_logs are folded in automatically: all fields at startup while
+ * the table is still empty, and a single field the first time its analysis finds
+ * no rows.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WeatherClimatologyService {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO weather_monthly_climatology AS t (id, field_id, month_start, day_count,
+                                                          temperature_count, temperature_sum, humidity_count, humidity_sum,
+                                                          rainfall_count, rainfall_sum)
+            VALUES (gen_random_uuid(), ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (field_id, month_start) DO UPDATE SET
+                day_count = t.day_count + EXCLUDED.day_count,
+                temperature_count = t.temperature_count + EXCLUDED.temperature_count,
+                temperature_sum = t.temperature_sum + EXCLUDED.temperature_sum,
+                humidity_count = t.humidity_count + EXCLUDED.humidity_count,
+                humidity_sum = t.humidity_sum + EXCLUDED.humidity_sum,
+                rainfall_count = t.rainfall_count + EXCLUDED.rainfall_count,
+                rainfall_sum = t.rainfall_sum + EXCLUDED.rainfall_sum
+            """;
+
+    private static final String REBUILD_SQL = """
+            INSERT INTO weather_monthly_climatology (id, field_id, month_start, day_count,
+                                                     temperature_count, temperature_sum, humidity_count, humidity_sum,
+                                                     rainfall_count, rainfall_sum)
+            SELECT gen_random_uuid(), field_id, CAST(date_trunc('month', log_date) AS date), COUNT(*),
+                   COUNT(average_temperature), COALESCE(SUM(average_temperature), 0),
+                   COUNT(average_humidity), COALESCE(SUM(average_humidity), 0),
+                   COUNT(total_rainfall), COALESCE(SUM(total_rainfall), 0)
+            FROM weather_logs
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** count/sum of the days of one field in one month */
+    private static final class Partial {
+        final UUID fieldId;
+        final LocalDate monthStart;
+        long days;
+        long temperatureCount;
+        double temperatureSum;
+        long humidityCount;
+        double humiditySum;
+        long rainfallCount;
+        double rainfallSum;
+
+        Partial(UUID fieldId, LocalDate monthStart) {
+            this.fieldId = fieldId;
+            this.monthStart = monthStart;
+        }
+
+        void add(WeatherLog day) {
+            days++;
+            if (day.getAverageTemperature() != null) {
+                temperatureCount++;
+                temperatureSum += day.getAverageTemperature();
+            }
+            if (day.getAverageHumidity() != null) {
+                humidityCount++;
+                humiditySum += day.getAverageHumidity();
+            }
+            if (day.getTotalRainfall() != null) {
+                rainfallCount++;
+                rainfallSum += day.getTotalRainfall();
+            }
+        }
+    }
+
+    private record MonthKey(UUID fieldId, LocalDate monthStart) {}
+
+    /** Seeds the climatology once, the first time the table is empty. Runs after Hibernate created the table. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        Boolean seeded = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM weather_monthly_climatology)", Boolean.class);
+        if (!Boolean.TRUE.equals(seeded)) {
+            int rows = jdbcTemplate.update(REBUILD_SQL + " GROUP BY field_id, date_trunc('month', log_date)");
+            log.info("[Climatology] Seeded {} monthly rows from weather_logs.", rows);
+        }
+    }
+
+    /**
+     * Merges newly written weather_logs days into the monthly rows.
+     * Must run in the caller's transaction so the climatology never drifts from weather_logs.
+     */
+    public void apply(List<WeatherLog> days) {
+        if (days.isEmpty()) {
+            return;
+        }
+        Map<MonthKey, Partial> partials = new LinkedHashMap<>();
+        for (WeatherLog day : days) {
+            LocalDate monthStart = day.getLogDate().withDayOfMonth(1);
+            partials.computeIfAbsent(new MonthKey(day.getFieldId(), monthStart),
+                    key -> new Partial(key.fieldId(), key.monthStart())).add(day);
+        }
+
+        List<Object[]> args = new ArrayList<>(partials.size());
+        for (Partial partial : partials.values()) {
+            args.add(new Object[] {
+                    partial.fieldId, Date.valueOf(partial.monthStart), partial.days,
+                    partial.temperatureCount, partial.temperatureSum,
+                    partial.humidityCount, partial.humiditySum,
+                    partial.rainfallCount, partial.rainfallSum });
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, args);
+    }
+
+    public void deleteForField(UUID fieldId) {
+        jdbcTemplate.update("DELETE FROM weather_monthly_climatology WHERE field_id = ?", fieldId);
+    }
+
+    /** Recomputes the monthly rows from weather_logs, for one field or all fields (fieldId null). */
+    @Transactional
+    public int rebuild(UUID fieldId) {
+        int rows;
+        if (fieldId == null) {
+            jdbcTemplate.update("DELETE FROM weather_monthly_climatology");
+            rows = jdbcTemplate.update(REBUILD_SQL + " GROUP BY field_id, date_trunc('month', log_date)");
+        } else {
+            deleteForField(fieldId);
+            rows = jdbcTemplate.update(REBUILD_SQL + " WHERE field_id = ? GROUP BY field_id, date_trunc('month', log_date)", fieldId);
+        }
+        log.info("[Climatology] Rebuilt {} monthly rows (field={})", rows, fieldId == null ? "all" : fieldId);
+        return rows;
+    }
+}
@@ -1,166 +1,377 @@
 package com.solara.backend.service;
 
+import java.sql.Date;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import org.locationtech.jts.geom.Point;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 import com.solara.backend.dto.response.OpenMeteoResponse;
+import com.solara.backend.dto.response.WeatherSyncReportDTO;
 import com.solara.backend.entity.Field;
 import com.solara.backend.entity.WeatherLog;
 import com.solara.backend.exception.AppException;
 import com.solara.backend.repository.FieldRepository;
+import com.solara.backend.repository.WeatherCellLogRepository;
 import com.solara.backend.repository.WeatherLogRepository;
 
+/**
+ * Keeps weather_logs filled from Open-Meteo.
+ *
+ * Weather is fetched per grid cell (see {@link WeatherCell}), not per field:
+ * the daily sync makes one request per occupied cell and the result is stored
+ * once in weather_cell_logs, then copied into weather_logs of every field in
+ * that cell. Missing ranges are filled by WeatherBackfillService through
+ * {@link #fillFieldRange}; a field in a cell that already has the range is
+ * filled from the shared rows without calling Open-Meteo at all.
+ */
 @Service
 public class WeatherSyncService {
 
     private static final Logger log = LoggerFactory.getLogger(WeatherSyncService.class);
 
+    // The forecast API serves up to 92 past days; stay clear of the edge
+    private static final int FORECAST_PAST_DAYS = 90;
+
+    private static final String UPSERT_CELL_LOG_SQL = """
+            INSERT INTO weather_cell_logs (id, cell_lat, cell_lon, log_date, total_rainfall, average_temperature,
+                                           average_humidity, created_at)
+            VALUES (gen_random_uuid(), ?, ?, ?, ?, ?, ?, now())
+            ON CONFLICT (cell_lat, cell_lon, log_date) DO UPDATE
+                SET total_rainfall = EXCLUDED.total_rainfall,
+                    average_temperature = EXCLUDED.average_temperature,
+                    average_humidity = EXCLUDED.average_humidity
+            """;
+
+    // Copies the cell's days the field does not have yet; RETURNING yields only the rows actually inserted
+    private static final String COPY_TO_FIELD_SQL = """
+            INSERT INTO weather_logs (id, field_id, log_date, total_rainfall, average_temperature, average_humidity, created_at)
+            SELECT gen_random_uuid(), ?, c.log_date, c.total_rainfall, c.average_temperature, c.average_humidity, now()
+            FROM weather_cell_logs c
+            WHERE c.cell_lat = ? AND c.cell_lon = ? AND c.log_date BETWEEN ? AND ?
+            ON CONFLICT (field_id, log_date) DO NOTHING
+            RETURNING field_id, log_date, total_rainfall, average_temperature, average_humidity
+            """;
+
+    // The backfill worker may have written the same day in the meantime
+    private static final String INSERT_FIELD_LOG_SQL = """
+            INSERT INTO weather_logs (id, field_id, log_date, total_rainfall, average_temperature, average_humidity, created_at)
+            VALUES (gen_random_uuid(), ?, ?, ?, ?, ?, now())
+            ON CONFLICT (field_id, log_date) DO NOTHING
+            """;
+
+    // Fields that were complete through the day before yesterday are now complete through yesterday
+    private static final String ADVANCE_WATERMARK_SQL = """
+            UPDATE field_weather_watermarks SET synced_through = ?, updated_at = now()
+            WHERE field_id = ? AND synced_through = ?
+            """;
+
     private final FieldRepository fieldRepository;
     private final WeatherLogRepository weatherLogRepository;
+    private final WeatherCellLogRepository weatherCellLogRepository;
+    private final WeatherClimatologyService weatherClimatologyService;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
     private final RestTemplate weatherRestTemplate; // from your WeatherAPIConfig
+    private final double gridResolutionDeg;
+    private final int syncConcurrency;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final TokenBucket rateLimiter;
+
+    private final AtomicBoolean syncRunning = new AtomicBoolean();
+    private volatile LocalDate lastDailySyncOn;
 
     public WeatherSyncService(FieldRepository fieldRepository,
                               WeatherLogRepository weatherLogRepository,
-                              RestTemplate weatherRestTemplate) {
+                              WeatherCellLogRepository weatherCellLogRepository,
+                              WeatherClimatologyService weatherClimatologyService,
+                              TransactionTemplate transactionTemplate,
+                              JdbcTemplate jdbcTemplate,
+                              @Qualifier("weatherRestTemplate") RestTemplate weatherRestTemplate,
+                              @Value("${weather.grid.resolution-deg:0.1}") double gridResolutionDeg,
+                              @Value("${weather.sync.concurrency:8}") int syncConcurrency,
+                              @Value("${weather.sync.rate-per-second:5}") double ratePerSecond,
+                              @Value("${weather.sync.burst:5}") int burst,
+                              @Value("${weather.sync.max-attempts:3}") int maxAttempts,
+                              @Value("${weather.sync.retry-backoff-ms:2000}") long retryBackoffMs) {
         this.fieldRepository = fieldRepository;
         this.weatherLogRepository = weatherLogRepository;
+        this.weatherCellLogRepository = weatherCellLogRepository;
+        this.weatherClimatologyService = weatherClimatologyService;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
         this.weatherRestTemplate = weatherRestTemplate;
+        this.gridResolutionDeg = gridResolutionDeg;
+        this.syncConcurrency = syncConcurrency;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.rateLimiter = new TokenBucket(ratePerSecond, burst);
     }
 
     // Runs every day at 2:00 AM server time
     @Scheduled(cron = "0 0 2 * * ?")
-    public void syncDailyWeatherData() {
+    public void scheduledDailySync() {
+        syncDailyWeatherData();
+    }
+
+    /**
+     * Fetches yesterday's weather of every occupied cell on virtual threads, at most
+     * {@code weather.sync.concurrency} requests in flight and no faster than
+     * {@code weather.sync.rate-per-second}. A failing cell is retried with exponential
+     * backoff and, if it still fails, only its own fields are reported as failed; the
+     * results of all other cells are written in bulk at the end.
+     */
+    public WeatherSyncReportDTO syncDailyWeatherData() {
+        if (!syncRunning.compareAndSet(false, true)) {
+            throw new AppException(HttpStatus.CONFLICT, "A weather sync is already running.");
+        }
+        try {
+            return runDailySync();
+        } finally {
+            syncRunning.set(false);
+        }
+    }
+
+    /** The day the daily sync last wrote its results, or null if it has not run since startup. */
+    public LocalDate lastDailySyncOn() {
+        return lastDailySyncOn;
+    }
+
+    private WeatherSyncReportDTO runDailySync() {
         log.info("Starting daily weather sync...");
-        
+        long startedAt = System.currentTimeMillis();
+
         LocalDate yesterday = LocalDate.now().minusDays(1);
-        List<Field> fields = fieldRepository.findAll();
+        Map<WeatherCell, List<Field>> fieldsByCell = new LinkedHashMap<>();
+        int fieldCount = 0;
+        for (Field field : fieldRepository.findAll()) {
+            fieldsByCell.computeIfAbsent(cellOf(field), cell -> new ArrayList<>()).add(field);
+            fieldCount++;
+        }
 
-        for (Field field : fields) {
+        Semaphore inFlight = new Semaphore(syncConcurrency);
+        Map<WeatherCell, Future<OpenMeteoResponse>> fetches = new LinkedHashMap<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (WeatherCell cell : fieldsByCell.keySet()) {
+                fetches.put(cell, executor.submit(() -> {
+                    inFlight.acquire();
+                    try {
+                        return fetchYesterday(cell);
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+        } // close() waits for every fetch
+
+        List<Object[]> cellRows = new ArrayList<>();
+        Map<WeatherCell, Object[]> dayByCell = new LinkedHashMap<>();
+        List<UUID> failedFieldIds = new ArrayList<>();
+        for (Map.Entry<WeatherCell, Future<OpenMeteoResponse>> fetch : fetches.entrySet()) {
+            WeatherCell cell = fetch.getKey();
             try {
-                // 1. Calculate the spatial centroid of the field polygon
-                Point centroid = field.getLocation().getCentroid();
-                double latitude = centroid.getY();
-                double longitude = centroid.getX();
-
-                // 2. Fetch yesterday's total rainfall and average temperature
-                // Using api.open-meteo.com with past_days=1 for reliable "yesterday" data
-                String url = String.format(
-                    "https://api.open-meteo.com/v1/forecast?latitude=%s&longitude=%s&past_days=1&forecast_days=0&daily=temperature_2m_mean,precipitation_sum,relative_humidity_2m_mean", 
-                    latitude, longitude
-                );
-
-                OpenMeteoResponse apiResponse = weatherRestTemplate.getForObject(url, OpenMeteoResponse.class);
-
-                // Since we only requested one day, the lists will have exactly 1 element at index 0
-                double fetchedAvgTemp = apiResponse.daily().temperature2mMean().get(0);
-                double fetchedRainfall = apiResponse.daily().precipitationSum().get(0);
-                Double fetchedHumidity = (apiResponse.daily().relativeHumidity2mMean() != null
-                        && !apiResponse.daily().relativeHumidity2mMean().isEmpty())
-                        ? apiResponse.daily().relativeHumidity2mMean().get(0) : null;
-
-                // 3. Save this to your local weather_logs PostgreSQL table
-                WeatherLog weatherLog = WeatherLog.builder()
-                        .fieldId(field.getId())
-                        .logDate(yesterday)
-                        .totalRainfall(fetchedRainfall)
-                        .averageTemperature(fetchedAvgTemp)
-                        .averageHumidity(fetchedHumidity)
-                        .build();
+                List<Object[]> rows = cellRows(cell, fetch.getValue().get());
+                if (rows.isEmpty()) {
+                    throw new IllegalStateException("empty daily response");
+                }
+                cellRows.addAll(rows);
+                dayByCell.put(cell, rows.get(0));
+            } catch (Exception e) {
+                Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                log.error("Failed to sync weather data for cell {}: {}", cell, cause.getMessage());
+                fieldsByCell.get(cell).forEach(field -> failedFieldIds.add(field.getId()));
+            }
+        }
 
-                weatherLogRepository.save(weatherLog);
-                log.info("Saved weather log for field {}", field.getId());
+        jdbcTemplate.batchUpdate(UPSERT_CELL_LOG_SQL, cellRows);
 
-            } catch (Exception e) {
-                log.error("Failed to sync weather data for field {}", field.getId(), e);
-                throw new AppException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+        List<WeatherLog> logsToSave = new ArrayList<>();
+        List<Object[]> watermarkArgs = new ArrayList<>();
+        int syncedFields = 0;
+        for (Map.Entry<WeatherCell, Object[]> day : dayByCell.entrySet()) {
+            Object[] row = day.getValue();
+            for (Field field : fieldsByCell.get(day.getKey())) {
+                syncedFields++;
+                watermarkArgs.add(new Object[] { Date.valueOf(yesterday), field.getId(), Date.valueOf(yesterday.minusDays(1)) });
+                logsToSave.add(WeatherLog.builder()
+                        .fieldId(field.getId())
+                        .logDate(yesterday)
+                        .totalRainfall((Double) row[3])
+                        .averageTemperature((Double) row[4])
+                        .averageHumidity((Double) row[5])
+                        .build());
             }
         }
-        
-        log.info("Daily weather sync completed.");
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Object[]> insertArgs = new ArrayList<>(logsToSave.size());
+            for (WeatherLog day : logsToSave) {
+                insertArgs.add(new Object[] { day.getFieldId(), Date.valueOf(day.getLogDate()),
+                        day.getTotalRainfall(), day.getAverageTemperature(), day.getAverageHumidity() });
+            }
+            // A re-run on the same day, or a backfill that got there first, inserts nothing for that field
+            int[] inserted = jdbcTemplate.batchUpdate(INSERT_FIELD_LOG_SQL, insertArgs);
+            List<WeatherLog> newDays = new ArrayList<>(logsToSave.size());
+            for (int i = 0; i < inserted.length; i++) {
+                if (inserted[i] > 0) {
+                    newDays.add(logsToSave.get(i));
+                }
+            }
+            weatherClimatologyService.apply(newDays);
+            jdbcTemplate.batchUpdate(ADVANCE_WATERMARK_SQL, watermarkArgs);
+        });
+        lastDailySyncOn = LocalDate.now();
+
+        WeatherSyncReportDTO report = WeatherSyncReportDTO.builder()
+                .logDate(yesterday)
+                .cells(fieldsByCell.size())
+                .fields(fieldCount)
+                .syncedFields(syncedFields)
+                .failedFieldIds(failedFieldIds)
+                .durationMs(System.currentTimeMillis() - startedAt)
+                .build();
+        if (failedFieldIds.isEmpty()) {
+            log.info("Daily weather sync completed: {} fields in {} cells, {} ms.",
+                    fieldCount, report.getCells(), report.getDurationMs());
+        } else {
+            log.warn("Daily weather sync completed with failures: {}/{} fields synced, failed fields {}, {} ms.",
+                    syncedFields, fieldCount, failedFieldIds, report.getDurationMs());
+        }
+        return report;
     }
 
-    /**
-     * Called on field creation — runs in a background thread so the HTTP response
-     * is not blocked while fetching 365 days of archive data.
-     */
-    @Async
-    public void initializeFieldWeatherData(Field field) {
-        initializeFieldWeatherDataSync(field);
+    private OpenMeteoResponse fetchYesterday(WeatherCell cell) throws InterruptedException {
+        // Fetch yesterday's total rainfall and average temperature at the cell center
+        // Using api.open-meteo.com with past_days=1 for reliable "yesterday" data
+        String url = String.format(
+            "https://api.open-meteo.com/v1/forecast?latitude=%s&longitude=%s&past_days=1&forecast_days=0&daily=temperature_2m_mean,precipitation_sum,relative_humidity_2m_mean", 
+            cell.latitude(), cell.longitude()
+        );
+        for (int attempt = 1; ; attempt++) {
+            rateLimiter.acquire();
+            try {
+                return weatherRestTemplate.getForObject(url, OpenMeteoResponse.class);
+            } catch (RestClientException e) {
+                boolean retryable = !(e instanceof HttpClientErrorException clientError)
+                        || clientError.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS;
+                if (!retryable || attempt >= maxAttempts) {
+                    // A client error other than 429 gives up on the first attempt
+                    throw new RestClientException("failed after " + attempt + (attempt == 1 ? " attempt: " : " attempts: ")
+                            + e.getMessage(), e);
+                }
+                long backoffMs = retryBackoffMs << (attempt - 1);
+                log.warn("Weather fetch for cell {} failed (attempt {}), retrying in {} ms: {}", cell, attempt, backoffMs, e.getMessage());
+                Thread.sleep(backoffMs);
+            }
+        }
     }
 
     /**
-     * Synchronous version used by AnalysisService as a self-healing fallback:
-     * if weather_logs is empty for a field (Open-Meteo was down at creation time),
-     * this is called inline before running analysis so the request can still succeed.
+     * Fills [start, end] of the field's weather_logs from its cell, called by
+     * WeatherBackfillService for one gap. The cell is fetched with a single call only
+     * when weather_cell_logs does not already hold the whole range: the forecast API
+     * for the last {@value #FORECAST_PAST_DAYS} days (the archive lags a few days
+     * behind), the archive API for anything older.
+     *
+     * @return true if every day of the range is now present for the field
      */
-    public void initializeFieldWeatherDataSync(Field field) {
-        log.info("Initializing 1 year of historical weather data for field {}", field.getId());
-
-        LocalDate endDate = LocalDate.now().minusDays(1);
-        LocalDate startDate = endDate.minusYears(1);
+    public boolean fillFieldRange(Field field, LocalDate start, LocalDate end) throws InterruptedException {
+        WeatherCell cell = cellOf(field);
+        long days = ChronoUnit.DAYS.between(start, end) + 1;
+        long cached = weatherCellLogRepository.countByCellLatAndCellLonAndLogDateBetween(
+                cell.latitude(), cell.longitude(), start, end);
 
-        Point centroid = field.getLocation().getCentroid();
-        double latitude = centroid.getY();
-        double longitude = centroid.getX();
+        if (cached < days) {
+            String url = start.isBefore(LocalDate.now().minusDays(FORECAST_PAST_DAYS))
+                    ? String.format(
+                        "https://archive-api.open-meteo.com/v1/archive?latitude=%s&longitude=%s&start_date=%s&end_date=%s&daily=temperature_2m_mean,precipitation_sum,relative_humidity_2m_mean",
+                        cell.latitude(), cell.longitude(), start, end)
+                    : String.format(
+                        "https://api.open-meteo.com/v1/forecast?latitude=%s&longitude=%s&start_date=%s&end_date=%s&daily=temperature_2m_mean,precipitation_sum,relative_humidity_2m_mean",
+                        cell.latitude(), cell.longitude(), start, end);
 
-        String url = String.format(
-            "https://archive-api.open-meteo.com/v1/archive?latitude=%s&longitude=%s&start_date=%s&end_date=%s&daily=temperature_2m_mean,precipitation_sum,relative_humidity_2m_mean",
-            latitude, longitude, startDate, endDate
-        );
-
-        try {
+            rateLimiter.acquire();
             OpenMeteoResponse apiResponse = weatherRestTemplate.getForObject(url, OpenMeteoResponse.class);
+            jdbcTemplate.batchUpdate(UPSERT_CELL_LOG_SQL, cellRows(cell, apiResponse));
+        }
 
-            if (apiResponse != null && apiResponse.daily() != null) {
-                List<WeatherLog> logsToSave = new ArrayList<>();
-                int dataSize = apiResponse.daily().time().size();
-
-                for (int i = 0; i < dataSize; i++) {
-                    LocalDate logDate = LocalDate.parse(apiResponse.daily().time().get(i));
-                    Double avgTemp = apiResponse.daily().temperature2mMean().get(i);
-                    Double rainfall = apiResponse.daily().precipitationSum().get(i);
-                    Double humidity = (apiResponse.daily().relativeHumidity2mMean() != null
-                            && i < apiResponse.daily().relativeHumidity2mMean().size())
-                            ? apiResponse.daily().relativeHumidity2mMean().get(i) : null;
-
-                    WeatherLog logItem = WeatherLog.builder()
-                        .fieldId(field.getId())
-                        .logDate(logDate)
-                        .averageTemperature(avgTemp)
-                        .totalRainfall(rainfall)
-                        .averageHumidity(humidity)
-                        .build();
+        // Every day of a gap is missing for the field, so each copied row closes one
+        int copied = copyCellLogsToField(cell, field.getId(), start, end);
+        log.info("Filled {}/{} days ({}..{}) of field {} from cell {}{}", copied, days, start, end,
+                field.getId(), cell, cached < days ? "" : " (shared)");
+        return copied >= days;
+    }
 
-                    logsToSave.add(logItem);
-                }
+    private WeatherCell cellOf(Field field) {
+        return WeatherCell.of(field.getLocation(), gridResolutionDeg);
+    }
 
-                weatherLogRepository.saveAll(logsToSave);
-                log.info("Successfully saved {} historical weather records for field {}.",
-                        logsToSave.size(), field.getId());
+    /** UPSERT_CELL_LOG_SQL arguments for every day of the response. */
+    private static List<Object[]> cellRows(WeatherCell cell, OpenMeteoResponse apiResponse) {
+        List<Object[]> rows = new ArrayList<>();
+        if (apiResponse == null || apiResponse.daily() == null) {
+            return rows;
+        }
+        OpenMeteoResponse.Daily daily = apiResponse.daily();
+        for (int i = 0; i < daily.time().size(); i++) {
+            Double humidity = (daily.relativeHumidity2mMean() != null && i < daily.relativeHumidity2mMean().size())
+                    ? daily.relativeHumidity2mMean().get(i) : null;
+            if (daily.temperature2mMean().get(i) == null) {
+                continue; // Not published yet (recent archive days); the gap stays open and is retried
             }
-        } catch (Exception e) {
-            log.error("Failed to initialize historical data for field {}: {}", field.getId(), e.getMessage());
-            throw new AppException(HttpStatus.SERVICE_UNAVAILABLE,
-                    "Weather data service is currently unavailable. Please try again later.");
+            rows.add(new Object[] {
+                    cell.latitude(), cell.longitude(), Date.valueOf(LocalDate.parse(daily.time().get(i))),
+                    daily.precipitationSum().get(i), daily.temperature2mMean().get(i), humidity });
         }
+        return rows;
+    }
+
+    private int copyCellLogsToField(WeatherCell cell, UUID fieldId, LocalDate start, LocalDate end) {
+        Integer copied = transactionTemplate.execute(status -> {
+            List<WeatherLog> days = jdbcTemplate.query(COPY_TO_FIELD_SQL, (rs, rowNum) -> WeatherLog.builder()
+                            .fieldId(rs.getObject("field_id", UUID.class))
+                            .logDate(rs.getObject("log_date", LocalDate.class))
+                            .totalRainfall(rs.getObject("total_rainfall", Double.class))
+                            .averageTemperature(rs.getObject("average_temperature", Double.class))
+                            .averageHumidity(rs.getObject("average_humidity", Double.class))
+                            .build(),
+                    fieldId, cell.latitude(), cell.longitude(), Date.valueOf(start), Date.valueOf(end));
+            weatherClimatologyService.apply(days);
+            return days.size();
+        });
+        return copied != null ? copied : 0;
     }
 
     @Transactional
     public void deleteWeatherLogsForField(UUID fieldId) {
         try {
             weatherLogRepository.deleteByFieldId(fieldId);
+            weatherClimatologyService.deleteForField(fieldId);
+            jdbcTemplate.update("DELETE FROM field_weather_watermarks WHERE field_id = ?", fieldId);
+            jdbcTemplate.update("DELETE FROM field_weather_missing_days WHERE field_id = ?", fieldId);
             log.info("Deleted weather logs for field {}", fieldId);
         } catch (Exception e) {
             log.error("Failed to delete weather logs for field {}: {}", fieldId, e.getMessage());
@@ -181,6 +392,9 @@ public class WeatherSyncService {
     public void deleteWeatherLog(UUID fieldId, UUID logId) {
         try {
             weatherLogRepository.deleteByIdAndFieldId(logId, fieldId);
+            weatherClimatologyService.rebuild(fieldId);
+            // The deleted day may be below the watermark; the next backfill rescans the whole window
+            jdbcTemplate.update("DELETE FROM field_weather_watermarks WHERE field_id = ?", fieldId);
             log.info("Deleted weather log {} for field {}", logId, fieldId);
         } catch (Exception e) {
             log.error("Failed to delete weather log {} for field {}: {}", logId, fieldId, e.getMessage());
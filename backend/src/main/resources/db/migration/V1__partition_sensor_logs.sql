@@ -0,0 +1,77 @@
+-- Turns sensor_logs into a table range-partitioned by month on "timestamp".
+--
+-- Runs before Hibernate's schema update, so it handles both a fresh database
+-- (sensor_logs does not exist yet) and one where ddl-auto already created a
+-- plain sensor_logs table; in that case the rows are copied into the new
+-- partitions and the old table is dropped. Partitions are named
+-- sensor_logs_pYYYYMM; later months are created by SensorLogsPartitionManager.
+
+DO $$
+DECLARE
+    has_legacy  boolean;
+    first_month date := date_trunc('month', now() AT TIME ZONE 'UTC')::date;
+    last_month  date := (date_trunc('month', now() AT TIME ZONE 'UTC') + interval '3 months')::date;
+    legacy_min  timestamp;
+    month_start date;
+BEGIN
+    SELECT EXISTS (
+        SELECT 1 FROM pg_class c
+        WHERE c.relname = 'sensor_logs'
+          AND c.relkind = 'r'
+          AND c.relnamespace = current_schema()::regnamespace
+    ) INTO has_legacy;
+
+    IF has_legacy THEN
+        ALTER TABLE sensor_logs RENAME TO sensor_logs_legacy;
+        SELECT min("timestamp") INTO legacy_min FROM sensor_logs_legacy;
+        IF legacy_min IS NOT NULL THEN
+            first_month := LEAST(first_month, date_trunc('month', legacy_min)::date);
+        END IF;
+    END IF;
+
+    -- The primary key of a partitioned table must contain the partition key
+    CREATE TABLE IF NOT EXISTS sensor_logs (
+        id                  uuid             NOT NULL,
+        field_id            uuid             NOT NULL,
+        device_id           varchar(255)     NOT NULL,
+        soil_temperature    double precision,
+        soil_humidity       double precision,
+        ambient_temperature double precision,
+        ambient_humidity    double precision,
+        battery_voltage     double precision,
+        battery_percentage  integer,
+        location_latitude   double precision,
+        location_longitude  double precision,
+        location_accuracy   double precision,
+        errors              varchar(255),
+        "timestamp"         timestamp(6)     NOT NULL,
+        CONSTRAINT pk_sensor_logs PRIMARY KEY (id, "timestamp")
+    ) PARTITION BY RANGE ("timestamp");
+
+    month_start := first_month;
+    WHILE month_start <= last_month LOOP
+        EXECUTE format(
+            'CREATE TABLE IF NOT EXISTS %I PARTITION OF sensor_logs FOR VALUES FROM (%L) TO (%L)',
+            'sensor_logs_p' || to_char(month_start, 'YYYYMM'),
+            month_start,
+            (month_start + interval '1 month')::date);
+        month_start := (month_start + interval '1 month')::date;
+    END LOOP;
+
+    -- Catches readings outside every monthly partition (e.g. a clock far in the future)
+    CREATE TABLE IF NOT EXISTS sensor_logs_default PARTITION OF sensor_logs DEFAULT;
+
+    IF has_legacy THEN
+        INSERT INTO sensor_logs (id, field_id, device_id, soil_temperature, soil_humidity,
+               ambient_temperature, ambient_humidity, battery_voltage, battery_percentage,
+               location_latitude, location_longitude, location_accuracy, errors, "timestamp")
+        SELECT id, field_id, device_id, soil_temperature, soil_humidity,
+               ambient_temperature, ambient_humidity, battery_voltage, battery_percentage,
+               location_latitude, location_longitude, location_accuracy, errors, "timestamp"
+        FROM sensor_logs_legacy;
+        DROP TABLE sensor_logs_legacy;
+    END IF;
+END $$;
+
+-- Declared on the parent, so every partition (existing and future) gets its own copy
+CREATE INDEX IF NOT EXISTS idx_sensor_logs_field_timestamp ON sensor_logs (field_id, "timestamp");
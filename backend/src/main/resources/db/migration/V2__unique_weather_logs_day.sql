@@ -0,0 +1,32 @@
+-- Makes (field_id, log_date) unique in weather_logs, so the daily sync and the
+-- backfill can no longer both write the same day of a field.
+--
+-- Runs before Hibernate's schema update; on a fresh database weather_logs does
+-- not exist yet and Hibernate creates it with the constraint. Duplicates written
+-- before the constraint existed are dropped, keeping one row per day. They were
+-- also counted twice in weather_monthly_climatology, so that table is emptied
+-- and WeatherClimatologyService seeds it again at startup.
+
+DO $$
+DECLARE
+    removed integer;
+BEGIN
+    IF to_regclass('weather_logs') IS NULL THEN
+        RETURN;
+    END IF;
+
+    DELETE FROM weather_logs w
+    USING weather_logs o
+    WHERE w.field_id = o.field_id
+      AND w.log_date = o.log_date
+      AND w.ctid > o.ctid;
+    GET DIAGNOSTICS removed = ROW_COUNT;
+
+    IF removed > 0 AND to_regclass('weather_monthly_climatology') IS NOT NULL THEN
+        TRUNCATE weather_monthly_climatology;
+    END IF;
+
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_weather_logs_field_date') THEN
+        ALTER TABLE weather_logs ADD CONSTRAINT uk_weather_logs_field_date UNIQUE (field_id, log_date);
+    END IF;
+END $$;
@@ -0,0 +1,216 @@
+package com.solara.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.solara.backend.entity.AlertEvent;
+import com.solara.backend.entity.AlertMetric;
+import com.solara.backend.entity.AlertOperator;
+import com.solara.backend.entity.AlertOutbox;
+import com.solara.backend.entity.AlertOutboxType;
+import com.solara.backend.entity.AlertRule;
+import com.solara.backend.entity.User;
+import com.solara.backend.repository.AlertEventRepository;
+import com.solara.backend.repository.AlertOutboxRepository;
+import com.solara.backend.repository.AlertRuleRepository;
+import com.solara.backend.repository.FieldRepository;
+import com.solara.backend.repository.UserRepository;
+
+/**
+ * Runs AlertNotificationDispatcher batches against an in-memory outbox whose
+ * claim query honours dispatched_at, attempts and next_attempt_at like the
+ * real one. The dispatcher thread is not started; the tests call dispatchBatch.
+ */
+class AlertNotificationDispatcherTests {
+
+    private final AlertOutboxRepository alertOutboxRepository = mock(AlertOutboxRepository.class);
+    private final AlertEventRepository alertEventRepository = mock(AlertEventRepository.class);
+    private final AlertRuleRepository alertRuleRepository = mock(AlertRuleRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final PushNotificationService pushNotificationService = mock(PushNotificationService.class);
+    private final AlertEmailService alertEmailService = mock(AlertEmailService.class);
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final AlertNotificationDispatcher dispatcher = new AlertNotificationDispatcher(alertOutboxRepository,
+            alertEventRepository, alertRuleRepository, mock(FieldRepository.class), userRepository,
+            pushNotificationService, alertEmailService, messagingTemplate, null, transactionTemplate);
+
+    private final List<AlertOutbox> outbox = new CopyOnWriteArrayList<>();
+    private final User user = User.builder().id(UUID.randomUUID()).email("owner@solara.test").build();
+    private AlertRule rule;
+    private AlertEvent event;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 50);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 8);
+        ReflectionTestUtils.setField(dispatcher, "leaseSeconds", 300L);
+
+        doAnswer(invocation -> {
+            LocalDateTime now = invocation.getArgument(0);
+            int maxAttempts = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            return outbox.stream()
+                    .filter(row -> row.getDispatchedAt() == null && row.getAttempts() < maxAttempts
+                            && !row.getNextAttemptAt().isAfter(now))
+                    .limit(limit)
+                    .toList();
+        }).when(alertOutboxRepository).claimDue(any(), anyInt(), anyInt());
+        doAnswer(invocation -> {
+            TransactionCallback<?> callback = invocation.getArgument(0);
+            return callback.doInTransaction(null);
+        }).when(transactionTemplate).execute(any());
+        doAnswer(invocation -> {
+            Consumer<TransactionStatus> action = invocation.getArgument(0);
+            action.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        rule = AlertRule.builder()
+                .id(UUID.randomUUID())
+                .userId(user.getID())
+                .fieldId(UUID.randomUUID())
+                .name("Dry soil")
+                .metric(AlertMetric.SOIL_HUMIDITY)
+                .operator(AlertOperator.BELOW)
+                .threshold(20.0)
+                .durationMinutes(5)
+                .notifyEmail(false)
+                .build();
+        event = AlertEvent.builder()
+                .id(UUID.randomUUID())
+                .ruleId(rule.getId())
+                .fieldId(rule.getFieldId())
+                .lastValue(12.0)
+                .build();
+        doReturn(List.of(event)).when(alertEventRepository).findAllById(any());
+        doReturn(List.of(rule)).when(alertRuleRepository).findAllById(any());
+        when(userRepository.findById(user.getID())).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    void deliversEveryChannelAndMarksTheRowDispatched() {
+        AlertOutbox row = row(event);
+        when(pushNotificationService.sendAlertTriggeredPush(any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        assertEquals(1, dispatcher.dispatchBatch());
+
+        assertNotNull(row.getDispatchedAt());
+        assertTrue(row.isPushSent());
+        assertTrue(row.isEmailSent()); // the rule does not email
+        assertTrue(row.isWsSent());
+        verify(alertEmailService, never()).send(any(), any());
+        assertEquals(0, dispatcher.dispatchBatch());
+    }
+
+    @Test
+    void aFailedChannelBacksOffAndOnlyThatChannelIsRetried() {
+        rule.setNotifyEmail(true);
+        AlertOutbox row = row(event);
+        when(alertEmailService.send(any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(pushNotificationService.sendAlertTriggeredPush(any(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("expo down")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        LocalDateTime before = LocalDateTime.now();
+        assertEquals(1, dispatcher.dispatchBatch());
+
+        assertNull(row.getDispatchedAt());
+        assertEquals(1, row.getAttempts());
+        assertEquals("expo down", row.getLastError());
+        assertFalse(row.isPushSent());
+        assertTrue(row.isEmailSent());
+        assertTrue(row.isWsSent());
+        assertTrue(row.getNextAttemptAt().isAfter(before.plusSeconds(4)));
+
+        // Not due before the backoff has passed
+        assertEquals(0, dispatcher.dispatchBatch());
+
+        row.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        assertEquals(1, dispatcher.dispatchBatch());
+        assertNotNull(row.getDispatchedAt());
+        assertNull(row.getLastError());
+        verify(pushNotificationService, times(2)).sendAlertTriggeredPush(any(), any(), any());
+        verify(alertEmailService, times(1)).send(any(), any());
+        verify(messagingTemplate, times(1)).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void aClaimedRowIsLeftAloneUntilItsLeaseExpires() throws Exception {
+        ReflectionTestUtils.setField(dispatcher, "leaseSeconds", 1L);
+        AlertOutbox row = row(event);
+        CompletableFuture<Void> stuck = new CompletableFuture<>();
+        when(pushNotificationService.sendAlertTriggeredPush(any(), any(), any()))
+                .thenReturn(stuck)
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        // The first claimer hangs in delivery, e.g. an instance that died mid-batch
+        Thread first = Thread.ofVirtual().start(dispatcher::dispatchBatch);
+        verify(pushNotificationService, timeout(5000)).sendAlertTriggeredPush(any(), any(), any());
+
+        assertEquals(0, dispatcher.dispatchBatch());
+
+        Thread.sleep(1100);
+        assertEquals(1, dispatcher.dispatchBatch());
+        assertNotNull(row.getDispatchedAt());
+
+        stuck.complete(null);
+        first.join(5000);
+    }
+
+    @Test
+    void rowsOfDeletedEventsAreClosedWithoutNotifying() {
+        doReturn(List.of()).when(alertEventRepository).findAllById(any());
+        AlertOutbox row = row(event);
+
+        assertEquals(1, dispatcher.dispatchBatch());
+
+        assertNotNull(row.getDispatchedAt());
+        verify(pushNotificationService, never()).sendAlertTriggeredPush(any(), any(), any());
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    }
+
+    private AlertOutbox row(AlertEvent event) {
+        LocalDateTime now = LocalDateTime.now();
+        AlertOutbox row = new AlertOutbox();
+        row.setId(UUID.randomUUID());
+        row.setEventId(event.getId());
+        row.setUserId(user.getID());
+        row.setType(AlertOutboxType.TRIGGERED);
+        row.setCreatedAt(now);
+        row.setNextAttemptAt(now.minusSeconds(1));
+        outbox.add(row);
+        return row;
+    }
+}
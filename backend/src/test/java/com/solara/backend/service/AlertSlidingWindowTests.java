@@ -0,0 +1,151 @@
+package com.solara.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.solara.backend.entity.AlertCondition;
+import com.solara.backend.entity.AlertMetric;
+import com.solara.backend.entity.AlertOperator;
+import com.solara.backend.entity.AlertRule;
+import com.solara.backend.repository.AlertRuleRepository;
+
+/**
+ * Checks the windowed aggregates of AlertSlidingWindow against hand-computed
+ * values and a brute-force scan, and the breach/clear thresholds of
+ * AlertRuleIndex.FieldRules.
+ */
+class AlertSlidingWindowTests {
+
+    @Test
+    void evictsSamplesAtTheWindowEdge() {
+        AlertSlidingWindow window = new AlertSlidingWindow(60_000)
+                .add(0, 1)
+                .add(30_000, 2)
+                .add(60_000, 3);
+
+        // The sample exactly one width old is out
+        assertEquals(2.5, window.value(AlertCondition.MEAN));
+        assertEquals(2, window.value(AlertCondition.MIN));
+
+        // One millisecond inside the window stays in
+        window.add(89_999, 4);
+        assertEquals(3.0, window.value(AlertCondition.MEAN));
+        assertEquals(2, window.value(AlertCondition.MIN));
+        assertEquals(4, window.value(AlertCondition.VALUE));
+    }
+
+    @Test
+    void minAndMaxFollowEvictions() {
+        AlertSlidingWindow window = new AlertSlidingWindow(100)
+                .add(0, 5)
+                .add(10, 1)
+                .add(20, 9)
+                .add(30, 3);
+        assertEquals(1, window.value(AlertCondition.MIN));
+        assertEquals(9, window.value(AlertCondition.MAX));
+
+        // Evicts 5 and the minimum 1
+        window.add(110, 4);
+        assertEquals(3, window.value(AlertCondition.MIN));
+        assertEquals(9, window.value(AlertCondition.MAX));
+
+        // Evicts the maximum 9
+        window.add(121, 2);
+        assertEquals(2, window.value(AlertCondition.MIN));
+        assertEquals(4, window.value(AlertCondition.MAX));
+    }
+
+    @Test
+    void matchesABruteForceScanAcrossGrow() {
+        long width = 10;
+        AlertSlidingWindow window = new AlertSlidingWindow(width);
+        List<long[]> samples = new ArrayList<>();
+        long time = 0;
+        for (int i = 0; i < 200; i++) {
+            // About ten samples in the window so the ring wraps, then bursts at one timestamp force it to grow
+            if (i < 50 || i % 40 == 0) {
+                time++;
+            }
+            long value = (i * 37L) % 101;
+            window.add(time, value);
+            samples.add(new long[] { time, value });
+
+            long cutoff = time - width;
+            double min = Double.MAX_VALUE;
+            double max = -Double.MAX_VALUE;
+            double sum = 0;
+            int count = 0;
+            for (long[] sample : samples) {
+                if (sample[0] > cutoff) {
+                    min = Math.min(min, sample[1]);
+                    max = Math.max(max, sample[1]);
+                    sum += sample[1];
+                    count++;
+                }
+            }
+            assertEquals(min, window.value(AlertCondition.MIN), "min after sample " + i);
+            assertEquals(max, window.value(AlertCondition.MAX), "max after sample " + i);
+            assertEquals(sum / count, window.value(AlertCondition.MEAN), 1e-9, "mean after sample " + i);
+        }
+    }
+
+    @Test
+    void ratePerHourNeedsTwoDistinctTimestamps() {
+        AlertSlidingWindow window = new AlertSlidingWindow(7_200_000);
+        assertTrue(Double.isNaN(window.value(AlertCondition.RATE_PER_HOUR)));
+
+        window.add(1_000, 10);
+        assertTrue(Double.isNaN(window.value(AlertCondition.RATE_PER_HOUR)));
+
+        window.add(1_000, 14);
+        assertTrue(Double.isNaN(window.value(AlertCondition.RATE_PER_HOUR)));
+
+        // +2 over half an hour from the oldest sample
+        window.add(1_801_000, 12);
+        assertEquals(4.0, window.value(AlertCondition.RATE_PER_HOUR), 1e-12);
+    }
+
+    @Test
+    void clearThresholdAddsHysteresis() {
+        AlertRuleIndex index = new AlertRuleIndex(mock(AlertRuleRepository.class));
+        UUID fieldId = UUID.randomUUID();
+        index.put(rule(fieldId, AlertOperator.ABOVE, 30.0, 25.0));
+        index.put(rule(fieldId, AlertOperator.BELOW, 10.0, 15.0));
+        index.put(rule(fieldId, AlertOperator.ABOVE, 40.0, null));
+        AlertRuleIndex.FieldRules rules = index.rulesFor(fieldId);
+
+        assertTrue(rules.breaches(0, 30.5));
+        assertFalse(rules.breaches(0, 30.0));
+        assertFalse(rules.clears(0, 28.0));
+        assertTrue(rules.clears(0, 25.0));
+
+        assertTrue(rules.breaches(1, 9.5));
+        assertFalse(rules.clears(1, 12.0));
+        assertTrue(rules.clears(1, 15.0));
+
+        // Without a clear threshold the breach is over as soon as the threshold is no longer crossed
+        assertTrue(rules.clears(2, 40.0));
+        assertFalse(rules.clears(2, 40.1));
+    }
+
+    private static AlertRule rule(UUID fieldId, AlertOperator operator, double threshold, Double clearThreshold) {
+        return AlertRule.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .fieldId(fieldId)
+                .name(operator + " " + threshold)
+                .metric(AlertMetric.SOIL_HUMIDITY)
+                .operator(operator)
+                .threshold(threshold)
+                .clearThreshold(clearThreshold)
+                .build();
+    }
+}
@@ -0,0 +1,154 @@
+package com.solara.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import com.solara.backend.dto.request.AnalysisRequestDTO;
+import com.solara.backend.dto.response.AnalysisJobDTO;
+import com.solara.backend.dto.response.AnalysisResultDTO;
+import com.solara.backend.exception.AppException;
+
+/**
+ * Runs AnalysisJobService with one worker and a queue of one behind a mocked
+ * AnalysisService that blocks until the test releases it.
+ */
+class AnalysisJobServiceTests {
+
+    private final UUID userId = UUID.randomUUID();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private AnalysisService analysisService;
+    private AnalysisJobService service;
+
+    @BeforeEach
+    void setUp() {
+        analysisService = mock(AnalysisService.class);
+        doAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return AnalysisResultDTO.builder().build();
+        }).when(analysisService).analyze(any(), any());
+        service = new AnalysisJobService(analysisService, mock(SimpMessagingTemplate.class), 1, 1, 0);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        service.stop();
+    }
+
+    @Test
+    void returnsTheActiveJobForTheSameParameters() throws Exception {
+        UUID fieldId = UUID.randomUUID();
+        AnalysisJobDTO first = service.submit(userId, request(fieldId));
+        AnalysisJobDTO second = service.submit(userId, request(fieldId));
+        assertEquals(first.getJobId(), second.getJobId());
+        assertEquals(1, service.getStats().deduplicated());
+
+        release.countDown();
+        awaitFinished(first.getJobId());
+        assertEquals("SUCCEEDED", service.getJob(userId, first.getJobId()).getStatus());
+
+        // Once finished, the same parameters start a new job
+        AnalysisJobDTO third = service.submit(userId, request(fieldId));
+        assertNotEquals(first.getJobId(), third.getJobId());
+    }
+
+    @Test
+    void rejectsSubmissionsWhenTheQueueIsFull() throws Exception {
+        AnalysisJobDTO running = service.submit(userId, request(UUID.randomUUID()));
+        awaitStatus(running.getJobId(), "RUNNING");
+        service.submit(userId, request(UUID.randomUUID()));
+
+        AppException error = assertThrows(AppException.class, () -> service.submit(userId, request(UUID.randomUUID())));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, error.getStatus());
+        assertEquals(1, service.getStats().rejected());
+        assertEquals(2, service.getStats().retained());
+    }
+
+    @Test
+    void onlyTheOwnerSeesTheJob() {
+        AnalysisJobDTO job = service.submit(userId, request(UUID.randomUUID()));
+
+        assertEquals(job.getJobId(), service.getJob(userId, job.getJobId()).getJobId());
+        AppException error = assertThrows(AppException.class, () -> service.getJob(UUID.randomUUID(), job.getJobId()));
+        assertEquals(HttpStatus.NOT_FOUND, error.getStatus());
+    }
+
+    @Test
+    void purgeDropsFinishedJobsOnly() throws Exception {
+        CountDownLatch hold = new CountDownLatch(1);
+        doAnswer(invocation -> AnalysisResultDTO.builder().build())
+                .doAnswer(invocation -> {
+                    hold.await(10, TimeUnit.SECONDS);
+                    return AnalysisResultDTO.builder().build();
+                })
+                .when(analysisService).analyze(any(), any());
+        AnalysisJobDTO finished = service.submit(userId, request(UUID.randomUUID()));
+        awaitFinished(finished.getJobId());
+
+        AnalysisJobDTO running = service.submit(userId, request(UUID.randomUUID()));
+        awaitStatus(running.getJobId(), "RUNNING");
+
+        // The retention is zero minutes, so anything finished before now is due
+        Thread.sleep(5);
+        service.purgeFinished();
+
+        assertThrows(AppException.class, () -> service.getJob(userId, finished.getJobId()));
+        assertEquals("RUNNING", service.getJob(userId, running.getJobId()).getStatus());
+        hold.countDown();
+    }
+
+    @Test
+    void anErrorStillFinishesTheJob() throws Exception {
+        doThrow(new OutOfMemoryError("test")).when(analysisService).analyze(any(), any());
+        UUID fieldId = UUID.randomUUID();
+        AnalysisJobDTO job = service.submit(userId, request(fieldId));
+
+        AnalysisJobDTO finished = awaitFinished(job.getJobId());
+        assertEquals("FAILED", finished.getStatus());
+        assertEquals(500, finished.getErrorStatus().intValue());
+        assertNotEquals(job.getJobId(), service.submit(userId, request(fieldId)).getJobId());
+    }
+
+    private static AnalysisRequestDTO request(UUID fieldId) {
+        AnalysisRequestDTO request = new AnalysisRequestDTO();
+        request.setFieldId(fieldId);
+        request.setFuturePrediction(true);
+        request.setTargetMonthStart(4);
+        request.setTargetMonthEnd(9);
+        return request;
+    }
+
+    private AnalysisJobDTO awaitFinished(UUID jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        AnalysisJobDTO job = service.getJob(userId, jobId);
+        // The status is the last thing a finishing job writes
+        while ((job.getStatus().equals("QUEUED") || job.getStatus().equals("RUNNING")) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            job = service.getJob(userId, jobId);
+        }
+        return job;
+    }
+
+    private void awaitStatus(UUID jobId, String status) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!status.equals(service.getJob(userId, jobId).getStatus()) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(status, service.getJob(userId, jobId).getStatus());
+    }
+}
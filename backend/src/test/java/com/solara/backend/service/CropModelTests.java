@@ -0,0 +1,143 @@
+package com.solara.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.solara.backend.dto.request.MlPayloadDTO;
+import com.solara.backend.dto.response.MlCropRecommendationDTO;
+
+/**
+ * Checks CropModel against a small hand-made model whose probabilities and
+ * Shapley values are worked out below, and against the parity cases the Python
+ * exporter scored with the real model when an exported artifact is available
+ * ({@code -Dml.parity.artifact=...}, default ../ml-engine/models/crop_recommendation.json).
+ *
+ * The fixture has two classes. Class "rice" is tree 0 (temperature <= 0, else
+ * rainfall <= 0.5; leaves 1.0 / 0.5 / -1.0 covering 4 / 3 / 3 samples) plus a
+ * constant tree of 0.1; class "maize" is a humidity stump (-0.5 / 0.5). For
+ * temperature 15, humidity 80 and rainfall 100 the scaled inputs are -1, 1 and 1.
+ */
+class CropModelTests {
+
+    private static final double RICE_SCORE = 1.0 + 0.1;
+    private static final double MAIZE_SCORE = 0.5;
+    private static final double RICE_PROBABILITY = 1 / (1 + Math.exp(MAIZE_SCORE - RICE_SCORE));
+    // v({}) = 0.25, v({T}) = 1.0, v({R}) = 0.4 * 1.0 + 0.6 * -1.0 = -0.2, v({T, R}) = 1.0
+    private static final double RICE_TEMPERATURE = 0.5 * (1.0 - 0.25) + 0.5 * (1.0 - -0.2);
+    private static final double RICE_RAINFALL = 0.5 * (-0.2 - 0.25) + 0.5 * (1.0 - 1.0);
+    private static final double MAIZE_HUMIDITY = 0.5;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void scoresTreesAndSoftmaxLikeLightGbm() throws IOException {
+        CropModel model = CropModel.load(writeFixture(dir, RICE_PROBABILITY));
+        double[] scaled = model.scale(new double[] { 0, 0, 0, 15, 80, 0, 100 });
+
+        assertEquals(List.of(-1.0, 1.0, 1.0), List.of(scaled[3], scaled[4], scaled[6]));
+        double[] scores = model.rawScores(scaled);
+        assertEquals(RICE_SCORE, scores[0], 1e-15);
+        assertEquals(MAIZE_SCORE, scores[1], 1e-15);
+    }
+
+    @Test
+    void contributionsAreShapleyValues() throws IOException {
+        CropModel model = CropModel.load(writeFixture(dir, RICE_PROBABILITY));
+        double[][] phi = model.contributions(model.scale(new double[] { 0, 0, 0, 15, 80, 0, 100 }));
+
+        assertEquals(RICE_TEMPERATURE, phi[0][3], 1e-12);
+        assertEquals(RICE_RAINFALL, phi[0][6], 1e-12);
+        assertEquals(0.0, phi[0][4], 1e-12);
+        assertEquals(MAIZE_HUMIDITY, phi[1][4], 1e-12);
+        // Contributions add up to the raw score minus the expected value (0.25 + 0.1)
+        assertEquals(RICE_SCORE - 0.35, phi[0][3] + phi[0][6], 1e-12);
+    }
+
+    @Test
+    void recommendsLikeTheEngineResponse() throws IOException {
+        CropModel model = CropModel.load(writeFixture(dir, RICE_PROBABILITY));
+        MlPayloadDTO payload = MlPayloadDTO.builder()
+                .temperature(15).humidity(80).rainfall(100)
+                .topN(5)
+                .includeExplanation(true)
+                .build();
+
+        List<MlCropRecommendationDTO> recommendations = model.recommend(payload);
+
+        assertEquals(2, recommendations.size());
+        assertEquals("rice", recommendations.get(0).getCrop());
+        assertEquals(RICE_PROBABILITY * 100, recommendations.get(0).getProbability(), 1e-12);
+        // Only positive contributions are explained
+        assertEquals(1, recommendations.get(0).getContributions().size());
+        assertEquals("temperature", recommendations.get(0).getContributions().get(0).getFeature());
+        assertEquals(15.0, recommendations.get(0).getContributions().get(0).getRawValue());
+        assertEquals("humidity", recommendations.get(1).getContributions().get(0).getFeature());
+
+        payload.setTopN(1);
+        payload.setIncludeExplanation(false);
+        recommendations = model.recommend(payload);
+        assertEquals(1, recommendations.size());
+        assertNull(recommendations.get(0).getContributions());
+    }
+
+    @Test
+    void rejectsArtifactsThatDriftFromTheirParityCases() throws IOException {
+        assertEquals(1, CropModel.load(writeFixture(dir, RICE_PROBABILITY)).verifyParity(1e-9));
+
+        CropModel drifted = CropModel.load(writeFixture(dir, RICE_PROBABILITY + 1e-6));
+        assertThrows(IllegalStateException.class, () -> drifted.verifyParity(1e-9));
+    }
+
+    @Test
+    void matchesThePythonEngineOnTheExportedModel() throws IOException {
+        Path artifact = Path.of(System.getProperty("ml.parity.artifact", "../ml-engine/models/crop_recommendation.json"));
+        assumeTrue(Files.isRegularFile(artifact), "No exported model at " + artifact);
+
+        CropModel model = CropModel.load(artifact);
+        assertTrue(model.verifyParity(1e-9) > 0);
+    }
+
+    /** Writes the fixture model with one parity case whose rice probability is the given value */
+    static Path writeFixture(Path dir, double riceProbability) throws IOException {
+        String json = """
+                {
+                  "format": "solara-lgbm-v1",
+                  "version": "fixture-1",
+                  "feature_names": ["N", "P", "K", "temperature", "humidity", "ph", "rainfall"],
+                  "classes": ["rice", "maize"],
+                  "scaler": {"mean": [0, 0, 0, 20, 70, 0, 0], "scale": [1, 1, 1, 5, 10, 1, 100]},
+                  "num_class": 2,
+                  "trees": [
+                    {"class": 0, "split_feature": [3, 6], "threshold": [0.0, 0.5], "default_left": [true, true],
+                     "missing_type": [0, 0], "left_child": [-1, -2], "right_child": [1, -3], "internal_count": [10, 6],
+                     "leaf_value": [1.0, 0.5, -1.0], "leaf_count": [4, 3, 3]},
+                    {"class": 1, "split_feature": [4], "threshold": [0.0], "default_left": [true],
+                     "missing_type": [0], "left_child": [-1], "right_child": [-2], "internal_count": [10],
+                     "leaf_value": [-0.5, 0.5], "leaf_count": [5, 5]},
+                    {"class": 0, "split_feature": [], "threshold": [], "default_left": [], "missing_type": [],
+                     "left_child": [], "right_child": [], "internal_count": [], "leaf_value": [0.1], "leaf_count": [10]}
+                  ],
+                  "parity": [
+                    {"features": [0, 0, 0, 15, 80, 0, 100],
+                     "probabilities": [%s, %s],
+                     "contributions": [[0, 0, 0, %s, 0, 0, %s], [0, 0, 0, 0, %s, 0, 0]]}
+                  ]
+                }
+                """.formatted(riceProbability, 1 - RICE_PROBABILITY, RICE_TEMPERATURE, RICE_RAINFALL, MAIZE_HUMIDITY);
+        Path path = dir.resolve("crop_model.json");
+        Files.writeString(path, json);
+        return path;
+    }
+}
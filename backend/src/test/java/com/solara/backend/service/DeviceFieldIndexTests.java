@@ -0,0 +1,127 @@
+package com.solara.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.solara.backend.entity.EspDevice;
+import com.solara.backend.entity.Field;
+import com.solara.backend.repository.FieldRepository;
+
+/**
+ * Checks that DeviceFieldIndex keeps the serial -> field mapping exact across
+ * re-pairings, renames and unpairing, and that changes made inside a
+ * transaction only show up once it commits.
+ */
+class DeviceFieldIndexTests {
+
+    private final FieldRepository fieldRepository = mock(FieldRepository.class);
+    private final DeviceFieldIndex index = new DeviceFieldIndex(fieldRepository);
+    private final UUID userId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        when(fieldRepository.findAllDeviceBindings()).thenReturn(List.of());
+        index.load();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void loadsTheBindingsOfPairedFields() {
+        UUID fieldId = UUID.randomUUID();
+        UUID deviceId = UUID.randomUUID();
+        FieldRepository.DeviceBindingView view = mock(FieldRepository.DeviceBindingView.class);
+        when(view.getSerialNumber()).thenReturn("ESP-1");
+        when(view.getFieldId()).thenReturn(fieldId);
+        when(view.getUserId()).thenReturn(userId);
+        when(view.getEspDeviceId()).thenReturn(deviceId);
+        when(fieldRepository.findAllDeviceBindings()).thenReturn(List.of(view));
+
+        index.load();
+
+        assertEquals(new DeviceFieldIndex.DeviceBinding(fieldId, userId, deviceId), index.resolve("ESP-1").orElseThrow());
+        assertTrue(index.resolve("ESP-2").isEmpty());
+        assertTrue(index.resolve(null).isEmpty());
+    }
+
+    @Test
+    void rePairingReplacesBothSidesOfTheOldBinding() {
+        EspDevice first = device("ESP-1");
+        EspDevice second = device("ESP-2");
+        Field a = field(first);
+        Field b = field(second);
+        index.bind(a);
+        index.bind(b);
+
+        // ESP-1 moves from field A to field B; ESP-2 is left unpaired
+        b.setEspDevice(first);
+        index.bind(b);
+
+        assertEquals(b.getId(), index.resolve("ESP-1").orElseThrow().fieldId());
+        assertTrue(index.resolve("ESP-2").isEmpty());
+        assertEquals(1, index.size());
+
+        // Field A no longer owns ESP-1, so unbinding it must not drop B's device
+        index.unbindField(a.getId());
+        assertEquals(b.getId(), index.resolve("ESP-1").orElseThrow().fieldId());
+    }
+
+    @Test
+    void renameAndUnbindFollowTheDevice() {
+        Field field = field(device("ESP-1"));
+        index.bind(field);
+
+        index.renameSerial("ESP-1", "ESP-9");
+        assertTrue(index.resolve("ESP-1").isEmpty());
+        assertEquals(field.getId(), index.resolve("ESP-9").orElseThrow().fieldId());
+
+        index.unbindSerial("ESP-9");
+        assertEquals(0, index.size());
+
+        index.bind(field);
+        field.setEspDevice(null);
+        index.bind(field);
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void changesApplyOnlyWhenTheTransactionCommits() {
+        Field field = field(device("ESP-1"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        index.bind(field);
+        assertTrue(index.resolve("ESP-1").isEmpty());
+        List<TransactionSynchronization> pending = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // A rollback never runs afterCommit, so the index is left as it was
+        assertTrue(index.resolve("ESP-1").isEmpty());
+
+        pending.forEach(TransactionSynchronization::afterCommit);
+        assertEquals(field.getId(), index.resolve("ESP-1").orElseThrow().fieldId());
+    }
+
+    private static EspDevice device(String serial) {
+        return EspDevice.builder().id(UUID.randomUUID()).serialNumber(serial).build();
+    }
+
+    private Field field(EspDevice device) {
+        return Field.builder().id(UUID.randomUUID()).userId(userId).espDevice(device).build();
+    }
+}
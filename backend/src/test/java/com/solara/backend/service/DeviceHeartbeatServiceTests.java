@@ -0,0 +1,114 @@
+package com.solara.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.solara.backend.entity.EspDevice;
+
+/**
+ * Checks how DeviceHeartbeatService coalesces readings into bulk updates, using
+ * a JdbcTemplate that records the statements it is given and can be made to fail.
+ */
+class DeviceHeartbeatServiceTests {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 10, 1, 12, 0);
+
+    private final List<Object[]> updates = new ArrayList<>();
+    private boolean failing;
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+        @Override
+        public int update(String sql, Object... args) {
+            if (failing) {
+                throw new IllegalStateException("database down");
+            }
+            updates.add(args);
+            return args.length / 2;
+        }
+    };
+    private final DeviceHeartbeatService service = new DeviceHeartbeatService(jdbcTemplate);
+
+    @Test
+    void writesOneRowPerDeviceWithItsLatestReading() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        service.recordSeen(a, T0);
+        service.recordSeen(a, T0.plusMinutes(2));
+        service.recordSeen(a, T0.plusMinutes(1)); // late reading must not move it back
+        service.recordSeen(b, T0);
+
+        service.flush();
+
+        assertEquals(1, updates.size());
+        assertEquals(4, updates.get(0).length);
+        assertEquals(Timestamp.valueOf(T0.plusMinutes(2)), seenAtOf(updates.get(0), a));
+        assertEquals(Timestamp.valueOf(T0), seenAtOf(updates.get(0), b));
+
+        // Nothing reported since, so nothing is written
+        service.flush();
+        assertEquals(1, updates.size());
+    }
+
+    @Test
+    void largeFlushesAreSplitIntoChunks() {
+        for (int i = 0; i < 1001; i++) {
+            service.recordSeen(UUID.randomUUID(), T0);
+        }
+
+        service.flush();
+
+        assertEquals(2, updates.size());
+        assertEquals(2000, updates.get(0).length);
+        assertEquals(2, updates.get(1).length);
+    }
+
+    @Test
+    void aFailedFlushIsRetriedWithTheNewestReading() {
+        UUID device = UUID.randomUUID();
+        service.recordSeen(device, T0);
+        failing = true;
+        service.flush();
+        assertTrue(updates.isEmpty());
+
+        service.recordSeen(device, T0.plusMinutes(5));
+        failing = false;
+        service.flush();
+
+        assertEquals(1, updates.size());
+        assertEquals(Timestamp.valueOf(T0.plusMinutes(5)), seenAtOf(updates.get(0), device));
+    }
+
+    @Test
+    void lastSeenAtPrefersTheNewerOfMemoryAndDatabase() {
+        EspDevice device = EspDevice.builder().id(UUID.randomUUID()).lastSeenAt(T0.plusHours(1)).build();
+        assertEquals(T0.plusHours(1), service.getLastSeenAt(device));
+
+        service.recordSeen(device.getId(), T0);
+        assertEquals(T0.plusHours(1), service.getLastSeenAt(device));
+
+        service.recordSeen(device.getId(), T0.plusHours(2));
+        assertEquals(T0.plusHours(2), service.getLastSeenAt(device));
+
+        service.forget(device.getId());
+        device.setLastSeenAt(null);
+        assertNull(service.getLastSeenAt(device));
+    }
+
+    private static Object seenAtOf(Object[] args, UUID deviceId) {
+        for (int i = 0; i < args.length; i += 2) {
+            if (deviceId.equals(args[i])) {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+}
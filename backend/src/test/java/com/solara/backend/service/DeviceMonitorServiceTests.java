@@ -0,0 +1,157 @@
+package com.solara.backend.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.solara.backend.entity.EspDevice;
+import com.solara.backend.entity.Field;
+import com.solara.backend.entity.User;
+import com.solara.backend.repository.FieldRepository;
+import com.solara.backend.repository.UserRepository;
+
+/**
+ * Drives DeviceMonitorService's deadline queue with watches loaded from a
+ * mocked repository. Devices last seen more than the 24h threshold ago are
+ * due on the first check.
+ */
+class DeviceMonitorServiceTests {
+
+    private final FieldRepository fieldRepository = mock(FieldRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final PushNotificationService pushNotificationService = mock(PushNotificationService.class);
+    private final DeviceMonitorService service = new DeviceMonitorService(fieldRepository, userRepository,
+            mock(EmailService.class), mock(MailTemplates.class), pushNotificationService);
+
+    private final List<FieldRepository.DeviceWatchView> watchStates = new ArrayList<>();
+    private final User user = User.builder().id(UUID.randomUUID()).email("owner@solara.test").build();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "offlineAfterHours", 24L);
+        ReflectionTestUtils.setField(service, "retryDelayMs", 200L);
+        when(fieldRepository.findAllDeviceWatchStates()).thenReturn(watchStates);
+        when(userRepository.findById(user.getID())).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    void aSilentDeviceAlertsOnce() {
+        Field field = pairedField();
+        watch(field.getId(), now().minusHours(25), null);
+        service.load();
+
+        service.checkOfflineDevices();
+        service.checkOfflineDevices();
+
+        verify(pushNotificationService).sendOfflineDevicePush(user.getID(), field.getName(), "ESP-1", 24L);
+        verify(fieldRepository).updateLastOfflineAlertSentAt(eq(field.getId()), any());
+    }
+
+    @Test
+    void telemetryPushesTheDeadlineBack() {
+        Field field = pairedField();
+        watch(field.getId(), now().minusHours(25), null);
+        service.load();
+
+        service.onTelemetry(field.getId(), now());
+        service.checkOfflineDevices();
+
+        verify(fieldRepository, never()).findById(any());
+    }
+
+    @Test
+    void aReadingFromAnOfflineDeviceResetsTheAlert() {
+        UUID fieldId = UUID.randomUUID();
+        watch(fieldId, now().minusHours(30), now().minusHours(6));
+        service.load();
+
+        // Already alerted, so nothing is due
+        service.checkOfflineDevices();
+        verify(fieldRepository, never()).findById(any());
+
+        service.onTelemetry(fieldId, now());
+        verify(fieldRepository).updateLastOfflineAlertSentAt(fieldId, null);
+
+        service.onTelemetry(fieldId, now());
+        verify(fieldRepository, times(1)).updateLastOfflineAlertSentAt(fieldId, null);
+    }
+
+    @Test
+    void aFailedAlertIsRetriedAfterTheRetryDelay() throws Exception {
+        Field field = pairedField();
+        watch(field.getId(), now().minusHours(25), null);
+        doThrow(new IllegalStateException("database down")).doReturn(1)
+                .when(fieldRepository).updateLastOfflineAlertSentAt(eq(field.getId()), any());
+        service.load();
+
+        service.checkOfflineDevices();
+        verify(pushNotificationService, times(1)).sendOfflineDevicePush(any(), any(), any(), eq(24L));
+
+        // Not due again before the retry delay
+        service.checkOfflineDevices();
+        verify(pushNotificationService, times(1)).sendOfflineDevicePush(any(), any(), any(), eq(24L));
+
+        Thread.sleep(300);
+        service.checkOfflineDevices();
+        verify(pushNotificationService, times(2)).sendOfflineDevicePush(any(), any(), any(), eq(24L));
+
+        // Recorded this time, so the device stays offline without further alerts
+        Thread.sleep(300);
+        service.checkOfflineDevices();
+        verify(fieldRepository, times(2)).updateLastOfflineAlertSentAt(eq(field.getId()), any());
+    }
+
+    @Test
+    void unwatchedFieldsAreSkipped() {
+        Field field = pairedField();
+        watch(field.getId(), now().minusHours(25), null);
+        service.load();
+
+        service.unwatch(field.getId());
+        service.onTelemetry(field.getId(), now());
+        service.checkOfflineDevices();
+
+        verify(fieldRepository, never()).findById(any());
+        verify(fieldRepository, never()).updateLastOfflineAlertSentAt(any(), any());
+    }
+
+    private Field pairedField() {
+        Field field = Field.builder()
+                .id(UUID.randomUUID())
+                .userId(user.getID())
+                .name("North")
+                .espDevice(EspDevice.builder().id(UUID.randomUUID()).serialNumber("ESP-1").build())
+                .build();
+        doReturn(Optional.of(field)).when(fieldRepository).findById(field.getId());
+        return field;
+    }
+
+    private void watch(UUID fieldId, LocalDateTime lastSeenAt, LocalDateTime lastOfflineAlertSentAt) {
+        FieldRepository.DeviceWatchView view = mock(FieldRepository.DeviceWatchView.class);
+        when(view.getFieldId()).thenReturn(fieldId);
+        when(view.getLastSeenAt()).thenReturn(lastSeenAt);
+        when(view.getLastOfflineAlertSentAt()).thenReturn(lastOfflineAlertSentAt);
+        watchStates.add(view);
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,148 @@
+package com.solara.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs ExpoPushSender against a local stub of the Expo push API. Tokens
+ * starting with "dead" get a DeviceNotRegistered ticket, tokens starting with
+ * "limited" a MessageRateExceeded ticket, tokens starting with "stale" get an
+ * ok ticket but a DeviceNotRegistered receipt.
+ */
+class ExpoPushSenderTests {
+
+    private static final Pattern TOKEN = Pattern.compile("\"to\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern RECEIPT_ID = Pattern.compile("\"(r-[^\"]+)\"");
+
+    private HttpServer server;
+    private final List<Integer> chunkSizes = new CopyOnWriteArrayList<>();
+    private PushTokenService pushTokenService;
+    private ExpoPushSender sender;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/send", this::handleSend);
+        server.createContext("/receipts", this::handleReceipts);
+        server.start();
+
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        pushTokenService = mock(PushTokenService.class);
+        sender = new ExpoPushSender(new RestTemplate(), pushTokenService, base + "/send", base + "/receipts", 200, 0);
+        sender.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        sender.stop();
+        server.stop(0);
+    }
+
+    @Test
+    void sendsInChunksOfOneHundredAndDeactivatesUnregisteredTokens() throws Exception {
+        List<ExpoPushSender.PushMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 249; i++) {
+            messages.add(message("token-" + i));
+        }
+        messages.add(message("dead-1"));
+
+        sender.send(messages).get(10, TimeUnit.SECONDS);
+
+        assertEquals(List.of(100, 100, 50), chunkSizes);
+        verify(pushTokenService).deactivateTokens(Set.of("dead-1"));
+        assertEquals(249, sender.pendingReceiptCount());
+    }
+
+    @Test
+    void receiptPollingDeactivatesTokensThatFailedLater() throws Exception {
+        sender.send(List.of(message("stale-1"), message("token-1"))).get(10, TimeUnit.SECONDS);
+        verify(pushTokenService, never()).deactivateTokens(anyCollection());
+
+        sender.pollReceipts();
+
+        verify(pushTokenService).deactivateTokens(Set.of("stale-1"));
+        assertEquals(0, sender.pendingReceiptCount());
+    }
+
+    @Test
+    void rateLimitedTicketsFailOnlyTheirOwnMessage() throws Exception {
+        CompletableFuture<Void> all = sender.send(List.of(message("limited-1"), message("token-1")));
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> all.get(10, TimeUnit.SECONDS));
+        assertEquals("Expo rejected push: MessageRateExceeded - too many messages", error.getCause().getMessage());
+        sender.send(List.of(message("token-2"))).get(10, TimeUnit.SECONDS);
+        verify(pushTokenService, never()).deactivateTokens(anyCollection());
+        assertEquals(2, sender.pendingReceiptCount());
+    }
+
+    private static ExpoPushSender.PushMessage message(String token) {
+        return new ExpoPushSender.PushMessage(token, "title", "body", Map.of("type", "test"));
+    }
+
+    private void handleSend(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        List<String> tickets = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(body);
+        while (matcher.find()) {
+            String token = matcher.group(1);
+            if (token.startsWith("dead")) {
+                tickets.add("{\"status\":\"error\",\"message\":\"not registered\",\"details\":{\"error\":\"DeviceNotRegistered\"}}");
+            } else if (token.startsWith("limited")) {
+                tickets.add("{\"status\":\"error\",\"message\":\"too many messages\",\"details\":{\"error\":\"MessageRateExceeded\"}}");
+            } else {
+                tickets.add("{\"status\":\"ok\",\"id\":\"r-" + token + "\"}");
+            }
+        }
+        chunkSizes.add(tickets.size());
+        respond(exchange, "{\"data\":[" + String.join(",", tickets) + "]}");
+    }
+
+    private void handleReceipts(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        List<String> receipts = new ArrayList<>();
+        Matcher matcher = RECEIPT_ID.matcher(body);
+        while (matcher.find()) {
+            String id = matcher.group(1);
+            receipts.add("\"" + id + "\":" + (id.startsWith("r-stale")
+                    ? "{\"status\":\"error\",\"details\":{\"error\":\"DeviceNotRegistered\"}}"
+                    : "{\"status\":\"ok\"}"));
+        }
+        respond(exchange, "{\"data\":{" + String.join(",", receipts) + "}}");
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
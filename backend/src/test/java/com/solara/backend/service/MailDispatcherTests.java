@@ -0,0 +1,157 @@
+package com.solara.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+/**
+ * Runs MailDispatcher against a minimal in-process SMTP server that accepts
+ * everything and counts connections and messages.
+ */
+class MailDispatcherTests {
+
+    private ServerSocket smtp;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final List<String> messages = new CopyOnWriteArrayList<>();
+    private MailTemplates mailTemplates;
+    private MailDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        smtp = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread.ofVirtual().start(this::acceptLoop);
+
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(smtp.getLocalPort());
+
+        mailTemplates = new MailTemplates();
+        mailTemplates.load();
+        dispatcher = new MailDispatcher(mailSender, "noreply@solara.test", 1, 50, 100);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        dispatcher.stop();
+        smtp.close();
+    }
+
+    @Test
+    void sendsQueuedEmailsOverOneConnection() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            dispatcher.submit("user" + i + "@solara.test",
+                    mailTemplates.render("verification_code", "en", Map.of("code", "12345" + i)));
+        }
+        dispatcher.start();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (messages.size() < 5 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(5, messages.size());
+        assertEquals(1, connections.get());
+    }
+
+    @Test
+    void deliverCompletesOnceTheServerAcceptedTheEmail() throws Exception {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(smtp.getLocalPort());
+        MailDispatcher small = new MailDispatcher(mailSender, "noreply@solara.test", 1, 50, 1);
+        MailTemplates.Mail mail = mailTemplates.render("verification_code", "en", Map.of("code", "123456"));
+
+        CompletableFuture<Void> queued = small.deliver("user@solara.test", mail);
+        CompletableFuture<Void> dropped = small.deliver("other@solara.test", mail);
+        assertTrue(dropped.isCompletedExceptionally());
+        assertFalse(queued.isDone());
+
+        small.start();
+        try {
+            queued.get(10, TimeUnit.SECONDS);
+            assertEquals(1, messages.size());
+        } finally {
+            small.stop();
+        }
+    }
+
+    @Test
+    void rendersLocalizedTemplatesAndEscapesValues() {
+        MailTemplates.Mail tr = mailTemplates.render("device_offline", "tr-TR",
+                Map.of("fieldName", "<b>Tarla</b>", "serialNumber", "ESP-1", "hours", 24));
+
+        assertEquals("Solara - Cihaz Çevrimdışı Uyarısı: <b>Tarla</b>", tr.subject());
+        assertTrue(tr.html().contains("<strong>&lt;b&gt;Tarla&lt;/b&gt;</strong> tarlası"));
+        assertTrue(tr.html().contains("son 24 saattir"));
+
+        MailTemplates.Mail fallback = mailTemplates.render("verification_code", "de", Map.of("code", "999999"));
+        assertEquals("Solara - Your Verification Code", fallback.subject());
+        assertTrue(fallback.html().contains(">999999</h1>"));
+    }
+
+    private void acceptLoop() {
+        while (!smtp.isClosed()) {
+            try {
+                Socket socket = smtp.accept();
+                connections.incrementAndGet();
+                Thread.ofVirtual().start(() -> serve(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                OutputStream out = socket.getOutputStream()) {
+            reply(out, "220 localhost");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (command) {
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        StringBuilder data = new StringBuilder();
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            data.append(line).append('\n');
+                        }
+                        messages.add(data.toString());
+                        reply(out, "250 OK");
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "250 OK");
+                }
+            }
+        } catch (IOException e) {
+            // client went away
+        }
+    }
+
+    private static void reply(OutputStream out, String line) throws IOException {
+        out.write((line + "\r\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}
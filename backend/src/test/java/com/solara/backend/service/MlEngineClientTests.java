@@ -0,0 +1,152 @@
+package com.solara.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.RestTemplate;
+
+import com.solara.backend.dto.request.MlPayloadDTO;
+import com.solara.backend.dto.response.MlCropRecommendationDTO;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs MlEngineClient against a local stub of the ML engine. The stub answers
+ * every batch item with a single crop named after the item's temperature.
+ * The local-model cases use the fixture artifact from {@link CropModelTests}.
+ */
+class MlEngineClientTests {
+
+    private static final Pattern TEMPERATURE = Pattern.compile("\"temperature\"\\s*:\\s*([-0-9.Ee]+)");
+
+    private HttpServer server;
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private volatile String modelVersion = "v1";
+    private MlEngineClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/v1/recommend/batch", this::handleBatch);
+        server.createContext("/health", exchange -> respond(exchange, "{\"status\":\"ok\",\"model_version\":\"" + modelVersion + "\"}"));
+        server.start();
+
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        client = new MlEngineClient(new RestTemplate(), base, 1000, 60, 1.0, 0.1, 0.5, 0.05, 1.0, 4, "");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void scoresUniqueQuantizedPayloadsInChunkedBatches() {
+        List<MlPayloadDTO> payloads = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            payloads.add(payload(20.0 + i));
+        }
+        // Rounds to the same key as the first payload
+        payloads.add(payload(20.01));
+
+        List<List<MlCropRecommendationDTO>> results = client.recommendBatch(payloads);
+
+        assertEquals(List.of(4, 2), batchSizes);
+        assertEquals(7, results.size());
+        assertEquals("crop-20.0", results.get(0).get(0).getCrop());
+        assertEquals("crop-25.0", results.get(5).get(0).getCrop());
+        assertEquals("crop-20.0", results.get(6).get(0).getCrop());
+    }
+
+    @Test
+    void servesRepeatedSweepsFromCacheUntilTheModelChanges() {
+        List<MlPayloadDTO> payloads = List.of(payload(20.0), payload(21.0), payload(22.0));
+        client.recommendBatch(payloads);
+        client.recommendBatch(payloads);
+        assertEquals(List.of(3), batchSizes);
+        assertEquals(3, client.getCacheStats().hits());
+
+        modelVersion = "v2";
+        client.checkModelVersion();
+        client.recommendBatch(payloads);
+
+        assertEquals(List.of(3, 3), batchSizes);
+        assertEquals("v2", client.getCacheStats().modelVersion());
+        assertEquals(1, client.getCacheStats().invalidations());
+    }
+
+    @Test
+    void scoresInProcessWhenTheExportedModelPassesItsParityCases(@TempDir Path dir) throws IOException {
+        Path artifact = CropModelTests.writeFixture(dir, 1 / (1 + Math.exp(0.5 - 1.1)));
+        MlEngineClient local = new MlEngineClient(new RestTemplate(), "http://127.0.0.1:" + server.getAddress().getPort(),
+                1000, 60, 1.0, 0.1, 0.5, 0.05, 1.0, 4, artifact.toString());
+        local.loadLocalModel();
+
+        List<List<MlCropRecommendationDTO>> results = local.recommendBatch(List.of(payload(15.0), payload(25.0)));
+
+        assertEquals(List.of(), batchSizes);
+        assertEquals("rice", results.get(0).get(0).getCrop());
+        assertEquals("fixture-1", local.getCacheStats().localModelVersion());
+        assertEquals(2, local.getCacheStats().localPredictions());
+    }
+
+    @Test
+    void staysOnHttpWhenTheExportedModelDriftsFromPython(@TempDir Path dir) throws IOException {
+        Path artifact = CropModelTests.writeFixture(dir, 0.5);
+        MlEngineClient drifted = new MlEngineClient(new RestTemplate(), "http://127.0.0.1:" + server.getAddress().getPort(),
+                1000, 60, 1.0, 0.1, 0.5, 0.05, 1.0, 4, artifact.toString());
+        drifted.loadLocalModel();
+
+        drifted.recommendBatch(List.of(payload(20.0)));
+
+        assertEquals(List.of(1), batchSizes);
+        assertNull(drifted.getCacheStats().localModelVersion());
+    }
+
+    private static MlPayloadDTO payload(double temperature) {
+        return MlPayloadDTO.builder()
+                .n(90).p(42).k(43)
+                .temperature(temperature)
+                .humidity(80)
+                .ph(6.5)
+                .rainfall(200)
+                .topN(3)
+                .build();
+    }
+
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        List<String> results = new ArrayList<>();
+        Matcher matcher = TEMPERATURE.matcher(body);
+        while (matcher.find()) {
+            results.add("{\"recommendations\":[{\"crop\":\"crop-" + Double.parseDouble(matcher.group(1))
+                    + "\",\"probability\":90.0}],\"model_version\":\"" + modelVersion + "\"}");
+        }
+        batchSizes.add(results.size());
+        respond(exchange, "{\"results\":[" + String.join(",", results) + "],\"model_version\":\"" + modelVersion + "\"}");
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
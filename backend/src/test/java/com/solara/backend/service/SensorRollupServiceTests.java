@@ -0,0 +1,84 @@
+package com.solara.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Checks which buckets a full rollup rebuild deletes and recomputes, and when
+ * startup seeds the rollups, using a JdbcTemplate that only records the
+ * statements it is given.
+ */
+class SensorRollupServiceTests {
+
+    private record Statement(String sql, Object[] args) {}
+
+    private final List<Statement> statements = new ArrayList<>();
+    private boolean rollupsPresent;
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+        @Override
+        public int update(String sql, Object... args) {
+            statements.add(new Statement(sql, args));
+            return 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T queryForObject(String sql, Class<T> requiredType) {
+            return (T) Boolean.valueOf(rollupsPresent);
+        }
+    };
+    private final SensorLogsPartitionManager partitionManager = mock(SensorLogsPartitionManager.class);
+    private final SensorRollupService service = new SensorRollupService(jdbcTemplate, partitionManager);
+
+    @Test
+    void rebuildAfterAPartitionDropKeepsTheOlderBuckets() {
+        // Retention has dropped everything before August
+        when(partitionManager.listMonthlyPartitions()).thenReturn(List.of(YearMonth.of(2026, 8), YearMonth.of(2026, 9)));
+
+        service.rebuild(null);
+
+        // DELETE and INSERT for the hourly and the daily rollup
+        assertEquals(4, statements.size());
+        Timestamp oldestRetained = Timestamp.valueOf("2026-08-01 00:00:00");
+        for (Statement statement : statements) {
+            assertTrue(statement.sql().contains(">= ?"), statement.sql());
+            assertEquals(oldestRetained, statement.args()[1]);
+        }
+        assertTrue(statements.get(0).sql().startsWith("DELETE FROM sensor_logs_hourly WHERE bucket_start < ? AND bucket_start >= ?"));
+    }
+
+    @Test
+    void startupSeedsOnlyWhileTheRollupsAreEmpty() {
+        when(partitionManager.listMonthlyPartitions()).thenReturn(List.of());
+
+        rollupsPresent = true;
+        service.onStartup();
+        assertTrue(statements.isEmpty());
+
+        rollupsPresent = false;
+        service.onStartup();
+        assertEquals(4, statements.size());
+    }
+
+    @Test
+    void rebuildWithoutMonthlyPartitionsCoversAllBuckets() {
+        when(partitionManager.listMonthlyPartitions()).thenReturn(List.of());
+
+        service.rebuild(null);
+
+        assertEquals(4, statements.size());
+        for (Statement statement : statements) {
+            assertEquals(1, statement.args().length);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.solara.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.solara.backend.entity.SensorLogs;
+import com.solara.backend.repository.SensorLogsRepository;
+
+/**
+ * Runs the telemetry writer thread against mocked collaborators. The first
+ * flush can be held open, which keeps the writer busy while the test fills
+ * the queue behind it.
+ */
+class TelemetryIngestServiceTests {
+
+    private final DeviceFieldIndex deviceFieldIndex = mock(DeviceFieldIndex.class);
+    private final SensorLogsRepository sensorLogsRepository = mock(SensorLogsRepository.class);
+    private final AlertEvaluationService alertEvaluationService = mock(AlertEvaluationService.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+    private final List<List<String>> savedBatches = new CopyOnWriteArrayList<>();
+    private final CountDownLatch firstFlushEntered = new CountDownLatch(1);
+    private final CountDownLatch releaseFirstFlush = new CountDownLatch(1);
+    private volatile boolean holdFirstFlush;
+    private TelemetryIngestService service;
+
+    @BeforeEach
+    void setUp() {
+        when(deviceFieldIndex.resolve(anyString())).thenReturn(Optional.of(
+                new DeviceFieldIndex.DeviceBinding(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID())));
+        doAnswer(invocation -> {
+            List<SensorLogs> batch = invocation.getArgument(0);
+            savedBatches.add(batch.stream().map(SensorLogs::getDeviceId).toList());
+            return batch;
+        }).when(sensorLogsRepository).saveAll(any());
+        doAnswer(invocation -> {
+            if (holdFirstFlush && firstFlushEntered.getCount() > 0) {
+                firstFlushEntered.countDown();
+                releaseFirstFlush.await(10, TimeUnit.SECONDS);
+            }
+            TransactionCallback<?> callback = invocation.getArgument(0);
+            return callback.doInTransaction(null);
+        }).when(transactionTemplate).execute(any());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        releaseFirstFlush.countDown();
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    @Test
+    void dropOldestEvictsTheOldestQueuedReadings() throws Exception {
+        holdFirstFlush = true;
+        start(TelemetryIngestService.BackpressurePolicy.DROP_OLDEST, 2, 1);
+
+        service.submit(reading("r0"));
+        assertTrue(firstFlushEntered.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i <= 4; i++) {
+            assertTrue(service.submit(reading("r" + i)));
+        }
+
+        TelemetryIngestService.IngestStats stats = service.getStats();
+        assertEquals(5, stats.enqueued());
+        assertEquals(2, stats.dropped());
+        assertEquals(2, stats.queueDepth());
+
+        releaseFirstFlush.countDown();
+        await(() -> service.getStats().written() == 3);
+        assertEquals(List.of(List.of("r0"), List.of("r3"), List.of("r4")), savedBatches);
+    }
+
+    @Test
+    void dropNewestRejectsTheIncomingReading() throws Exception {
+        holdFirstFlush = true;
+        start(TelemetryIngestService.BackpressurePolicy.DROP_NEWEST, 2, 1);
+
+        service.submit(reading("r0"));
+        assertTrue(firstFlushEntered.await(10, TimeUnit.SECONDS));
+        assertTrue(service.submit(reading("r1")));
+        assertTrue(service.submit(reading("r2")));
+        assertFalse(service.submit(reading("r3")));
+
+        TelemetryIngestService.IngestStats stats = service.getStats();
+        assertEquals(3, stats.enqueued());
+        assertEquals(1, stats.dropped());
+
+        releaseFirstFlush.countDown();
+        await(() -> service.getStats().written() == 3);
+        assertEquals(List.of(List.of("r0"), List.of("r1"), List.of("r2")), savedBatches);
+    }
+
+    @Test
+    void drainsTheBacklogInBatchesOfBatchSize() throws Exception {
+        holdFirstFlush = true;
+        start(TelemetryIngestService.BackpressurePolicy.BLOCK, 100, 5);
+
+        service.submit(reading("r0"));
+        assertTrue(firstFlushEntered.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i <= 7; i++) {
+            service.submit(reading("r" + i));
+        }
+        releaseFirstFlush.countDown();
+
+        await(() -> service.getStats().written() == 8);
+        assertEquals(List.of(1, 5, 2), savedBatches.stream().map(List::size).toList());
+        assertEquals(3, service.getStats().flushes());
+    }
+
+    @Test
+    void aFailedFlushIsCountedAndSkipsTheAfterCommitWork() throws Exception {
+        doAnswer(invocation -> {
+            throw new IllegalStateException("database down");
+        }).when(transactionTemplate).execute(any());
+        start(TelemetryIngestService.BackpressurePolicy.BLOCK, 100, 5);
+
+        for (int i = 0; i < 3; i++) {
+            service.submit(reading("r" + i));
+        }
+
+        await(() -> service.getStats().failed() == 3);
+        assertEquals(0, service.getStats().written());
+        verify(alertEvaluationService, never()).evaluate(any());
+    }
+
+    private void start(TelemetryIngestService.BackpressurePolicy policy, int capacity, int batchSize) {
+        service = new TelemetryIngestService(deviceFieldIndex, sensorLogsRepository, mock(SensorRollupService.class),
+                mock(SensorLatestService.class), mock(FieldLogCounterService.class), mock(DeviceHeartbeatService.class),
+                mock(DeviceMonitorService.class), alertEvaluationService, mock(SimpMessagingTemplate.class),
+                transactionTemplate);
+        ReflectionTestUtils.setField(service, "queueCapacity", capacity);
+        ReflectionTestUtils.setField(service, "batchSize", batchSize);
+        ReflectionTestUtils.setField(service, "flushIntervalMs", 50L);
+        ReflectionTestUtils.setField(service, "backpressure", policy);
+        ReflectionTestUtils.setField(service, "offerTimeoutMs", 100L);
+        service.start();
+    }
+
+    private static SensorLogs reading(String deviceId) {
+        return SensorLogs.builder()
+                .deviceId(deviceId)
+                .timestamp(LocalDateTime.now(ZoneOffset.UTC))
+                .soilHumidity(40.0)
+                .build();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
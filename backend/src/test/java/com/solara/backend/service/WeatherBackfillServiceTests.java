@@ -0,0 +1,150 @@
+package com.solara.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.solara.backend.entity.Field;
+import com.solara.backend.repository.FieldRepository;
+
+/**
+ * Checks how WeatherBackfillService plans gaps and moves the watermark, using a
+ * JdbcTemplate that answers the watermark and missing-day queries from test
+ * data and records every update.
+ */
+class WeatherBackfillServiceTests {
+
+    private record Statement(String sql, Object[] args) {}
+
+    private final LocalDate yesterday = LocalDate.now().minusDays(1);
+    private final List<Statement> updates = new ArrayList<>();
+    private final List<Statement> queries = new ArrayList<>();
+    private List<LocalDate> watermark = List.of();
+    private List<LocalDate> missingDays = List.of();
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+        @Override
+        public int update(String sql, Object... args) {
+            updates.add(new Statement(sql, args));
+            return 1;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            queries.add(new Statement(sql, args));
+            if (sql.contains("FROM field_weather_watermarks WHERE")) {
+                return (List<T>) watermark;
+            }
+            if (sql.contains("generate_series")) {
+                return (List<T>) missingDays;
+            }
+            return List.of();
+        }
+    };
+    private final FieldRepository fieldRepository = mock(FieldRepository.class);
+    private final WeatherSyncService weatherSyncService = mock(WeatherSyncService.class);
+    private final WeatherBackfillService service = new WeatherBackfillService(fieldRepository, weatherSyncService, jdbcTemplate);
+    private final Field field = Field.builder().id(UUID.randomUUID()).name("North").build();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "historyDays", 365);
+        ReflectionTestUtils.setField(service, "maxDayAttempts", 7);
+        when(fieldRepository.findById(field.getId())).thenReturn(Optional.of(field));
+    }
+
+    @Test
+    void groupsMissingDaysIntoContiguousGaps() throws Exception {
+        missingDays = List.of(yesterday.minusDays(10), yesterday.minusDays(9), yesterday.minusDays(8),
+                yesterday.minusDays(5), yesterday.minusDays(1), yesterday);
+        when(weatherSyncService.fillFieldRange(any(), any(), any())).thenReturn(true);
+
+        service.backfill(field.getId());
+
+        verify(weatherSyncService).fillFieldRange(field, yesterday.minusDays(10), yesterday.minusDays(8));
+        verify(weatherSyncService).fillFieldRange(field, yesterday.minusDays(5), yesterday.minusDays(5));
+        verify(weatherSyncService).fillFieldRange(field, yesterday.minusDays(1), yesterday);
+        assertEquals(Date.valueOf(yesterday), watermarkWritten());
+        // Without a watermark the whole history window is searched
+        assertEquals(Date.valueOf(yesterday.minusDays(365)), missingDaysQuery().args()[0]);
+    }
+
+    @Test
+    void theWatermarkStopsBeforeTheFirstHole() throws Exception {
+        LocalDate unavailable = yesterday.minusDays(6);
+        LocalDate failing = yesterday.minusDays(3);
+        missingDays = List.of(yesterday.minusDays(10), yesterday.minusDays(9), unavailable, failing);
+        when(weatherSyncService.fillFieldRange(field, yesterday.minusDays(10), yesterday.minusDays(9))).thenReturn(true);
+        when(weatherSyncService.fillFieldRange(field, unavailable, unavailable)).thenReturn(false);
+        when(weatherSyncService.fillFieldRange(field, failing, failing)).thenThrow(new IllegalStateException("timeout"));
+
+        service.backfill(field.getId());
+
+        assertEquals(Date.valueOf(unavailable.minusDays(1)), watermarkWritten());
+        // Only the day Open-Meteo answered without counts as an attempt, not the one that failed
+        List<Statement> recorded = updates.stream()
+                .filter(statement -> statement.sql().contains("INSERT INTO field_weather_missing_days"))
+                .toList();
+        assertEquals(1, recorded.size());
+        assertEquals(Date.valueOf(unavailable), recorded.get(0).args()[2]);
+        assertEquals(Date.valueOf(unavailable), recorded.get(0).args()[3]);
+    }
+
+    @Test
+    void searchesOnlyAfterTheWatermark() throws Exception {
+        watermark = List.of(yesterday.minusDays(3));
+
+        service.backfill(field.getId());
+
+        assertEquals(Date.valueOf(yesterday.minusDays(2)), missingDaysQuery().args()[0]);
+        verify(weatherSyncService, never()).fillFieldRange(any(), any(), any());
+
+        // Up to date: nothing to search at all
+        queries.clear();
+        watermark = List.of(yesterday);
+        service.backfill(field.getId());
+        assertTrue(queries.stream().noneMatch(statement -> statement.sql().contains("generate_series")));
+    }
+
+    @Test
+    void planningLeavesYesterdayToTheDailySyncUntilItHasRun() {
+        service.planBackfill();
+        assertEquals(Date.valueOf(LocalDate.now().minusDays(2)), queries.get(0).args()[0]);
+
+        when(weatherSyncService.lastDailySyncOn()).thenReturn(LocalDate.now());
+        service.planBackfill();
+        assertEquals(Date.valueOf(LocalDate.now().minusDays(1)), queries.get(1).args()[0]);
+    }
+
+    private Object watermarkWritten() {
+        List<Statement> upserts = updates.stream()
+                .filter(statement -> statement.sql().contains("INSERT INTO field_weather_watermarks"))
+                .toList();
+        assertEquals(1, upserts.size());
+        return upserts.get(0).args()[1];
+    }
+
+    private Statement missingDaysQuery() {
+        return queries.stream()
+                .filter(statement -> statement.sql().contains("generate_series"))
+                .findFirst()
+                .orElseThrow();
+    }
+}
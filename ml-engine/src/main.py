@@ -13,7 +13,7 @@ api_router = APIRouter(prefix="/api/v1")
 
 @app.get("/health", tags=["health"])
 def health():
-    return {"status": "ok"}
+    return {"status": "ok", "model_version": model_store.model_version()}
 
 
 @app.on_event("startup")
@@ -40,6 +40,18 @@ class CropRecommendation(BaseModel):
 
 class CropRecommendationResponse(BaseModel):
     recommendations: list[CropRecommendation]
+    model_version: Optional[str] = None
+
+
+class BatchRecommendationRequest(BaseModel):
+    items: list[CropRecommendationRequest] = Field(..., max_length=1000)
+    top_n: Optional[int] = Field(5, ge=1, description="Number of top crops to return per item")
+    include_explanation: Optional[bool] = Field(False)
+
+
+class BatchRecommendationResponse(BaseModel):
+    results: list[CropRecommendationResponse]
+    model_version: Optional[str] = None
 
 
 def _model_to_dict(model: BaseModel) -> dict:
@@ -74,4 +86,36 @@ def recommend_crops(request: CropRecommendationRequest) -> CropRecommendationRes
             for crop, probability in results
         ]
 
-    return CropRecommendationResponse(recommendations=recommendations)
+    return CropRecommendationResponse(
+        recommendations=recommendations,
+        model_version=model_store.model_version(),
+    )
+
+
+@router.post("/recommend/batch", response_model=BatchRecommendationResponse)
+def recommend_crops_batch(request: BatchRecommendationRequest) -> BatchRecommendationResponse:
+    payloads = []
+    for item in request.items:
+        payload = _model_to_dict(item)
+        payload.pop("top_n", None)
+        payload.pop("include_explanation", None)
+        payloads.append(payload)
+
+    try:
+        results = model_store.recommend_batch(
+            payloads,
+            request.top_n or 5,
+            bool(request.include_explanation),
+        )
+    except ValueError as exc:
+        raise HTTPException(status_code=400, detail=str(exc)) from exc
+    except RuntimeError as exc:
+        raise HTTPException(status_code=500, detail=str(exc)) from exc
+
+    return BatchRecommendationResponse(
+        results=[
+            CropRecommendationResponse(recommendations=[CropRecommendation(**entry) for entry in recommendations])
+            for recommendations in results
+        ],
+        model_version=model_store.model_version(),
+    )
@@ -0,0 +1,137 @@
+"""Exports the pickled crop model to a portable JSON artifact for in-process inference.
+
+The artifact holds the StandardScaler parameters, the class names and every tree of
+the LightGBM booster as flat arrays (the layout LightGBM uses internally: a child
+index >= 0 is an internal node, a negative index ``~i`` is leaf ``i``). It also
+embeds parity cases scored by the booster itself, so a consumer can check that it
+reproduces this model before serving from it.
+
+    python -m src.services.model_export [--output models/crop_recommendation.json]
+"""
+from __future__ import annotations
+
+from pathlib import Path
+from typing import Optional
+import argparse
+import json
+import pickle
+
+import numpy as np
+
+from src.services import model_store
+
+
+FORMAT = "solara-lgbm-v1"
+DEFAULT_OUTPUT = model_store.MODEL_PATH.with_suffix(".json")
+
+_MISSING_TYPES = {"None": 0, "Zero": 1, "NaN": 2}
+
+
+def flatten_tree(structure: dict) -> dict:
+    """Flattens one nested ``tree_structure`` from ``Booster.dump_model()``, nodes in pre-order."""
+    nodes: list[tuple[dict, list[int]]] = []
+    leaves: list[dict] = []
+
+    def visit(node: dict) -> int:
+        if "split_index" not in node:
+            if "leaf_coeff" in node:
+                raise ValueError("Linear trees are not supported by the exporter")
+            leaves.append(node)
+            return ~(len(leaves) - 1)
+        if node.get("decision_type", "<=") != "<=":
+            raise ValueError("Categorical splits are not supported by the exporter")
+        index = len(nodes)
+        children = [0, 0]
+        nodes.append((node, children))
+        children[0] = visit(node["left_child"])
+        children[1] = visit(node["right_child"])
+        return index
+
+    visit(structure)
+    return {
+        "split_feature": [int(n["split_feature"]) for n, _ in nodes],
+        "threshold": [float(n["threshold"]) for n, _ in nodes],
+        "default_left": [bool(n.get("default_left", False)) for n, _ in nodes],
+        "missing_type": [_MISSING_TYPES[n.get("missing_type", "None")] for n, _ in nodes],
+        "left_child": [children[0] for _, children in nodes],
+        "right_child": [children[1] for _, children in nodes],
+        "internal_count": [float(n.get("internal_count", 0)) for n, _ in nodes],
+        "leaf_value": [float(leaf["leaf_value"]) for leaf in leaves],
+        "leaf_count": [float(leaf.get("leaf_count", 0)) for leaf in leaves],
+    }
+
+
+def parity_inputs(scaler, count: int, seed: int = 42) -> np.ndarray:
+    """Raw feature vectors spread around the training distribution (up to ~3 standard deviations)."""
+    rng = np.random.default_rng(seed)
+    mean = np.asarray(scaler.mean_, dtype=float)
+    scale = np.asarray(scaler.scale_, dtype=float)
+    return mean + scale * rng.uniform(-3.0, 3.0, size=(count, len(mean)))
+
+
+def export_package(package: dict, version: str, parity_cases: int = 200) -> dict:
+    model = package["model"]
+    scaler = package["scaler"]
+    label_encoder = package["label_encoder"]
+    feature_names = package.get("feature_names") or ["N", "P", "K", "temperature", "humidity", "ph", "rainfall"]
+
+    # Like predict(), dump_model() stops at best_iteration, so these are the trees serving today
+    dump = model.dump_model()
+    objective = str(dump.get("objective", "")).split(" ")[0]
+    if objective != "multiclass":
+        raise ValueError(f"Only multiclass softmax models can be exported, got '{objective}'")
+
+    num_class = int(dump["num_class"])
+    trees = []
+    for position, info in enumerate(dump["tree_info"]):
+        tree = flatten_tree(info["tree_structure"])
+        tree["class"] = position % num_class
+        trees.append(tree)
+
+    mean = scaler.mean_ if getattr(scaler, "with_mean", True) else np.zeros(len(feature_names))
+    scale = scaler.scale_ if getattr(scaler, "with_std", True) else np.ones(len(feature_names))
+
+    inputs = parity_inputs(scaler, parity_cases)
+    scaled = scaler.transform(inputs)
+    probabilities = np.asarray(model.predict(scaled))
+    contributions = np.asarray(model.predict(scaled, pred_contrib=True)).reshape(
+        len(inputs), num_class, len(feature_names) + 1)
+
+    return {
+        "format": FORMAT,
+        "version": version,
+        "feature_names": list(feature_names),
+        "classes": [str(name) for name in label_encoder.classes_],
+        "scaler": {"mean": [float(v) for v in mean], "scale": [float(v) for v in scale]},
+        "num_class": num_class,
+        "trees": trees,
+        "parity": [
+            {
+                "features": [float(v) for v in inputs[i]],
+                "probabilities": [float(v) for v in probabilities[i]],
+                # Per class, per feature; the bias column is dropped like in the explanations
+                "contributions": [[float(v) for v in row[:-1]] for row in contributions[i]],
+            }
+            for i in range(len(inputs))
+        ],
+    }
+
+
+def main(argv: Optional[list[str]] = None) -> None:
+    parser = argparse.ArgumentParser(description=__doc__.splitlines()[0])
+    parser.add_argument("--model", type=Path, default=model_store.MODEL_PATH)
+    parser.add_argument("--output", type=Path, default=DEFAULT_OUTPUT)
+    parser.add_argument("--parity-cases", type=int, default=200)
+    args = parser.parse_args(argv)
+
+    raw = args.model.read_bytes()
+    package = pickle.loads(raw)
+    artifact = export_package(package, model_store.version_of(package, raw), args.parity_cases)
+
+    args.output.write_text(json.dumps(artifact, separators=(",", ":")))
+    print(f"Exported {len(artifact['trees'])} trees ({artifact['num_class']} classes, "
+          f"version {artifact['version']}) to {args.output}")
+
+
+if __name__ == "__main__":
+    main()
@@ -2,6 +2,7 @@ from __future__ import annotations
 
 from pathlib import Path
 from typing import Optional
+import hashlib
 import pickle
 
 import numpy as np
@@ -13,16 +14,18 @@ _model = None
 _scaler = None
 _label_encoder = None
 _feature_names: Optional[list[str]] = None
+_model_version: Optional[str] = None
 
 
 def load_model() -> None:
-    global _model, _scaler, _label_encoder, _feature_names
+    global _model, _scaler, _label_encoder, _feature_names, _model_version
 
     if not MODEL_PATH.exists():
         raise FileNotFoundError(f"Model file not found at {MODEL_PATH}")
 
-    with MODEL_PATH.open("rb") as handle:
-        package = pickle.load(handle)
+    raw = MODEL_PATH.read_bytes()
+    package = pickle.loads(raw)
+    _model_version = version_of(package, raw)
 
     _model = package["model"]
     _scaler = package["scaler"]
@@ -33,6 +36,19 @@ def load_model() -> None:
         _feature_names = ["N", "P", "K", "temperature", "humidity", "ph", "rainfall"]
 
 
+def version_of(package: dict, raw: bytes) -> str:
+    """Explicit version from the training notebook if present, otherwise a hash of the model file."""
+    version = package.get("version")
+    if version:
+        return str(version)
+    return hashlib.sha256(raw).hexdigest()[:12]
+
+
+def model_version() -> Optional[str]:
+    """Version of the loaded model; clients cache recommendations per version."""
+    return _model_version
+
+
 def recommend(payload: dict, top_n: int) -> list[tuple[str, float]]:
     if _model is None or _scaler is None or _label_encoder is None:
         raise RuntimeError("Model is not loaded")
@@ -117,3 +133,54 @@ def recommend_with_explanations(payload: dict, top_n: int, top_features: int = 3
         )
 
     return recommendations
+
+
+def recommend_batch(payloads: list[dict], top_n: int, include_explanation: bool = False,
+                    top_features: int = 3) -> list[list[dict]]:
+    """Scores many feature vectors with one predict call; one recommendation list per payload."""
+    if _model is None or _scaler is None or _label_encoder is None:
+        raise RuntimeError("Model is not loaded")
+    if not payloads:
+        return []
+
+    for payload in payloads:
+        missing = [name for name in _feature_names or [] if name not in payload]
+        if missing:
+            raise ValueError(f"Missing features: {missing}")
+
+    features = np.array([[payload[name] for name in _feature_names] for payload in payloads], dtype=float)
+    scaled = _scaler.transform(features)
+    probabilities = np.asarray(_model.predict(scaled))
+
+    class_count = probabilities.shape[1]
+    feature_count = len(_feature_names or [])
+    top_n = min(top_n, class_count)
+    pred_contrib = np.asarray(_model.predict(scaled, pred_contrib=True)) if include_explanation else None
+
+    results: list[list[dict]] = []
+    for row_idx, payload in enumerate(payloads):
+        row_probs = probabilities[row_idx]
+        top_indices = np.argsort(row_probs)[::-1][:top_n]
+        blocks = (
+            _get_contribution_blocks(pred_contrib[row_idx:row_idx + 1], class_count, feature_count)
+            if pred_contrib is not None else None
+        )
+
+        recommendations = []
+        for idx in top_indices:
+            entry = {
+                "crop": str(_label_encoder.classes_[idx]),
+                "probability": float(row_probs[idx] * 100),
+            }
+            if blocks is not None:
+                feature_rows = [
+                    {"feature": name, "score": float(blocks[idx][f]), "raw_value": float(payload[name])}
+                    for f, name in enumerate(_feature_names or [])
+                    if blocks[idx][f] > 0
+                ]
+                feature_rows.sort(key=lambda item: item["score"], reverse=True)
+                entry["contributions"] = feature_rows[:top_features]
+            recommendations.append(entry)
+        results.append(recommendations)
+
+    return results
@@ -0,0 +1,95 @@
+import unittest
+
+import numpy as np
+
+from src.services import model_export
+
+
+def _leaf(value, count):
+    return {"leaf_index": 0, "leaf_value": value, "leaf_count": count}
+
+
+def _split(feature, threshold, left, right, count, missing_type="None", default_left=True):
+    return {
+        "split_index": 0,
+        "split_feature": feature,
+        "threshold": threshold,
+        "decision_type": "<=",
+        "default_left": default_left,
+        "missing_type": missing_type,
+        "internal_count": count,
+        "left_child": left,
+        "right_child": right,
+    }
+
+
+class _Scaler:
+    mean_ = np.zeros(7)
+    scale_ = np.ones(7)
+
+    def transform(self, features):
+        return features
+
+
+class _LabelEncoder:
+    classes_ = np.array(["rice", "wheat"])
+
+
+class _Booster:
+    def dump_model(self):
+        return {
+            "objective": "multiclass num_class:2",
+            "num_class": 2,
+            "tree_info": [
+                {"tree_structure": _split(3, 0.5, _leaf(1.0, 4), _leaf(-1.0, 6), 10)},
+                {"tree_structure": _leaf(0.25, 10)},
+            ],
+        }
+
+    def predict(self, features, pred_contrib=False):
+        if pred_contrib:
+            return np.zeros((len(features), 2 * 8))
+        return np.tile([0.4, 0.6], (len(features), 1))
+
+
+class ModelExportTests(unittest.TestCase):
+    def test_flatten_tree_uses_preorder_nodes_and_negative_leaf_indices(self):
+        tree = model_export.flatten_tree(
+            _split(3, 0.5, _leaf(1.0, 4), _split(1, -0.2, _leaf(2.0, 2), _leaf(3.0, 4), 6, "Zero", False), 10)
+        )
+        self.assertEqual(tree["split_feature"], [3, 1])
+        self.assertEqual(tree["left_child"], [-1, -2])
+        self.assertEqual(tree["right_child"], [1, -3])
+        self.assertEqual(tree["missing_type"], [0, 1])
+        self.assertEqual(tree["default_left"], [True, False])
+        self.assertEqual(tree["leaf_value"], [1.0, 2.0, 3.0])
+        self.assertEqual(tree["internal_count"], [10.0, 6.0])
+
+    def test_flatten_tree_keeps_single_leaf_trees(self):
+        tree = model_export.flatten_tree(_leaf(0.3, 10))
+        self.assertEqual(tree["split_feature"], [])
+        self.assertEqual(tree["leaf_value"], [0.3])
+
+    def test_flatten_tree_rejects_categorical_splits(self):
+        node = _split(0, 1, _leaf(1.0, 1), _leaf(2.0, 1), 2)
+        node["decision_type"] = "=="
+        with self.assertRaises(ValueError):
+            model_export.flatten_tree(node)
+
+    def test_export_assigns_trees_to_classes_and_embeds_parity_cases(self):
+        package = {"model": _Booster(), "scaler": _Scaler(), "label_encoder": _LabelEncoder()}
+        artifact = model_export.export_package(package, "v1", parity_cases=5)
+
+        self.assertEqual(artifact["format"], model_export.FORMAT)
+        self.assertEqual(artifact["classes"], ["rice", "wheat"])
+        self.assertEqual([tree["class"] for tree in artifact["trees"]], [0, 1])
+        self.assertEqual(len(artifact["parity"]), 5)
+        case = artifact["parity"][0]
+        self.assertEqual(len(case["features"]), 7)
+        self.assertEqual(case["probabilities"], [0.4, 0.6])
+        self.assertEqual(len(case["contributions"]), 2)
+        self.assertEqual(len(case["contributions"][0]), 7)
+
+
+if __name__ == "__main__":
+    unittest.main()
@@ -48,10 +48,10 @@ class _Model:
             ]
         )
 
-    def predict(self, _, pred_contrib=False):
+    def predict(self, features, pred_contrib=False):
         if pred_contrib:
             return self._contrib
-        return self._probs
+        return np.repeat(self._probs, len(features), axis=0)
 
 
 class ModelStoreTests(unittest.TestCase):
@@ -104,6 +104,19 @@ class ModelStoreTests(unittest.TestCase):
         with self.assertRaises(ValueError):
             model_store.recommend_with_explanations({"N": 1.0}, top_n=1)
 
+    def test_recommend_batch_scores_every_payload(self):
+        results = model_store.recommend_batch([self.payload, dict(self.payload, rainfall=100.0)], top_n=2)
+        self.assertEqual(len(results), 2)
+        for recommendations in results:
+            self.assertEqual([r["crop"] for r in recommendations], ["tomato", "wheat"])
+            self.assertNotIn("contributions", recommendations[0])
+
+    def test_version_prefers_package_version_over_file_hash(self):
+        self.assertEqual(model_store.version_of({"version": "2024-06"}, b"model"), "2024-06")
+        hashed = model_store.version_of({}, b"model")
+        self.assertEqual(len(hashed), 12)
+        self.assertNotEqual(hashed, model_store.version_of({}, b"other model"))
+
 
 if __name__ == "__main__":
     unittest.main()